@@ -0,0 +1,116 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+
+/**
+ * Images for the benchmarks: the test images and synthetic images of any size and type.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ */
+final class BenchmarkImages {
+
+
+    /**
+     * The seed for the synthetic images, so every run benchmarks the same pixels.
+     */
+    private static final long SEED = 42L;
+
+    /**
+     * The size of the blocks of equal color in synthetic images.
+     */
+    private static final int BLOCK_SIZE = 16;
+
+
+    /**
+     * This is a utility class.
+     */
+    private BenchmarkImages() {
+
+    }
+
+
+    /**
+     * Read one of the test images.
+     *
+     * @param name The name of the test image resource, like {@literal /buttons-color.png}.
+     * @return The image.
+     * @throws IOException If the image can't be read.
+     */
+    static BufferedImage fixture(final String name) throws IOException {
+
+        final InputStream in = BenchmarkImages.class.getResourceAsStream(name);
+        if (in == null) {
+            throw new IOException("No such test image: " + name);
+        }
+        try {
+            return ImageIO.read(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Create a synthetic image resembling a screenshot: blocks of equal color with some noise.
+     *
+     * @param size The size as {@literal <width>x<height>}, like {@literal 1920x1080}.
+     * @param type The name of the image type without the prefix {@literal TYPE_}, like
+     * {@literal INT_RGB}.
+     * @return The image.
+     * @throws NoSuchFieldException If there is no such image type.
+     * @throws IllegalAccessException Never, as the image type constants are public.
+     */
+    static BufferedImage synthetic(final String size, final String type)
+        throws NoSuchFieldException, IllegalAccessException {
+
+        final String[] dimensions = size.split("x");
+        final int width = Integer.parseInt(dimensions[0]);
+        final int height = Integer.parseInt(dimensions[1]);
+        final int imageType = BufferedImage.class.getField("TYPE_" + type).getInt(null);
+
+        final BufferedImage image = new BufferedImage(width, height, imageType);
+        final Random random = new Random(SEED);
+        final int[] row = new int[width];
+        int[] blockColors = new int[width / BLOCK_SIZE + 1];
+        for (int y = 0; y < height; y++) {
+            if (y % BLOCK_SIZE == 0) {
+                blockColors = new int[blockColors.length];
+                for (int i = 0; i < blockColors.length; i++) {
+                    blockColors[i] = random.nextInt();
+                }
+            }
+            for (int x = 0; x < width; x++) {
+                row[x] = blockColors[x / BLOCK_SIZE] ^ (random.nextInt() & 0x070707);
+            }
+            image.setRGB(0, y, width, 1, row, 0, width);
+        }
+
+        return image;
+    }
+}
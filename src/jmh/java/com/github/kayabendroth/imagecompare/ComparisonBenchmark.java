@@ -0,0 +1,116 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.inject.Guice;
+
+
+/**
+ * End-to-end benchmarks of {@link ImageComparison#compare(BufferedImage, BufferedImage)} on the
+ * test images.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComparisonBenchmark {
+
+
+    /**
+     * The pair of test image and reference image, separated by a comma.
+     */
+    @Param({
+        "/www.google.com.2013.07.15_same.png,/www.google.com.2013.07.15.png",
+        "/www.bing.com.2013.07.18.png,/www.google.com.2013.07.15.png",
+        "/buttons-grey.png,/buttons-color.png",
+        "/man_and_wall_without_plate.jpg,/man_and_wall_with_plate.jpg",
+        "/www.google.com.2013.07.15.png,/man_and_wall_with_plate.jpg"
+    })
+    private String pair;
+
+    /**
+     * How the test image is brought to the width of the reference.
+     */
+    @Param({"RESCALE", "DIRECT"})
+    private TestImageScaling scaling;
+
+    /**
+     * The service to benchmark.
+     */
+    private ImageComparisonService service;
+
+    /**
+     * The image to test.
+     */
+    private BufferedImage testImage;
+
+    /**
+     * The reference image.
+     */
+    private BufferedImage referenceImage;
+
+
+    /**
+     * Read the images and create the service.
+     *
+     * @throws Exception If the images can't be read.
+     */
+    @Setup
+    public final void setUp() throws Exception {
+
+        final String[] names = pair.split(",");
+        testImage = BenchmarkImages.fixture(names[0]);
+        referenceImage = BenchmarkImages.fixture(names[1]);
+        service = Guice.createInjector(new ImageComparisonModule().withTestImageScaling(scaling))
+                .getInstance(ImageComparisonService.class);
+    }
+
+    /**
+     * Compare the test image to the reference image.
+     *
+     * @return Whether or not the images are equal.
+     */
+    @Benchmark
+    public final boolean compare() {
+
+        return service.compare(testImage, referenceImage);
+    }
+}
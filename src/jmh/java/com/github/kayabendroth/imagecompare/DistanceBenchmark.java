@@ -0,0 +1,120 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Benchmarks for the distance between two signatures.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceBenchmark {
+
+
+    /**
+     * The seed for the signatures, so every run benchmarks the same values.
+     */
+    private static final long SEED = 42L;
+
+
+    /**
+     * The number of regions in one dimension, as for images 640, 1920 and 3840 pixels wide.
+     */
+    @Param({"22", "68", "137"})
+    private int regions;
+
+    /**
+     * The distance metric.
+     */
+    @Param({"EUCLIDEAN", "SQUARED_EUCLIDEAN", "MANHATTAN", "YCBCR"})
+    private DistanceMetric metric;
+
+    /**
+     * The signature of the test image.
+     */
+    private int[] source;
+
+    /**
+     * The signature of the reference image.
+     */
+    private int[] target;
+
+
+    /**
+     * Create two random signatures.
+     */
+    @Setup
+    public final void setUp() {
+
+        final Random random = new Random(SEED);
+        source = new int[regions * regions];
+        target = new int[regions * regions];
+        for (int i = 0; i < source.length; i++) {
+            source[i] = random.nextInt() & 0xffffff;
+            target[i] = random.nextInt() & 0xffffff;
+        }
+    }
+
+    /**
+     * Calculate the distance between the two signatures.
+     *
+     * @return The distance.
+     * @throws InvalidArgumentException Never, as the signatures fit the number of regions.
+     */
+    @Benchmark
+    public final double calcDistance() throws InvalidArgumentException {
+
+        return SimpleImageComparisonProcessor.calcDistance(source, target, regions);
+    }
+
+    /**
+     * Calculate the distance between the two signatures with the metric.
+     *
+     * @return The distance.
+     */
+    @Benchmark
+    public final double metricDistance() {
+
+        return metric.distance(source, target, source.length);
+    }
+}
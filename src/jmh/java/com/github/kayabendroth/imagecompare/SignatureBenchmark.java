@@ -0,0 +1,150 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.imgscalr.Scalr;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Benchmarks for the single steps of a comparison on synthetic images of several sizes and
+ * types: sampling a signature, averaging a single region and re-scaling the test image.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignatureBenchmark {
+
+
+    /**
+     * The proportional coordinate of the center of the image.
+     */
+    private static final double CENTER = 0.5;
+
+
+    /**
+     * The size of the image as {@literal <width>x<height>}.
+     */
+    @Param({"640x480", "1920x1080", "3840x2160"})
+    private String size;
+
+    /**
+     * The type of the image without the prefix {@literal TYPE_}.
+     */
+    @Param({"INT_RGB", "INT_ARGB", "3BYTE_BGR", "4BYTE_ABGR", "BYTE_GRAY"})
+    private String type;
+
+    /**
+     * The image to benchmark.
+     */
+    private BufferedImage image;
+
+    /**
+     * The number of regions in one dimension for the image.
+     */
+    private int regions;
+
+    /**
+     * The sample size for the image.
+     */
+    private int sampleSize;
+
+
+    /**
+     * Create the image and the parameters of its signature.
+     *
+     * @throws Exception If the image type doesn't exist.
+     */
+    @Setup
+    public final void setUp() throws Exception {
+
+        image = BenchmarkImages.synthetic(size, type);
+        final ComparisonProfile profile = ComparisonProfile.BALANCED;
+        regions = image.getWidth() / profile.getDistanceBetweenReferencePixels();
+        sampleSize = SimpleImageComparisonProcessor.fitSampleSize(image.getWidth(),
+                image.getHeight(), regions, profile.getTargetSampleSize());
+    }
+
+    /**
+     * Sample the whole signature of the image.
+     *
+     * @return The signature.
+     */
+    @Benchmark
+    public final int[] calcSignature() {
+
+        return SimpleImageComparisonProcessor.calcSignature(image, regions, sampleSize);
+    }
+
+    /**
+     * Build the summed-area table of the image.
+     *
+     * @return The table.
+     */
+    @Benchmark
+    public final SummedAreaTable buildSummedAreaTable() {
+
+        return new SummedAreaTable(image);
+    }
+
+    /**
+     * Average the sampling area in the center of the image.
+     *
+     * @return The average color.
+     */
+    @Benchmark
+    public final Color averageAround() {
+
+        return SimpleImageComparisonProcessor.averageAround(image, CENTER, CENTER, sampleSize);
+    }
+
+    /**
+     * Re-scale the image to half of its width, the way test images are re-scaled.
+     *
+     * @return The re-scaled image.
+     */
+    @Benchmark
+    public final BufferedImage resize() {
+
+        return Scalr.resize(image, Scalr.Method.BALANCED, Scalr.Mode.FIT_TO_WIDTH,
+                image.getWidth() / 2, 1);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.name.Named;
+
+
+/**
+ * Provides the default executor asynchronous comparisons are run on: a fixed pool of daemon
+ * threads with one thread per available processor and a bounded queue. Once the queue is full,
+ * further comparisons are rejected instead of piling up in memory. There is a single pool per
+ * queue capacity and class loader, shared by all injectors with that capacity, which is created
+ * when the first of them asks for it. Like the pool of {@link DefaultExecutorServiceProvider}, it
+ * consists of daemon threads and lives as long as the library, so nobody has to shut it down.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ */
+final class AsyncExecutorServiceProvider implements Provider<ExecutorService> {
+
+
+    /**
+     * The pools shared by all injectors, by their queue capacity.
+     */
+    private static final Map<Integer, ExecutorService> SHARED_POOLS =
+            new HashMap<Integer, ExecutorService>();
+
+
+    /**
+     * The maximum number of comparisons waiting for a thread.
+     */
+    private final int queueCapacity;
+
+
+    /**
+     * This is the constructor.
+     *
+     * @param capacity The maximum number of comparisons waiting for a thread.
+     */
+    @Inject
+    AsyncExecutorServiceProvider(
+            @Named(ImageComparisonModule.ASYNC_QUEUE_CAPACITY) final int capacity) {
+
+        this.queueCapacity = capacity;
+    }
+
+
+    @Override
+    public ExecutorService get() {
+
+        synchronized (SHARED_POOLS) {
+            ExecutorService pool = SHARED_POOLS.get(queueCapacity);
+            if (pool == null) {
+                final int threads = Runtime.getRuntime().availableProcessors();
+                pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<Runnable>(queueCapacity),
+                        DefaultExecutorServiceProvider.newDaemonThreadFactory(),
+                        new ThreadPoolExecutor.AbortPolicy());
+                SHARED_POOLS.put(queueCapacity, pool);
+            }
+            return pool;
+        }
+    }
+}
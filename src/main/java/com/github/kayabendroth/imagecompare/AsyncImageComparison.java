@@ -0,0 +1,176 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+
+/**
+ * Compares images asynchronously on a bounded executor.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ */
+public class AsyncImageComparison implements AsyncImageComparisonService {
+
+    /**
+     * The image comparison processor to be used for the actual comparison work.
+     */
+    private final ImageComparisonProcessor proc;
+
+    /**
+     * The bounded executor the comparisons are run on.
+     */
+    private final ExecutorService executor;
+
+
+    /**
+     * This is the constructor.
+     *
+     * @param processor The image comparison processor to use.
+     * @param executorService The bounded executor to run the comparisons on.
+     */
+    @Inject
+    public AsyncImageComparison(
+            final ImageComparisonProcessor processor,
+            @Named(ImageComparisonModule.ASYNC_EXECUTOR) final ExecutorService executorService) {
+
+        this.proc = processor;
+        this.executor = executorService;
+    }
+
+
+    @Override
+    public final Future<ComparisonResult> compareAsync(
+            final BufferedImage testImage,
+            final BufferedImage referenceImage,
+            final ComparisonCallback callback) {
+
+        return submit(ComparisonPair.of(testImage, referenceImage), callback);
+    }
+
+    @Override
+    public final Future<ComparisonResult> compareAsync(
+            final BufferedImage testImage,
+            final ImageSignature referenceSignature,
+            final ComparisonCallback callback) {
+
+        return submit(ComparisonPair.of(testImage, referenceSignature), callback);
+    }
+
+    /**
+     * Queue the comparison of a pair on the executor.
+     *
+     * @param pair The pair of test image and reference to compare.
+     * @param callback The callback for the outcome, or {@literal null}.
+     * @return The future result.
+     */
+    private Future<ComparisonResult> submit(
+            final ComparisonPair pair,
+            final ComparisonCallback callback) {
+
+        final CallbackTask task = new CallbackTask(new Callable<ComparisonResult>() {
+            @Override
+            public ComparisonResult call() {
+
+                return pair.compare(proc);
+            }
+        }, callback);
+        try {
+            executor.execute(task);
+        } catch (final RejectedExecutionException ree) {
+            task.reject(ree);
+        }
+        return task;
+    }
+
+
+    /**
+     * A comparison task, which reports its outcome to a callback.
+     */
+    private static final class CallbackTask extends FutureTask<ComparisonResult> {
+
+        /**
+         * The callback for the outcome, or {@literal null}.
+         */
+        private final ComparisonCallback callback;
+
+
+        /**
+         * This is the constructor.
+         *
+         * @param comparison The comparison to run.
+         * @param comparisonCallback The callback for the outcome, or {@literal null}.
+         */
+        CallbackTask(
+                final Callable<ComparisonResult> comparison,
+                final ComparisonCallback comparisonCallback) {
+
+            super(comparison);
+            this.callback = comparisonCallback;
+        }
+
+
+        /**
+         * Let the task fail, because the executor has rejected it.
+         *
+         * @param cause The rejection.
+         */
+        void reject(final RejectedExecutionException cause) {
+
+            setException(cause);
+        }
+
+        @Override
+        protected void done() {
+
+            if (callback == null) {
+                return;
+            }
+            final ComparisonResult result;
+            try {
+                result = get();
+            } catch (final ExecutionException ee) {
+                callback.failed(ee.getCause());
+                return;
+            } catch (final CancellationException ce) {
+                callback.failed(ce);
+                return;
+            } catch (final InterruptedException ie) {
+                // The task is done, so get() doesn't block and can't be interrupted.
+                Thread.currentThread().interrupt();
+                callback.failed(ie);
+                return;
+            }
+            callback.completed(result);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.Future;
+
+
+/**
+ * Interface for the asynchronous comparison of images. None of the methods block the calling
+ * thread: the comparison is queued on a bounded executor and its outcome is reported through the
+ * returned future and the optional callback.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ */
+public interface AsyncImageComparisonService {
+
+
+    /**
+     * Compare two images asynchronously.
+     *
+     * @param testImage The image you want to test.
+     * @param referenceImage The reference image for the test.
+     * @param callback The callback for the outcome, or {@literal null}.
+     * @return The future result. If the comparison has been rejected, because the queue is full,
+     * the future has failed with a {@link java.util.concurrent.RejectedExecutionException}
+     * already.
+     */
+    Future<ComparisonResult> compareAsync(
+            BufferedImage testImage,
+            BufferedImage referenceImage,
+            ComparisonCallback callback);
+
+    /**
+     * Compare an image asynchronously with the precomputed signature of a reference image.
+     *
+     * @param testImage The image you want to test.
+     * @param referenceSignature The signature of the reference image for the test.
+     * @param callback The callback for the outcome, or {@literal null}.
+     * @return The future result. If the comparison has been rejected, because the queue is full,
+     * the future has failed with a {@link java.util.concurrent.RejectedExecutionException}
+     * already.
+     */
+    Future<ComparisonResult> compareAsync(
+            BufferedImage testImage,
+            ImageSignature referenceSignature,
+            ComparisonCallback callback);
+}
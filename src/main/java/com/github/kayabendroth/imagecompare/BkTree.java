@@ -0,0 +1,188 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * A BK-tree of 64 bit hashes, which finds all values whose hashes lie within a Hamming radius of
+ * a query without looking at most of the other values. Not thread-safe.
+ *
+ * @param <T> The type of the values.
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ */
+final class BkTree<T> {
+
+
+    /**
+     * The maximum Hamming distance between two 64 bit hashes.
+     */
+    private static final int MAX_DISTANCE = Long.SIZE;
+
+
+    /**
+     * The root node, or {@literal null} if the tree is empty.
+     */
+    private Node<T> root;
+
+    /**
+     * The number of values.
+     */
+    private int size;
+
+
+    /**
+     * Add a value.
+     *
+     * @param hash The hash of the value.
+     * @param value The value.
+     */
+    void add(final long hash, final T value) {
+
+        size++;
+        if (root == null) {
+            root = new Node<T>(hash);
+            root.values.add(value);
+            return;
+        }
+        Node<T> node = root;
+        while (true) {
+            final int distance = PerceptualHash.hammingDistance(hash, node.hash);
+            if (distance == 0) {
+                node.values.add(value);
+                return;
+            }
+            if (node.children[distance] == null) {
+                node.children[distance] = new Node<T>(hash);
+                node.children[distance].values.add(value);
+                return;
+            }
+            node = node.children[distance];
+        }
+    }
+
+    /**
+     * Find all values within a Hamming radius.
+     *
+     * @param hash The hash to search for.
+     * @param radius The maximum Hamming distance.
+     * @return The values found, the closest first.
+     */
+    List<T> find(final long hash, final int radius) {
+
+        // Collect the matches by distance, so they come out sorted without sorting.
+        final List<List<T>> byDistance = new ArrayList<List<T>>(MAX_DISTANCE + 1);
+        for (int d = 0; d <= MAX_DISTANCE; d++) {
+            byDistance.add(null);
+        }
+        final List<Node<T>> pending = new ArrayList<Node<T>>();
+        if (root != null) {
+            pending.add(root);
+        }
+        while (!pending.isEmpty()) {
+            final Node<T> node = pending.remove(pending.size() - 1);
+            final int distance = PerceptualHash.hammingDistance(hash, node.hash);
+            if (distance <= radius) {
+                if (byDistance.get(distance) == null) {
+                    byDistance.set(distance, new ArrayList<T>());
+                }
+                byDistance.get(distance).addAll(node.values);
+            }
+
+            // By the triangle inequality, matches can only be below children in this range.
+            final int from = Math.max(1, distance - radius);
+            final int to = Math.min(MAX_DISTANCE, distance + radius);
+            for (int d = from; d <= to; d++) {
+                if (node.children[d] != null) {
+                    pending.add(node.children[d]);
+                }
+            }
+        }
+
+        final List<T> found = new ArrayList<T>();
+        for (final List<T> values : byDistance) {
+            if (values != null) {
+                found.addAll(values);
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * @return The number of values.
+     */
+    int size() {
+
+        return size;
+    }
+
+
+    /**
+     * A node of the tree: all values with the same hash and the subtrees by their distance.
+     *
+     * @param <T> The type of the values.
+     */
+    private static final class Node<T> {
+
+        /**
+         * The hash of all values of this node.
+         */
+        private final long hash;
+
+        /**
+         * The values with this hash.
+         */
+        private final List<T> values = new ArrayList<T>(1);
+
+        /**
+         * The subtrees by their Hamming distance to this node.
+         */
+        private final Node<T>[] children = newChildren();
+
+
+        /**
+         * This is the constructor.
+         *
+         * @param nodeHash The hash of all values of this node.
+         */
+        Node(final long nodeHash) {
+
+            this.hash = nodeHash;
+        }
+
+
+        /**
+         * Create the array of subtrees. Arrays of a generic type can only be created raw.
+         *
+         * @param <V> The type of the values.
+         * @return An empty subtree for every possible Hamming distance.
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static <V> Node<V>[] newChildren() {
+
+            return new Node[MAX_DISTANCE + 1];
+        }
+    }
+}
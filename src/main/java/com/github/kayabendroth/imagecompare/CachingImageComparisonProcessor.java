@@ -0,0 +1,350 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+
+import javax.imageio.stream.ImageInputStream;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+
+/**
+ * An image comparison processor, which memoizes the signatures of reference images in a
+ * {@link SignatureCache} and delegates all actual work to another processor.
+ * <p>
+ * Reference images passed as {@link BufferedImage} are looked up by a hash of their content, so
+ * the same baseline read from disk again hits the cache. Hashing reads every pixel once, which is
+ * still cheaper than sampling the signature. Callers, which know their baselines by a key of their
+ * own (a file name, a database id), can skip the hashing with
+ * {@link #createSignature(Object, BufferedImage)}.
+ * <p>
+ * Every key is combined with the profile of the delegate, so a cache may be shared by processors
+ * with different profiles: each of them finds the signatures created with its own profile only.
+ * <p>
+ * Two threads missing the cache for the same image at the same time both compute its signature;
+ * the result is the same, so one simply replaces the other.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ */
+public class CachingImageComparisonProcessor implements ImageComparisonProcessor {
+
+
+    /**
+     * The multiplier combining the hash codes of a key and a profile.
+     */
+    private static final int HASH_MULTIPLIER = 31;
+
+    /**
+     * The processor doing the actual work.
+     */
+    private final ImageComparisonProcessor delegate;
+
+    /**
+     * The cache for reference signatures.
+     */
+    private final SignatureCache cache;
+
+
+    /**
+     * This is the constructor.
+     *
+     * @param processor The processor doing the actual work.
+     * @param signatureCache The cache for reference signatures.
+     */
+    @Inject
+    public CachingImageComparisonProcessor(
+            @Named(ImageComparisonModule.UNCACHED_PROCESSOR)
+            final ImageComparisonProcessor processor,
+            final SignatureCache signatureCache) {
+
+        this.delegate = processor;
+        this.cache = signatureCache;
+    }
+
+
+    @Override
+    public final boolean compare(final BufferedImage testImage, final BufferedImage referenceImage)
+    {
+        return delegate.compareWithSignature(testImage, createSignature(referenceImage));
+    }
+
+    @Override
+    public final boolean compare(
+            final BufferedImage testImage,
+            final BufferedImage referenceImage,
+            final double minEqualPercentage) throws InvalidArgumentException {
+
+        // Don't bother with the reference, if the comparison is going to fail anyway.
+        SimpleImageComparisonProcessor.checkDefinitionOfEqual(minEqualPercentage);
+
+        return delegate.compareWithSignature(testImage, createSignature(referenceImage),
+                minEqualPercentage);
+    }
+
+    /**
+     * Compute the signature of an image or look it up in the cache by the hash of its content.
+     *
+     * @param image The image to compute the signature for.
+     * @return The signature of the image.
+     */
+    @Override
+    public final ImageSignature createSignature(final BufferedImage image) {
+
+        return createSignature(ContentHash.keyOf(image), image);
+    }
+
+    /**
+     * Compute the signature of an image, leaving out the regions masked. Masked signatures are not
+     * cached, as the same image may be masked in many ways.
+     *
+     * @param image The image to compute the signature for.
+     * @param mask The areas of the image to leave out.
+     * @return The signature of the image.
+     * @throws InvalidArgumentException If the mask is missing or masks every region.
+     */
+    @Override
+    public final ImageSignature createSignature(final BufferedImage image, final ImageMask mask)
+        throws InvalidArgumentException {
+
+        return delegate.createSignature(image, mask);
+    }
+
+    /**
+     * Compute the signature of an image or look it up in the cache by a key of your own. The key
+     * has to identify the content of the image: a changed image needs a new key or has to be
+     * invalidated with {@link #invalidate(Object)}.
+     *
+     * @param key The key of the image, with proper {@literal equals()} and
+     * {@literal hashCode()}.
+     * @param image The image to compute the signature for, if it isn't cached yet.
+     * @return The signature of the image.
+     */
+    public final ImageSignature createSignature(final Object key, final BufferedImage image) {
+
+        final Object profileKey = new ProfileKey(getProfile(), key);
+        ImageSignature signature = cache.get(profileKey);
+        if (signature == null) {
+            signature = delegate.createSignature(image);
+            cache.put(profileKey, signature);
+        }
+
+        return signature;
+    }
+
+    /**
+     * Remove the signature of an image cached by a key of your own.
+     *
+     * @param key The key of the image.
+     */
+    public final void invalidate(final Object key) {
+
+        cache.invalidate(new ProfileKey(getProfile(), key));
+    }
+
+    @Override
+    public final boolean compareWithSignature(
+            final BufferedImage testImage,
+            final ImageSignature referenceSignature) {
+
+        return delegate.compareWithSignature(testImage, referenceSignature);
+    }
+
+    @Override
+    public final boolean compareWithSignature(
+            final BufferedImage testImage,
+            final ImageSignature referenceSignature,
+            final double minEqualPercentage) throws InvalidArgumentException {
+
+        return delegate.compareWithSignature(testImage, referenceSignature, minEqualPercentage);
+    }
+
+    @Override
+    public final boolean compareSignatures(
+            final ImageSignature testSignature,
+            final ImageSignature referenceSignature) {
+
+        return delegate.compareSignatures(testSignature, referenceSignature);
+    }
+
+    @Override
+    public final boolean compareSignatures(
+            final ImageSignature testSignature,
+            final ImageSignature referenceSignature,
+            final double minEqualPercentage) throws InvalidArgumentException {
+
+        return delegate.compareSignatures(testSignature, referenceSignature, minEqualPercentage);
+    }
+
+    @Override
+    public final ComparisonResult compareDetailed(
+            final BufferedImage testImage,
+            final BufferedImage referenceImage) {
+
+        return delegate.compareDetailed(testImage, createSignature(referenceImage));
+    }
+
+    @Override
+    public final ComparisonResult compareDetailed(
+            final BufferedImage testImage,
+            final ImageSignature referenceSignature) {
+
+        return delegate.compareDetailed(testImage, referenceSignature);
+    }
+
+    @Override
+    public final ComparisonResult compareDetailed(
+            final ImageSignature testSignature,
+            final ImageSignature referenceSignature) throws InvalidArgumentException {
+
+        return delegate.compareDetailed(testSignature, referenceSignature);
+    }
+
+    @Override
+    public final RegionDiff compareRegions(
+            final BufferedImage testImage,
+            final ImageSignature referenceSignature) {
+
+        return delegate.compareRegions(testImage, referenceSignature);
+    }
+
+    @Override
+    public final RegionDiff compareRegions(
+            final ImageSignature testSignature,
+            final ImageSignature referenceSignature) throws InvalidArgumentException {
+
+        return delegate.compareRegions(testSignature, referenceSignature);
+    }
+
+    @Override
+    public final List<ReferenceMatch> compareAll(
+            final BufferedImage testImage,
+            final List<ImageSignature> referenceSignatures) {
+
+        return delegate.compareAll(testImage, referenceSignatures);
+    }
+
+    /**
+     * Compute the signature of an encoded image. Encoded images aren't cached, as they can't be
+     * hashed without being decoded; use {@link #createSignature(Object, BufferedImage)} with a
+     * key of your own or a {@link SignatureStore} instead.
+     *
+     * @param input The encoded image. It is read, but not closed.
+     * @return The signature of the image.
+     * @throws IOException If the image can't be decoded.
+     */
+    @Override
+    public final ImageSignature createSignature(final ImageInputStream input) throws IOException {
+
+        return delegate.createSignature(input);
+    }
+
+    @Override
+    public final ComparisonResult compareDetailed(
+            final ImageInputStream testInput,
+            final ImageSignature referenceSignature) throws IOException {
+
+        return delegate.compareDetailed(testInput, referenceSignature);
+    }
+
+    @Override
+    public final ComparisonProfile getProfile() {
+
+        return delegate.getProfile();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The cache holds signatures created with the profile of this processor only, so the
+     * signatures of a processor with another profile aren't cached.
+     */
+    @Override
+    public final ImageComparisonProcessor withProfile(final ComparisonProfile profile) {
+
+        if (getProfile().equals(profile)) {
+            return this;
+        }
+
+        return delegate.withProfile(profile);
+    }
+
+    /**
+     * @return The cache for reference signatures.
+     */
+    public final SignatureCache getCache() {
+
+        return cache;
+    }
+
+
+    /**
+     * The key of a signature in the cache: the key of the image and the profile the signature has
+     * been created with.
+     */
+    private static final class ProfileKey {
+
+        /**
+         * The profile of the signature.
+         */
+        private final ComparisonProfile profile;
+
+        /**
+         * The key of the image.
+         */
+        private final Object key;
+
+
+        /**
+         * This is the constructor.
+         *
+         * @param signatureProfile The profile of the signature.
+         * @param imageKey The key of the image.
+         */
+        ProfileKey(final ComparisonProfile signatureProfile, final Object imageKey) {
+
+            this.profile = signatureProfile;
+            this.key = imageKey;
+        }
+
+
+        @Override
+        public boolean equals(final Object other) {
+
+            if (!(other instanceof ProfileKey)) {
+                return false;
+            }
+            final ProfileKey profileKey = (ProfileKey) other;
+
+            return profile.equals(profileKey.profile) && key.equals(profileKey.key);
+        }
+
+        @Override
+        public int hashCode() {
+
+            return HASH_MULTIPLIER * profile.hashCode() + key.hashCode();
+        }
+    }
+}
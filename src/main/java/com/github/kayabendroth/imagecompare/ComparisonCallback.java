@@ -0,0 +1,52 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+
+/**
+ * Callback for the outcome of an asynchronous comparison. The methods are called on the thread
+ * that has run the comparison, or on the submitting thread if the comparison has been rejected,
+ * so they should return quickly.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ * @see AsyncImageComparisonService
+ */
+public interface ComparisonCallback {
+
+
+    /**
+     * Called once the comparison has completed.
+     *
+     * @param result The detailed result of the comparison.
+     */
+    void completed(ComparisonResult result);
+
+    /**
+     * Called if the comparison has failed, has been cancelled or has been rejected, because too
+     * many comparisons are waiting already.
+     *
+     * @param cause The cause of the failure. A
+     * {@link java.util.concurrent.RejectedExecutionException} signals backpressure, a
+     * {@link java.util.concurrent.CancellationException} a cancelled comparison.
+     */
+    void failed(Throwable cause);
+}
@@ -0,0 +1,126 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+
+/**
+ * Listener for diagnostic output of an image comparison processor, like timings of the single
+ * phases of a comparison.
+ * <p>
+ * Implementations have to be thread-safe, as the processor may be used by several threads at
+ * once. The processor asks {@link #isEnabled()} before it measures anything, so a disabled
+ * listener doesn't cost anything.
+ * <p>
+ * Notifications may be added to this interface in later versions. Extend
+ * {@link ComparisonListenerAdapter} rather than implementing this interface directly, so your
+ * listener keeps compiling.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ * @see ComparisonListenerAdapter
+ * @see NoOpComparisonListener
+ * @see ComparisonStatistics
+ */
+public interface ComparisonListener {
+
+
+    /**
+     * @return {@literal true}, if the listener wants to be notified at all.
+     */
+    boolean isEnabled();
+
+    /**
+     * The signature of an image has been calculated.
+     *
+     * @param imageWidth The width of the image.
+     * @param imageHeight The height of the image.
+     * @param refRegionsInOneDimension The number of reference regions in one dimension, which is
+     * the number of columns for grids which aren't square.
+     * @param sampleSize The size of the sampling area around the center of every region.
+     * @param nanos The time needed in nanoseconds.
+     */
+    void signatureCalculated(
+            int imageWidth,
+            int imageHeight,
+            int refRegionsInOneDimension,
+            int sampleSize,
+            long nanos);
+
+    /**
+     * A test image has been re-scaled to the width of the reference image.
+     *
+     * @param imageWidth The width of the re-scaled image.
+     * @param imageHeight The height of the re-scaled image.
+     * @param nanos The time needed in nanoseconds.
+     */
+    void testImageRescaled(int imageWidth, int imageHeight, long nanos);
+
+    /**
+     * A comparison has been stopped early, because the distance budget of the minimum percentage
+     * of equality has been exceeded before every region has been compared.
+     *
+     * @param regionsCompared The number of regions compared until then.
+     * @param regions The total number of regions.
+     * @param nanos The time needed for sampling and comparing these regions in nanoseconds.
+     * @see EarlyExit
+     */
+    void comparisonStoppedEarly(int regionsCompared, int regions, long nanos);
+
+    /**
+     * A band of regions of an encoded image decoded tile by tile has been sampled. The distance
+     * grows with every band, so it tells how far apart the images are at least.
+     *
+     * @param regionsSampled The number of regions sampled until then.
+     * @param regions The total number of regions.
+     * @param distance The distance of the regions sampled until then to the reference, or
+     * {@link Double#NaN}, if the image isn't compared to a reference.
+     * @param maxDistance The maximum possible distance of all regions, which aren't masked.
+     * @param nanos The time needed for decoding and sampling these regions in nanoseconds.
+     */
+    void bandSampled(
+            int regionsSampled,
+            int regions,
+            double distance,
+            double maxDistance,
+            long nanos);
+
+    /**
+     * The distance between two signatures has been calculated.
+     *
+     * @param distance The distance between the two signatures.
+     * @param maxDistance The maximum possible distance between the two signatures.
+     * @param percentageOfEquality The resulting percentage of equality.
+     * @param nanos The time needed in nanoseconds.
+     */
+    void distanceCalculated(
+            double distance,
+            double maxDistance,
+            double percentageOfEquality,
+            long nanos);
+
+    /**
+     * A comparison without the possibility to throw an {@link InvalidArgumentException} failed
+     * because of an invalid argument.
+     *
+     * @param exception The exception, which has been caught.
+     */
+    void invalidArgument(InvalidArgumentException exception);
+}
@@ -0,0 +1,76 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+
+/**
+ * A comparison listener, which ignores every notification. Extend it and override the
+ * notifications you're interested in, next to {@link #isEnabled()}. This is the way to implement
+ * a listener of your own: notifications added to {@link ComparisonListener} later on are ignored
+ * by the adapter, so your listener keeps compiling.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ */
+public abstract class ComparisonListenerAdapter implements ComparisonListener {
+
+
+    @Override
+    public void signatureCalculated(
+            final int imageWidth,
+            final int imageHeight,
+            final int refRegionsInOneDimension,
+            final int sampleSize,
+            final long nanos) {
+    }
+
+    @Override
+    public void testImageRescaled(final int imageWidth, final int imageHeight, final long nanos) {
+    }
+
+    @Override
+    public void comparisonStoppedEarly(
+            final int regionsCompared,
+            final int regions,
+            final long nanos) {
+    }
+
+    @Override
+    public void bandSampled(
+            final int regionsSampled,
+            final int regions,
+            final double distance,
+            final double maxDistance,
+            final long nanos) {
+    }
+
+    @Override
+    public void distanceCalculated(
+            final double distance,
+            final double maxDistance,
+            final double percentageOfEquality,
+            final long nanos) {
+    }
+
+    @Override
+    public void invalidArgument(final InvalidArgumentException exception) {
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+import java.awt.image.BufferedImage;
+
+
+/**
+ * A test image together with the reference it is to be compared to. The reference is either an
+ * image or a precomputed {@link ImageSignature}.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ */
+public final class ComparisonPair {
+
+
+    /**
+     * The image you want to test.
+     */
+    private final BufferedImage testImage;
+
+    /**
+     * The reference image, or {@literal null} if a reference signature is given.
+     */
+    private final BufferedImage referenceImage;
+
+    /**
+     * The reference signature, or {@literal null} if a reference image is given.
+     */
+    private final ImageSignature referenceSignature;
+
+
+    /**
+     * This constructor is used by the static factory methods.
+     *
+     * @param image The image you want to test.
+     * @param refImage The reference image, or {@literal null}.
+     * @param refSignature The reference signature, or {@literal null}.
+     */
+    private ComparisonPair(
+            final BufferedImage image,
+            final BufferedImage refImage,
+            final ImageSignature refSignature) {
+
+        this.testImage = image;
+        this.referenceImage = refImage;
+        this.referenceSignature = refSignature;
+    }
+
+
+    /**
+     * Pair a test image with a reference image.
+     *
+     * @param testImage The image you want to test.
+     * @param referenceImage The reference image for the test.
+     * @return The pair.
+     */
+    public static ComparisonPair of(
+            final BufferedImage testImage,
+            final BufferedImage referenceImage) {
+
+        return new ComparisonPair(testImage, referenceImage, null);
+    }
+
+    /**
+     * Pair a test image with the precomputed signature of a reference image.
+     *
+     * @param testImage The image you want to test.
+     * @param referenceSignature The signature of the reference image for the test.
+     * @return The pair.
+     */
+    public static ComparisonPair of(
+            final BufferedImage testImage,
+            final ImageSignature referenceSignature) {
+
+        return new ComparisonPair(testImage, null, referenceSignature);
+    }
+
+    /**
+     * Get the image you want to test.
+     *
+     * @return The test image.
+     */
+    public BufferedImage getTestImage() {
+
+        return testImage;
+    }
+
+    /**
+     * Get the reference image.
+     *
+     * @return The reference image, or {@literal null} if the pair holds a reference signature.
+     */
+    public BufferedImage getReferenceImage() {
+
+        return referenceImage;
+    }
+
+    /**
+     * Get the reference signature.
+     *
+     * @return The reference signature, or {@literal null} if the pair holds a reference image.
+     */
+    public ImageSignature getReferenceSignature() {
+
+        return referenceSignature;
+    }
+
+    /**
+     * Compare the test image to the reference.
+     *
+     * @param processor The processor to use for the comparison.
+     * @return The detailed result of the comparison.
+     */
+    ComparisonResult compare(final ImageComparisonProcessor processor) {
+
+        if (referenceSignature == null) {
+            return processor.compareDetailed(testImage, referenceImage);
+        }
+        return processor.compareDetailed(testImage, referenceSignature);
+    }
+}
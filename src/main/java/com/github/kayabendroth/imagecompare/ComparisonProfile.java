@@ -0,0 +1,308 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+import org.imgscalr.Scalr.Method;
+
+
+/**
+ * The settings trading the accuracy of a comparison for its speed: how dense the grid of
+ * regions is, how large the sampling area of every region is, how test images are re-scaled and
+ * how the distance between two signatures is measured. Profiles are immutable.
+ * <p>
+ * The grid and the sampling areas are fixed when the signature of the reference is created. A
+ * test image is always sampled on the grid of the signature it's compared to.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ */
+public final class ComparisonProfile {
+
+
+    /**
+     * A coarse grid with small sampling areas, for bulk runs, where speed matters most.
+     */
+    public static final ComparisonProfile FAST =
+            new ComparisonProfile("FAST", 56, 6, Method.SPEED, DistanceMetric.EUCLIDEAN);
+
+    /**
+     * The default profile: one region per 28 pixels with sampling areas of 24 by 24 pixels.
+     */
+    public static final ComparisonProfile BALANCED =
+            new ComparisonProfile("BALANCED", 28, 12, Method.BALANCED, DistanceMetric.EUCLIDEAN);
+
+    /**
+     * A dense grid of sampling areas, which cover the whole image, for rechecking disputed
+     * results.
+     */
+    public static final ComparisonProfile PRECISE =
+            new ComparisonProfile("PRECISE", 14, 7, Method.QUALITY, DistanceMetric.EUCLIDEAN);
+
+    /**
+     * The multiplier combining the hash codes of the settings.
+     */
+    private static final int HASH_MULTIPLIER = 31;
+
+
+    /**
+     * The name of a preset, or {@literal null}.
+     */
+    private final String name;
+
+    /**
+     * The distance between the centers of two regions in pixels of the reference.
+     */
+    private final int distanceBetweenReferencePixels;
+
+    /**
+     * The size of the sampling area around the center of a region.
+     */
+    private final int targetSampleSize;
+
+    /**
+     * The scaling method for test images.
+     */
+    private final Method scalingMethod;
+
+    /**
+     * The distance metric.
+     */
+    private final DistanceMetric distanceMetric;
+
+    /**
+     * The layout of the grid of regions.
+     */
+    private final GridLayout gridLayout;
+
+    /**
+     * The number of columns of a fixed grid, or zero.
+     */
+    private final int gridColumns;
+
+
+    /**
+     * This is the constructor.
+     *
+     * @param presetName The name of a preset, or {@literal null}.
+     * @param referencePixelDistance The distance between the centers of two regions.
+     * @param sampleSize The size of the sampling area around the center of a region.
+     * @param method The scaling method for test images.
+     * @param metric The distance metric.
+     */
+    private ComparisonProfile(
+            final String presetName,
+            final int referencePixelDistance,
+            final int sampleSize,
+            final Method method,
+            final DistanceMetric metric) {
+
+        this(presetName, referencePixelDistance, sampleSize, method, metric, GridLayout.SQUARE, 0);
+    }
+
+    /**
+     * This is the constructor.
+     *
+     * @param presetName The name of a preset, or {@literal null}.
+     * @param referencePixelDistance The distance between the centers of two regions.
+     * @param sampleSize The size of the sampling area around the center of a region.
+     * @param method The scaling method for test images.
+     * @param metric The distance metric.
+     * @param layout The layout of the grid of regions.
+     * @param columns The number of columns of a fixed grid, or zero.
+     */
+    private ComparisonProfile(
+            final String presetName,
+            final int referencePixelDistance,
+            final int sampleSize,
+            final Method method,
+            final DistanceMetric metric,
+            final GridLayout layout,
+            final int columns) {
+
+        this.name = presetName;
+        this.distanceBetweenReferencePixels = referencePixelDistance;
+        this.targetSampleSize = sampleSize;
+        this.scalingMethod = method;
+        this.distanceMetric = metric;
+        this.gridLayout = layout;
+        this.gridColumns = columns;
+    }
+
+
+    /**
+     * Create a custom profile.
+     *
+     * @param referencePixelDistance The distance between the centers of two regions in pixels of
+     * the reference. The smaller the distance, the more regions and the higher the quality.
+     * @param sampleSize The size of the sampling area around the center of a region; the area is
+     * twice as wide and high. It is reduced for an image, if the areas wouldn't fit into it.
+     * @param method The scaling method for test images.
+     * @param metric The distance metric.
+     * @return The profile.
+     * @throws InvalidArgumentException If the distance is lower than one, the sample size is lower
+     * than zero or the method or the metric is missing.
+     */
+    public static ComparisonProfile of(
+            final int referencePixelDistance,
+            final int sampleSize,
+            final Method method,
+            final DistanceMetric metric) throws InvalidArgumentException {
+
+        if (referencePixelDistance < 1) {
+            throw new InvalidArgumentException(
+                    "Distance between reference pixels has to be at least one.");
+        }
+        if (sampleSize < 0) {
+            throw new InvalidArgumentException("Sample size must be zero or higher.");
+        }
+        if (method == null || metric == null) {
+            throw new InvalidArgumentException("Scaling method and distance metric are required.");
+        }
+
+        return new ComparisonProfile(null, referencePixelDistance, sampleSize, method, metric);
+    }
+
+
+    /**
+     * Get a profile with the same settings, but a fixed grid of regions. The sampling areas keep
+     * the proportion of the sample size to the distance between reference pixels of this profile.
+     *
+     * @param columns The number of columns of regions. The number of rows follows from the
+     * aspect ratio of the reference.
+     * @return The profile.
+     * @throws InvalidArgumentException If the number of columns is lower than one.
+     * @see GridLayout#FIXED
+     */
+    public ComparisonProfile withFixedGrid(final int columns) throws InvalidArgumentException {
+
+        if (columns < 1) {
+            throw new InvalidArgumentException("Number of columns has to be at least one.");
+        }
+
+        return new ComparisonProfile(null, distanceBetweenReferencePixels, targetSampleSize,
+                scalingMethod, distanceMetric, GridLayout.FIXED, columns);
+    }
+
+    /**
+     * Get a profile with the same settings, but with as many rows of regions per distance between
+     * reference pixels of the height of the reference as there are columns per distance of its
+     * width.
+     *
+     * @return The profile.
+     * @see GridLayout#ASPECT_RATIO
+     */
+    public ComparisonProfile withAspectRatioGrid() {
+
+        return new ComparisonProfile(null, distanceBetweenReferencePixels, targetSampleSize,
+                scalingMethod, distanceMetric, GridLayout.ASPECT_RATIO, 0);
+    }
+
+
+    /**
+     * @return The distance between the centers of two regions in pixels of the reference.
+     */
+    public int getDistanceBetweenReferencePixels() {
+
+        return distanceBetweenReferencePixels;
+    }
+
+    /**
+     * @return The size of the sampling area around the center of a region.
+     */
+    public int getTargetSampleSize() {
+
+        return targetSampleSize;
+    }
+
+    /**
+     * @return The scaling method for test images.
+     */
+    public Method getScalingMethod() {
+
+        return scalingMethod;
+    }
+
+    /**
+     * @return The distance metric.
+     */
+    public DistanceMetric getDistanceMetric() {
+
+        return distanceMetric;
+    }
+
+    /**
+     * @return The layout of the grid of regions.
+     */
+    public GridLayout getGridLayout() {
+
+        return gridLayout;
+    }
+
+    /**
+     * @return The number of columns of a fixed grid, or zero, if the grid isn't fixed.
+     */
+    public int getGridColumns() {
+
+        return gridColumns;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+
+        if (!(other instanceof ComparisonProfile)) {
+            return false;
+        }
+        final ComparisonProfile profile = (ComparisonProfile) other;
+
+        return distanceBetweenReferencePixels == profile.distanceBetweenReferencePixels
+                && targetSampleSize == profile.targetSampleSize
+                && scalingMethod == profile.scalingMethod
+                && distanceMetric == profile.distanceMetric
+                && gridLayout == profile.gridLayout
+                && gridColumns == profile.gridColumns;
+    }
+
+    @Override
+    public int hashCode() {
+
+        int result = distanceBetweenReferencePixels;
+        result = HASH_MULTIPLIER * result + targetSampleSize;
+        result = HASH_MULTIPLIER * result + scalingMethod.hashCode();
+        result = HASH_MULTIPLIER * result + distanceMetric.hashCode();
+        result = HASH_MULTIPLIER * result + gridLayout.hashCode();
+        result = HASH_MULTIPLIER * result + gridColumns;
+
+        return result;
+    }
+
+    @Override
+    public String toString() {
+
+        if (name != null) {
+            return name;
+        }
+
+        return "ComparisonProfile[distanceBetweenReferencePixels="
+                + distanceBetweenReferencePixels + ", targetSampleSize=" + targetSampleSize
+                + ", scalingMethod=" + scalingMethod + ", distanceMetric=" + distanceMetric
+                + ", gridLayout=" + gridLayout + ", gridColumns=" + gridColumns + "]";
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+
+/**
+ * The detailed result of a comparison of two images. It holds everything computed during the
+ * comparison, so the same result can be checked against any number of thresholds without
+ * comparing the images again. A result is immutable.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ * @see ImageComparisonProcessor#compareDetailed(java.awt.image.BufferedImage,
+ * java.awt.image.BufferedImage)
+ */
+public final class ComparisonResult {
+
+
+    /**
+     * One hundred.
+     */
+    private static final int ONE_HUNDRED = 100;
+
+    /**
+     * The distance between the test image and the reference image.
+     */
+    private final double distance;
+
+    /**
+     * The maximum possible distance between the test image and the reference image.
+     */
+    private final double maxDistance;
+
+    /**
+     * The number of columns of reference regions.
+     */
+    private final int regionColumns;
+
+    /**
+     * The number of rows of reference regions.
+     */
+    private final int regionRows;
+
+    /**
+     * The time spent for calculating signatures in nanoseconds.
+     */
+    private final long signatureNanos;
+
+    /**
+     * The time spent for re-scaling the test image in nanoseconds.
+     */
+    private final long rescaleNanos;
+
+    /**
+     * The time spent for calculating the distance in nanoseconds.
+     */
+    private final long distanceNanos;
+
+
+    /**
+     * This is the constructor.
+     *
+     * @param distanceToReference The distance between the test image and the reference image.
+     * @param maxPossibleDistance The maximum possible distance between the two images.
+     * @param columns The number of columns of reference regions.
+     * @param rows The number of rows of reference regions.
+     * @param signatureTime The time spent for calculating signatures in nanoseconds.
+     * @param rescaleTime The time spent for re-scaling the test image in nanoseconds.
+     * @param distanceTime The time spent for calculating the distance in nanoseconds.
+     */
+    ComparisonResult(
+            final double distanceToReference,
+            final double maxPossibleDistance,
+            final int columns,
+            final int rows,
+            final long signatureTime,
+            final long rescaleTime,
+            final long distanceTime) {
+
+        this.distance = distanceToReference;
+        this.maxDistance = maxPossibleDistance;
+        this.regionColumns = columns;
+        this.regionRows = rows;
+        this.signatureNanos = signatureTime;
+        this.rescaleNanos = rescaleTime;
+        this.distanceNanos = distanceTime;
+    }
+
+
+    /**
+     * @return How much of the test image is identical to the reference image in per cent.
+     */
+    public double getPercentageOfEquality() {
+
+        return ONE_HUNDRED - ((distance / maxDistance) * ONE_HUNDRED);
+    }
+
+    /**
+     * @return {@literal true}, if the test image is
+     * {@link ImageComparisonProcessor#DEFAULT_DEFINITION_OF_EQUAL} per cent identical to the
+     * reference image.
+     */
+    public boolean isEqual() {
+
+        return getPercentageOfEquality() >= ImageComparisonProcessor.DEFAULT_DEFINITION_OF_EQUAL;
+    }
+
+    /**
+     * Check the result against a minimum percentage of equality.
+     *
+     * @param minEqualPercentage The per cent value definining whether or not the two images are to
+     * be considered equal.
+     * @return {@literal true}, if the test image is at least {@literal minEqualPercentage} per cent
+     * identical to the reference image.
+     * @throws InvalidArgumentException If {@literal minEqualPercentage} is lower than zero or
+     * higher than one hundred.
+     */
+    public boolean isEqual(final double minEqualPercentage) throws InvalidArgumentException {
+
+        SimpleImageComparisonProcessor.checkDefinitionOfEqual(minEqualPercentage);
+
+        return getPercentageOfEquality() >= minEqualPercentage;
+    }
+
+    /**
+     * @return The distance between the test image and the reference image.
+     */
+    public double getDistance() {
+
+        return distance;
+    }
+
+    /**
+     * @return The maximum possible distance between the test image and the reference image.
+     */
+    public double getMaxDistance() {
+
+        return maxDistance;
+    }
+
+    /**
+     * @return The number of reference regions in one dimension. For grids, which aren't square,
+     * this is the number of columns.
+     */
+    public int getRegionsInOneDimension() {
+
+        return regionColumns;
+    }
+
+    /**
+     * @return The number of columns of reference regions.
+     */
+    public int getRegionColumns() {
+
+        return regionColumns;
+    }
+
+    /**
+     * @return The number of rows of reference regions.
+     */
+    public int getRegionRows() {
+
+        return regionRows;
+    }
+
+    /**
+     * @return The time spent for calculating signatures in nanoseconds. Signatures computed before
+     * the comparison are not included.
+     */
+    public long getSignatureNanos() {
+
+        return signatureNanos;
+    }
+
+    /**
+     * @return The time spent for re-scaling the test image in nanoseconds.
+     */
+    public long getRescaleNanos() {
+
+        return rescaleNanos;
+    }
+
+    /**
+     * @return The time spent for calculating the distance in nanoseconds.
+     */
+    public long getDistanceNanos() {
+
+        return distanceNanos;
+    }
+
+    @Override
+    public String toString() {
+
+        return "ComparisonResult[percentageOfEquality=" + getPercentageOfEquality()
+                + ", distance=" + distance + ", maxDistance=" + maxDistance
+                + ", regionColumns=" + regionColumns + ", regionRows=" + regionRows + "]";
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * A comparison listener, which counts the phases of all comparisons and sums up their timings.
+ * All counters can be read at any time, also while comparisons are running.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ */
+public final class ComparisonStatistics implements ComparisonListener {
+
+
+    /**
+     * Number of calculated signatures.
+     */
+    private final AtomicLong signatureCount = new AtomicLong();
+
+    /**
+     * Time spent for calculating signatures in nanoseconds.
+     */
+    private final AtomicLong signatureNanos = new AtomicLong();
+
+    /**
+     * Number of re-scaled test images.
+     */
+    private final AtomicLong rescaleCount = new AtomicLong();
+
+    /**
+     * Time spent for re-scaling test images in nanoseconds.
+     */
+    private final AtomicLong rescaleNanos = new AtomicLong();
+
+    /**
+     * Number of comparisons stopped early.
+     */
+    private final AtomicLong earlyExitCount = new AtomicLong();
+
+    /**
+     * Time spent for comparisons stopped early in nanoseconds.
+     */
+    private final AtomicLong earlyExitNanos = new AtomicLong();
+
+    /**
+     * Number of sampled bands of encoded images decoded tile by tile.
+     */
+    private final AtomicLong bandCount = new AtomicLong();
+
+    /**
+     * Number of calculated distances, i.e. of comparisons.
+     */
+    private final AtomicLong distanceCount = new AtomicLong();
+
+    /**
+     * Time spent for calculating distances in nanoseconds.
+     */
+    private final AtomicLong distanceNanos = new AtomicLong();
+
+    /**
+     * Number of comparisons failed because of an invalid argument.
+     */
+    private final AtomicLong invalidArgumentCount = new AtomicLong();
+
+
+    @Override
+    public boolean isEnabled() {
+
+        return true;
+    }
+
+    @Override
+    public void signatureCalculated(
+            final int imageWidth,
+            final int imageHeight,
+            final int refRegionsInOneDimension,
+            final int sampleSize,
+            final long nanos) {
+
+        signatureCount.incrementAndGet();
+        signatureNanos.addAndGet(nanos);
+    }
+
+    @Override
+    public void testImageRescaled(final int imageWidth, final int imageHeight, final long nanos) {
+
+        rescaleCount.incrementAndGet();
+        rescaleNanos.addAndGet(nanos);
+    }
+
+    @Override
+    public void comparisonStoppedEarly(
+            final int regionsCompared,
+            final int regions,
+            final long nanos) {
+
+        earlyExitCount.incrementAndGet();
+        earlyExitNanos.addAndGet(nanos);
+    }
+
+    @Override
+    public void bandSampled(
+            final int regionsSampled,
+            final int regions,
+            final double distance,
+            final double maxDistance,
+            final long nanos) {
+
+        bandCount.incrementAndGet();
+    }
+
+    @Override
+    public void distanceCalculated(
+            final double distance,
+            final double maxDistance,
+            final double percentageOfEquality,
+            final long nanos) {
+
+        distanceCount.incrementAndGet();
+        distanceNanos.addAndGet(nanos);
+    }
+
+    @Override
+    public void invalidArgument(final InvalidArgumentException exception) {
+
+        invalidArgumentCount.incrementAndGet();
+    }
+
+    /**
+     * @return The number of calculated signatures.
+     */
+    public long getSignatureCount() {
+
+        return signatureCount.get();
+    }
+
+    /**
+     * @return The time spent for calculating signatures in nanoseconds.
+     */
+    public long getSignatureNanos() {
+
+        return signatureNanos.get();
+    }
+
+    /**
+     * @return The number of re-scaled test images.
+     */
+    public long getRescaleCount() {
+
+        return rescaleCount.get();
+    }
+
+    /**
+     * @return The time spent for re-scaling test images in nanoseconds.
+     */
+    public long getRescaleNanos() {
+
+        return rescaleNanos.get();
+    }
+
+    /**
+     * @return The number of comparisons stopped early.
+     */
+    public long getEarlyExitCount() {
+
+        return earlyExitCount.get();
+    }
+
+    /**
+     * @return The time spent for comparisons stopped early in nanoseconds.
+     */
+    public long getEarlyExitNanos() {
+
+        return earlyExitNanos.get();
+    }
+
+    /**
+     * @return The number of sampled bands of encoded images decoded tile by tile.
+     */
+    public long getBandCount() {
+
+        return bandCount.get();
+    }
+
+    /**
+     * @return The number of calculated distances, i.e. of comparisons.
+     */
+    public long getDistanceCount() {
+
+        return distanceCount.get();
+    }
+
+    /**
+     * @return The time spent for calculating distances in nanoseconds.
+     */
+    public long getDistanceNanos() {
+
+        return distanceNanos.get();
+    }
+
+    /**
+     * @return The number of comparisons failed because of an invalid argument.
+     */
+    public long getInvalidArgumentCount() {
+
+        return invalidArgumentCount.get();
+    }
+}
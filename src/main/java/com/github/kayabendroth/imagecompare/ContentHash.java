@@ -0,0 +1,194 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+
+
+/**
+ * Hashes the pixel data of an image, so images with the same content share the same cache key.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ */
+final class ContentHash {
+
+
+    /**
+     * The offset basis of the 64 bit FNV-1a hash.
+     */
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    /**
+     * The prime of the 64 bit FNV-1a hash.
+     */
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * The mask for an unsigned short.
+     */
+    private static final int SHORT_MASK = 0xffff;
+
+    /**
+     * The mask for an unsigned byte.
+     */
+    private static final int BYTE_MASK = 0xff;
+
+
+    /**
+     * This is a utility class.
+     */
+    private ContentHash() {
+
+    }
+
+
+    /**
+     * Create the cache key for the content of an image.
+     *
+     * @param image The image.
+     * @return A key, which is equal for images of the same size and type and the same colors.
+     */
+    static Object keyOf(final BufferedImage image) {
+
+        return new Key(image.getWidth(), image.getHeight(), image.getType(), hash(image));
+    }
+
+    /**
+     * Hash the pixel data of an image row by row, in the transfer type of its raster. Rows are
+     * read through the raster, so sub-images are hashed by their own pixels only. The palette of
+     * indexed images is hashed first, as the same indices mean different colors under different
+     * palettes. Images of a custom type are hashed by their converted RGB values, as their color
+     * model isn't implied by the type.
+     *
+     * @param image The image.
+     * @return The 64 bit FNV-1a hash of the pixel data.
+     */
+    static long hash(final BufferedImage image) {
+
+        final Raster raster = image.getRaster();
+        final int width = raster.getWidth();
+        final int minX = raster.getMinX();
+        final int minY = raster.getMinY();
+        long hash = FNV_OFFSET_BASIS;
+        if (image.getColorModel() instanceof IndexColorModel) {
+            final IndexColorModel palette = (IndexColorModel) image.getColorModel();
+            final int[] colors = new int[palette.getMapSize()];
+            palette.getRGBs(colors);
+            for (final int color : colors) {
+                hash = (hash ^ color) * FNV_PRIME;
+            }
+        }
+        final boolean custom = image.getType() == BufferedImage.TYPE_CUSTOM;
+        Object row = null;
+        for (int y = 0; y < raster.getHeight(); y++) {
+            if (!custom) {
+                row = raster.getDataElements(minX, minY + y, width, 1, row);
+            }
+            if (row instanceof int[]) {
+                for (final int value : (int[]) row) {
+                    hash = (hash ^ value) * FNV_PRIME;
+                }
+            } else if (row instanceof byte[]) {
+                for (final byte value : (byte[]) row) {
+                    hash = (hash ^ (value & BYTE_MASK)) * FNV_PRIME;
+                }
+            } else if (row instanceof short[]) {
+                for (final short value : (short[]) row) {
+                    hash = (hash ^ (value & SHORT_MASK)) * FNV_PRIME;
+                }
+            } else {
+                // Custom types and floating point rasters fall back to the converted RGB values.
+                for (int x = 0; x < width; x++) {
+                    hash = (hash ^ image.getRGB(x, y)) * FNV_PRIME;
+                }
+            }
+        }
+
+        return hash;
+    }
+
+
+    /**
+     * The cache key for the content of an image.
+     */
+    private static final class Key {
+
+        /**
+         * The width of the image.
+         */
+        private final int width;
+
+        /**
+         * The height of the image.
+         */
+        private final int height;
+
+        /**
+         * The type of the image.
+         */
+        private final int type;
+
+        /**
+         * The hash of the pixel data.
+         */
+        private final long hash;
+
+
+        /**
+         * This is the constructor.
+         *
+         * @param imageWidth The width of the image.
+         * @param imageHeight The height of the image.
+         * @param imageType The type of the image.
+         * @param contentHash The hash of the pixel data.
+         */
+        Key(final int imageWidth, final int imageHeight, final int imageType,
+                final long contentHash) {
+
+            this.width = imageWidth;
+            this.height = imageHeight;
+            this.type = imageType;
+            this.hash = contentHash;
+        }
+
+
+        @Override
+        public boolean equals(final Object other) {
+
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) other;
+
+            return width == key.width && height == key.height && type == key.type
+                    && hash == key.hash;
+        }
+
+        @Override
+        public int hashCode() {
+
+            return (int) (hash ^ (hash >>> Integer.SIZE));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.inject.Provider;
+
+
+/**
+ * Provides the default executor comparisons are run on: a fixed pool of daemon threads with one
+ * thread per available processor. There is a single pool per class loader, shared by all
+ * injectors, which is created when the first injector asks for it. Its threads are started on
+ * the first comparison run on it. Daemon threads don't keep the JVM alive, so the pool lives as
+ * long as the library and nobody has to, or may, shut it down.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ */
+final class DefaultExecutorServiceProvider implements Provider<ExecutorService> {
+
+
+    /**
+     * The prefix of the names of the threads in the pool.
+     */
+    private static final String THREAD_NAME_PREFIX = "imagecompare-";
+
+
+    @Override
+    public ExecutorService get() {
+
+        return SharedPool.INSTANCE;
+    }
+
+    /**
+     * Create a factory for daemon threads, which are named after this library.
+     *
+     * @return The thread factory.
+     */
+    static ThreadFactory newDaemonThreadFactory() {
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+
+                final Thread thread = new Thread(runnable,
+                        THREAD_NAME_PREFIX + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+
+    /**
+     * Holds the shared pool, which is created when this class is first accessed.
+     */
+    private static final class SharedPool {
+
+        /**
+         * The pool shared by all injectors.
+         */
+        static final ExecutorService INSTANCE = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(), newDaemonThreadFactory());
+
+
+        /**
+         * This is a holder class, which is not to be instantiated.
+         */
+        private SharedPool() {
+        }
+    }
+}
@@ -0,0 +1,391 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+
+/**
+ * How the distance between two signatures is measured. The distance of two signatures is the
+ * sum of the distances between the colors of their regions in the same positions.
+ * <p>
+ * Every metric sums its distances in a plain loop over both signature arrays, with the distance
+ * between two regions written out inline, so the JIT compiler can unroll and, for the integer
+ * metrics, vectorize it. The percentage of equality is relative to the maximum distance of the
+ * metric, so thresholds tuned for one metric don't carry over to another one.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ */
+public enum DistanceMetric {
+
+    /**
+     * The Euclidean distance between the RGB values of two regions. This is the default.
+     */
+    EUCLIDEAN {
+
+        @Override
+        public double regionDistance(final int rgb1, final int rgb2) {
+
+            final int dr = ((rgb1 >> RED_POSITION) & MAX_RGB_VALUE)
+                    - ((rgb2 >> RED_POSITION) & MAX_RGB_VALUE);
+            final int dg = ((rgb1 >> GREEN_POSITION) & MAX_RGB_VALUE)
+                    - ((rgb2 >> GREEN_POSITION) & MAX_RGB_VALUE);
+            final int db = (rgb1 & MAX_RGB_VALUE) - (rgb2 & MAX_RGB_VALUE);
+
+            return Math.sqrt(dr * dr + dg * dg + db * db);
+        }
+
+        @Override
+        public double maxRegionDistance() {
+
+            return Math.sqrt(PIXEL_VECTOR_SIZE * MAX_RGB_VALUE * MAX_RGB_VALUE);
+        }
+
+        @Override
+        public double distance(
+                final int[] source,
+                final int[] target,
+                final int totalNumberOfRefRegions) {
+
+            double dist = 0;
+            for (int i = 0; i < totalNumberOfRefRegions; i++) {
+                final int rgb1 = source[i];
+                final int rgb2 = target[i];
+                final int dr = ((rgb1 >> RED_POSITION) & MAX_RGB_VALUE)
+                        - ((rgb2 >> RED_POSITION) & MAX_RGB_VALUE);
+                final int dg = ((rgb1 >> GREEN_POSITION) & MAX_RGB_VALUE)
+                        - ((rgb2 >> GREEN_POSITION) & MAX_RGB_VALUE);
+                final int db = (rgb1 & MAX_RGB_VALUE) - (rgb2 & MAX_RGB_VALUE);
+                dist += Math.sqrt(dr * dr + dg * dg + db * db);
+            }
+
+            return dist;
+        }
+    },
+
+    /**
+     * The squared Euclidean distance between the RGB values of two regions. It needs no square
+     * root and is summed in integers, which makes it the cheapest metric. Large differences of a
+     * few regions weigh much more than small differences of many regions.
+     */
+    SQUARED_EUCLIDEAN {
+
+        @Override
+        public double regionDistance(final int rgb1, final int rgb2) {
+
+            final int dr = ((rgb1 >> RED_POSITION) & MAX_RGB_VALUE)
+                    - ((rgb2 >> RED_POSITION) & MAX_RGB_VALUE);
+            final int dg = ((rgb1 >> GREEN_POSITION) & MAX_RGB_VALUE)
+                    - ((rgb2 >> GREEN_POSITION) & MAX_RGB_VALUE);
+            final int db = (rgb1 & MAX_RGB_VALUE) - (rgb2 & MAX_RGB_VALUE);
+
+            return dr * dr + dg * dg + db * db;
+        }
+
+        @Override
+        public double maxRegionDistance() {
+
+            return PIXEL_VECTOR_SIZE * MAX_RGB_VALUE * MAX_RGB_VALUE;
+        }
+
+        @Override
+        public double distance(
+                final int[] source,
+                final int[] target,
+                final int totalNumberOfRefRegions) {
+
+            long dist = 0;
+            for (int i = 0; i < totalNumberOfRefRegions; i++) {
+                final int rgb1 = source[i];
+                final int rgb2 = target[i];
+                final int dr = ((rgb1 >> RED_POSITION) & MAX_RGB_VALUE)
+                        - ((rgb2 >> RED_POSITION) & MAX_RGB_VALUE);
+                final int dg = ((rgb1 >> GREEN_POSITION) & MAX_RGB_VALUE)
+                        - ((rgb2 >> GREEN_POSITION) & MAX_RGB_VALUE);
+                final int db = (rgb1 & MAX_RGB_VALUE) - (rgb2 & MAX_RGB_VALUE);
+                dist += dr * dr + dg * dg + db * db;
+            }
+
+            return dist;
+        }
+    },
+
+    /**
+     * The Manhattan (L1) distance between the RGB values of two regions, the sum of the absolute
+     * differences of their components. It needs no square root and is summed in integers.
+     */
+    MANHATTAN {
+
+        @Override
+        public double regionDistance(final int rgb1, final int rgb2) {
+
+            return Math.abs(((rgb1 >> RED_POSITION) & MAX_RGB_VALUE)
+                    - ((rgb2 >> RED_POSITION) & MAX_RGB_VALUE))
+                    + Math.abs(((rgb1 >> GREEN_POSITION) & MAX_RGB_VALUE)
+                    - ((rgb2 >> GREEN_POSITION) & MAX_RGB_VALUE))
+                    + Math.abs((rgb1 & MAX_RGB_VALUE) - (rgb2 & MAX_RGB_VALUE));
+        }
+
+        @Override
+        public double maxRegionDistance() {
+
+            return PIXEL_VECTOR_SIZE * MAX_RGB_VALUE;
+        }
+
+        @Override
+        public double distance(
+                final int[] source,
+                final int[] target,
+                final int totalNumberOfRefRegions) {
+
+            long dist = 0;
+            for (int i = 0; i < totalNumberOfRefRegions; i++) {
+                final int rgb1 = source[i];
+                final int rgb2 = target[i];
+                dist += Math.abs(((rgb1 >> RED_POSITION) & MAX_RGB_VALUE)
+                        - ((rgb2 >> RED_POSITION) & MAX_RGB_VALUE))
+                        + Math.abs(((rgb1 >> GREEN_POSITION) & MAX_RGB_VALUE)
+                        - ((rgb2 >> GREEN_POSITION) & MAX_RGB_VALUE))
+                        + Math.abs((rgb1 & MAX_RGB_VALUE) - (rgb2 & MAX_RGB_VALUE));
+            }
+
+            return dist;
+        }
+    },
+
+    /**
+     * The Euclidean distance between the Y'CbCr values of two regions, as defined for JPEG by
+     * ITU-R BT.601. The conversion separates luma from chroma: a change of brightness shows up in
+     * the luma component, weighted by how much each RGB component adds to it, and a change of
+     * color in the two chroma components. It is a linear transform of RGB, not a perceptually
+     * uniform color space like CIELAB, so it is applied to the differences of the RGB components
+     * directly.
+     */
+    YCBCR {
+
+        @Override
+        public double regionDistance(final int rgb1, final int rgb2) {
+
+            return yCbCrDistance(((rgb1 >> RED_POSITION) & MAX_RGB_VALUE)
+                    - ((rgb2 >> RED_POSITION) & MAX_RGB_VALUE),
+                    ((rgb1 >> GREEN_POSITION) & MAX_RGB_VALUE)
+                    - ((rgb2 >> GREEN_POSITION) & MAX_RGB_VALUE),
+                    (rgb1 & MAX_RGB_VALUE) - (rgb2 & MAX_RGB_VALUE));
+        }
+
+        @Override
+        public double maxRegionDistance() {
+
+            // The distance is convex, so its maximum is at a corner of the cube of differences.
+            double max = 0;
+            for (int corner = 0; corner < CUBE_CORNERS; corner++) {
+                max = Math.max(max, yCbCrDistance(cornerComponent(corner, RED_CORNER_BIT),
+                        cornerComponent(corner, GREEN_CORNER_BIT),
+                        cornerComponent(corner, BLUE_CORNER_BIT)));
+            }
+
+            return max;
+        }
+
+        @Override
+        public double distance(
+                final int[] source,
+                final int[] target,
+                final int totalNumberOfRefRegions) {
+
+            double dist = 0;
+            for (int i = 0; i < totalNumberOfRefRegions; i++) {
+                final int rgb1 = source[i];
+                final int rgb2 = target[i];
+                final int dr = ((rgb1 >> RED_POSITION) & MAX_RGB_VALUE)
+                        - ((rgb2 >> RED_POSITION) & MAX_RGB_VALUE);
+                final int dg = ((rgb1 >> GREEN_POSITION) & MAX_RGB_VALUE)
+                        - ((rgb2 >> GREEN_POSITION) & MAX_RGB_VALUE);
+                final int db = (rgb1 & MAX_RGB_VALUE) - (rgb2 & MAX_RGB_VALUE);
+                final double dy = Y_RED * dr + Y_GREEN * dg + Y_BLUE * db;
+                final double dcb = CB_RED * dr + CB_GREEN * dg + CB_BLUE * db;
+                final double dcr = CR_RED * dr + CR_GREEN * dg + CR_BLUE * db;
+                dist += Math.sqrt(dy * dy + dcb * dcb + dcr * dcr);
+            }
+
+            return dist;
+        }
+    };
+
+
+    /**
+     * The size of a pixel vector is three.
+     */
+    private static final int PIXEL_VECTOR_SIZE = 3;
+
+    /**
+     * The maximum value for RGB is 255.
+     */
+    private static final int MAX_RGB_VALUE = 255;
+
+    /**
+     * Bit position of the red component in a packed RGB value.
+     */
+    private static final int RED_POSITION = 16;
+
+    /**
+     * Bit position of the green component in a packed RGB value.
+     */
+    private static final int GREEN_POSITION = 8;
+
+    /**
+     * Weight of red for luma.
+     */
+    private static final double Y_RED = 0.299;
+
+    /**
+     * Weight of green for luma.
+     */
+    private static final double Y_GREEN = 0.587;
+
+    /**
+     * Weight of blue for luma.
+     */
+    private static final double Y_BLUE = 0.114;
+
+    /**
+     * Weight of red for the blue-difference chroma.
+     */
+    private static final double CB_RED = -0.168736;
+
+    /**
+     * Weight of green for the blue-difference chroma.
+     */
+    private static final double CB_GREEN = -0.331264;
+
+    /**
+     * Weight of blue for the blue-difference chroma.
+     */
+    private static final double CB_BLUE = 0.5;
+
+    /**
+     * Weight of red for the red-difference chroma.
+     */
+    private static final double CR_RED = 0.5;
+
+    /**
+     * Weight of green for the red-difference chroma.
+     */
+    private static final double CR_GREEN = -0.418688;
+
+    /**
+     * Weight of blue for the red-difference chroma.
+     */
+    private static final double CR_BLUE = -0.081312;
+
+    /**
+     * The number of corners of the cube of differences of RGB components.
+     */
+    private static final int CUBE_CORNERS = 8;
+
+    /**
+     * The bit of a corner of the cube telling whether the red difference is positive.
+     */
+    private static final int RED_CORNER_BIT = 4;
+
+    /**
+     * The bit of a corner of the cube telling whether the green difference is positive.
+     */
+    private static final int GREEN_CORNER_BIT = 2;
+
+    /**
+     * The bit of a corner of the cube telling whether the blue difference is positive.
+     */
+    private static final int BLUE_CORNER_BIT = 1;
+
+
+    /**
+     * Calculate the distance between the colors of two regions.
+     *
+     * @param rgb1 The first color, packed as {@literal 0xRRGGBB}.
+     * @param rgb2 The second color, packed as {@literal 0xRRGGBB}.
+     * @return The distance.
+     */
+    public abstract double regionDistance(int rgb1, int rgb2);
+
+    /**
+     * @return The largest distance possible between the colors of any two regions.
+     */
+    public abstract double maxRegionDistance();
+
+    /**
+     * Sum the distances between the regions of two signatures. Every metric implements this with a
+     * loop of its own, in which the distance between two regions is inlined.
+     *
+     * @param source The source signature array of packed RGB values.
+     * @param target The target signature array of packed RGB values.
+     * @param totalNumberOfRefRegions The number of regions to compare, which both arrays have to
+     * hold at least.
+     * @return The distance between the signatures.
+     */
+    public abstract double distance(int[] source, int[] target, int totalNumberOfRefRegions);
+
+    /**
+     * Calculate the maximum distance between two signatures depending on the number of regions.
+     *
+     * @param totalNumberOfRefRegions The number of regions of the signatures.
+     * @return The maximum distance possible or -1, if the number of regions is below zero.
+     */
+    public double maxDistance(final int totalNumberOfRefRegions) {
+
+        if (totalNumberOfRefRegions < 0) { return -1; }
+
+        return totalNumberOfRefRegions * maxRegionDistance();
+    }
+
+    /**
+     * Calculate the Euclidean distance in Y'CbCr for the differences of the RGB components of two
+     * colors.
+     *
+     * @param dr The difference of the red components.
+     * @param dg The difference of the green components.
+     * @param db The difference of the blue components.
+     * @return The distance.
+     */
+    private static double yCbCrDistance(final int dr, final int dg, final int db) {
+
+        final double dy = Y_RED * dr + Y_GREEN * dg + Y_BLUE * db;
+        final double dcb = CB_RED * dr + CB_GREEN * dg + CB_BLUE * db;
+        final double dcr = CR_RED * dr + CR_GREEN * dg + CR_BLUE * db;
+
+        return Math.sqrt(dy * dy + dcb * dcb + dcr * dcr);
+    }
+
+    /**
+     * Get a component of a corner of the cube of differences of RGB components.
+     *
+     * @param corner The corner, one bit per component.
+     * @param bit The bit of the component.
+     * @return The largest difference, if the bit is set, the smallest one otherwise.
+     */
+    private static int cornerComponent(final int corner, final int bit) {
+
+        if ((corner & bit) != 0) {
+            return MAX_RGB_VALUE;
+        }
+
+        return -MAX_RGB_VALUE;
+    }
+}
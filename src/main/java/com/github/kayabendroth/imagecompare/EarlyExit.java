@@ -0,0 +1,58 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+
+/**
+ * Whether and how a comparison with a minimum percentage of equality stops early, once the
+ * distance between the images has exceeded what that percentage allows. Only the methods
+ * returning {@literal boolean} stop early; detailed results always cover every region.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ */
+public enum EarlyExit {
+
+    /**
+     * Always sample every region of the test image. This is the default.
+     */
+    OFF,
+
+    /**
+     * Sample the regions of the test image row by row and stop as soon as the distance budget is
+     * exceeded.
+     */
+    ROW_ORDER,
+
+    /**
+     * Sample a coarse grid of regions spread over the whole test image first and refine it step
+     * by step, so differences anywhere in the image exceed the budget after a few regions. Stop as
+     * soon as the distance budget is exceeded.
+     * <p>
+     * This is a coarse-to-fine comparison over a pyramid of grids: every step samples every n-th
+     * region of the full grid, halving n, and reuses the regions of the coarser steps. As the
+     * distance of some regions is a lower bound of the distance of all of them, clearly different
+     * images are told apart at a coarse step and stopping never tells equal images different.
+     * Telling images equal takes every region, as any region not sampled yet may hold a change,
+     * but costs no more than sampling the full grid right away.
+     */
+    COARSE_TO_FINE
+}
@@ -0,0 +1,54 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+
+/**
+ * How the grid of regions of a reference signature is laid out.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ * @see ComparisonProfile
+ */
+public enum GridLayout {
+
+    /**
+     * One column of regions per distance between reference pixels of the width of the reference
+     * and as many rows as columns. The number of regions grows with the square of the width. This
+     * is the default.
+     */
+    SQUARE,
+
+    /**
+     * A fixed number of columns, whatever the size of the reference, and as many rows as keep the
+     * regions about square. The sampling areas grow with the regions, keeping their proportion to
+     * them. So the cost of a comparison is bounded and signatures of the same image at different
+     * resolutions can be compared with each other.
+     */
+    FIXED,
+
+    /**
+     * One column of regions per distance between reference pixels of the width of the reference
+     * and one row per distance of its height. The number of regions grows with the number of
+     * pixels, so tall captures of whole pages are sampled as densely as square images.
+     */
+    ASPECT_RATIO
+}
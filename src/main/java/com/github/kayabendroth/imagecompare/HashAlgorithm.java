@@ -0,0 +1,49 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+
+/**
+ * The algorithms to compute a 64 bit perceptual hash of an image with.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ * @see PerceptualHash
+ */
+public enum HashAlgorithm {
+
+    /**
+     * Average hash: one bit per cell of an 8x8 grid, set if the cell is brighter than the mean.
+     */
+    AVERAGE,
+
+    /**
+     * Difference hash: one bit per cell of an 8x8 grid, set if the cell is brighter than its right
+     * neighbour. Robust against changes of brightness and contrast.
+     */
+    DIFFERENCE,
+
+    /**
+     * Perceptual hash: one bit per low frequency of the discrete cosine transform of a 32x32 grid,
+     * set if the coefficient is above the median. The most robust, but the most expensive one.
+     */
+    PERCEPTUAL
+}
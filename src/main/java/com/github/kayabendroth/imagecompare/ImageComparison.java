@@ -21,6 +21,14 @@
 package com.github.kayabendroth.imagecompare;
 
 import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageInputStream;
 
 import com.google.inject.Inject;
 
@@ -68,4 +76,209 @@ public class ImageComparison implements ImageComparisonService {
         final boolean result = proc.compare(testImage, referenceImage, minEqualPercentage);
         return result;
     }
+
+    @Override
+    public final ImageSignature createSignature(final BufferedImage image) {
+
+        return proc.createSignature(image);
+    }
+
+    @Override
+    public final ImageSignature createSignature(final BufferedImage image, final ImageMask mask)
+        throws InvalidArgumentException {
+
+        return proc.createSignature(image, mask);
+    }
+
+    @Override
+    public final ComparisonResult compareDetailed(
+            final BufferedImage testImage,
+            final BufferedImage referenceImage,
+            final ImageMask mask) throws InvalidArgumentException {
+
+        return proc.compareDetailed(testImage, proc.createSignature(referenceImage, mask));
+    }
+
+    @Override
+    public final boolean compareWithSignature(final BufferedImage testImage,
+            final ImageSignature referenceSignature) {
+
+        final boolean result = proc.compareWithSignature(testImage, referenceSignature);
+        return result;
+    }
+
+    @Override
+    public final boolean compareWithSignature(
+            final BufferedImage testImage,
+            final ImageSignature referenceSignature,
+            final double minEqualPercentage) throws InvalidArgumentException {
+
+        final boolean result =
+                proc.compareWithSignature(testImage, referenceSignature, minEqualPercentage);
+        return result;
+    }
+
+    @Override
+    public final boolean compareSignatures(final ImageSignature testSignature,
+            final ImageSignature referenceSignature) {
+
+        final boolean result = proc.compareSignatures(testSignature, referenceSignature);
+        return result;
+    }
+
+    @Override
+    public final boolean compareSignatures(
+            final ImageSignature testSignature,
+            final ImageSignature referenceSignature,
+            final double minEqualPercentage) throws InvalidArgumentException {
+
+        final boolean result =
+                proc.compareSignatures(testSignature, referenceSignature, minEqualPercentage);
+        return result;
+    }
+
+    @Override
+    public final ComparisonResult compareDetailed(
+            final BufferedImage testImage,
+            final BufferedImage referenceImage) {
+
+        return proc.compareDetailed(testImage, referenceImage);
+    }
+
+    @Override
+    public final ComparisonResult compareDetailed(
+            final BufferedImage testImage,
+            final ImageSignature referenceSignature) {
+
+        return proc.compareDetailed(testImage, referenceSignature);
+    }
+
+    @Override
+    public final ComparisonResult compareDetailed(
+            final ImageSignature testSignature,
+            final ImageSignature referenceSignature) throws InvalidArgumentException {
+
+        return proc.compareDetailed(testSignature, referenceSignature);
+    }
+
+    @Override
+    public final RegionDiff compareRegions(
+            final BufferedImage testImage,
+            final BufferedImage referenceImage) {
+
+        return proc.compareRegions(testImage, proc.createSignature(referenceImage));
+    }
+
+    @Override
+    public final RegionDiff compareRegions(
+            final BufferedImage testImage,
+            final ImageSignature referenceSignature) {
+
+        return proc.compareRegions(testImage, referenceSignature);
+    }
+
+    @Override
+    public final RegionDiff compareRegions(
+            final ImageSignature testSignature,
+            final ImageSignature referenceSignature) throws InvalidArgumentException {
+
+        return proc.compareRegions(testSignature, referenceSignature);
+    }
+
+    @Override
+    public final List<ReferenceMatch> compareAll(
+            final BufferedImage testImage,
+            final List<ImageSignature> referenceSignatures) {
+
+        return proc.compareAll(testImage, referenceSignatures);
+    }
+
+    @Override
+    public final List<ReferenceMatch> compareAllImages(
+            final BufferedImage testImage,
+            final List<BufferedImage> referenceImages) {
+
+        final List<ImageSignature> referenceSignatures =
+                new ArrayList<ImageSignature>(referenceImages.size());
+        for (final BufferedImage referenceImage : referenceImages) {
+            referenceSignatures.add(proc.createSignature(referenceImage));
+        }
+
+        return proc.compareAll(testImage, referenceSignatures);
+    }
+
+    @Override
+    public final ImageSignature createSignature(final InputStream input) throws IOException {
+
+        final ImageInputStream iis = openImageInputStream(input);
+        try {
+            return proc.createSignature(iis);
+        } finally {
+            iis.close();
+        }
+    }
+
+    @Override
+    public final ImageSignature createSignature(final File file) throws IOException {
+
+        final ImageInputStream iis = openImageInputStream(file);
+        try {
+            return proc.createSignature(iis);
+        } finally {
+            iis.close();
+        }
+    }
+
+    @Override
+    public final ComparisonResult compareDetailed(
+            final InputStream testInput,
+            final ImageSignature referenceSignature) throws IOException {
+
+        final ImageInputStream iis = openImageInputStream(testInput);
+        try {
+            return proc.compareDetailed(iis, referenceSignature);
+        } finally {
+            iis.close();
+        }
+    }
+
+    @Override
+    public final ComparisonResult compareDetailed(
+            final File testFile,
+            final ImageSignature referenceSignature) throws IOException {
+
+        final ImageInputStream iis = openImageInputStream(testFile);
+        try {
+            return proc.compareDetailed(iis, referenceSignature);
+        } finally {
+            iis.close();
+        }
+    }
+
+    @Override
+    public final ImageComparisonService withProfile(final ComparisonProfile profile) {
+
+        final ImageComparisonProcessor processor = proc.withProfile(profile);
+        if (processor == proc) { return this; }
+
+        return new ImageComparison(processor);
+    }
+
+    /**
+     * Open an image input stream for a file or an input stream. Closing the image input stream
+     * doesn't close an underlying input stream.
+     *
+     * @param source The file or input stream.
+     * @return The image input stream.
+     * @throws IOException If no image input stream can be created for the source.
+     */
+    private static ImageInputStream openImageInputStream(final Object source) throws IOException {
+
+        final ImageInputStream iis = ImageIO.createImageInputStream(source);
+        if (iis == null) {
+            throw new IOException("Can't create an image input stream for " + source + ".");
+        }
+
+        return iis;
+    }
 }
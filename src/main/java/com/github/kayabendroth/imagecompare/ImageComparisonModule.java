@@ -20,7 +20,11 @@
  */
 package com.github.kayabendroth.imagecompare;
 
+import java.util.concurrent.ExecutorService;
+
 import com.google.inject.AbstractModule;
+import com.google.inject.Singleton;
+import com.google.inject.name.Names;
 
 
 /**
@@ -32,10 +36,279 @@ import com.google.inject.AbstractModule;
 public class ImageComparisonModule extends AbstractModule {
 
 
+    /**
+     * The name of the binding of the {@link ExecutorService} comparisons are run on.
+     */
+    public static final String COMPARISON_EXECUTOR = "imagecompare.executor";
+
+    /**
+     * The name of the binding of the bounded {@link ExecutorService} asynchronous comparisons are
+     * run on.
+     */
+    public static final String ASYNC_EXECUTOR = "imagecompare.asyncExecutor";
+
+    /**
+     * The name of the binding of the maximum number of asynchronous comparisons waiting for a
+     * thread of the default asynchronous executor.
+     */
+    public static final String ASYNC_QUEUE_CAPACITY = "imagecompare.asyncQueueCapacity";
+
+    /**
+     * The default maximum number of asynchronous comparisons waiting for a thread.
+     */
+    public static final int DEFAULT_ASYNC_QUEUE_CAPACITY = 64;
+
+    /**
+     * The name of the binding of the maximum number of decoded pixels of a tile of an encoded
+     * image.
+     */
+    public static final String TILE_PIXELS = "imagecompare.tilePixels";
+
+    /**
+     * The default maximum number of decoded pixels of a tile of an encoded image, 16 MiB of
+     * packed RGB values.
+     */
+    public static final int DEFAULT_TILE_PIXELS = 1 << 22;
+
+    /**
+     * The name of the binding of the processor doing the actual work behind the
+     * {@link CachingImageComparisonProcessor}.
+     */
+    public static final String UNCACHED_PROCESSOR = "imagecompare.uncachedProcessor";
+
+
+    /**
+     * The listener for diagnostic output of the comparison processor.
+     */
+    private ComparisonListener listener = new NoOpComparisonListener();
+
+    /**
+     * The executor comparisons are run on, or {@literal null} to use a default one.
+     */
+    private ExecutorService executor;
+
+    /**
+     * The bounded executor asynchronous comparisons are run on, or {@literal null} to use a
+     * default one.
+     */
+    private ExecutorService asyncExecutor;
+
+    /**
+     * The maximum number of asynchronous comparisons waiting for a thread of the default
+     * asynchronous executor.
+     */
+    private int asyncQueueCapacity = DEFAULT_ASYNC_QUEUE_CAPACITY;
+
+    /**
+     * The maximum number of decoded pixels of a tile of an encoded image.
+     */
+    private int tilePixels = DEFAULT_TILE_PIXELS;
+
+    /**
+     * How a test image is brought to the width of the reference.
+     */
+    private TestImageScaling scaling = TestImageScaling.RESCALE;
+
+    /**
+     * Whether and how comparisons with a minimum percentage of equality stop early.
+     */
+    private EarlyExit earlyExit = EarlyExit.OFF;
+
+    /**
+     * The grid, sampling areas, scaling method and distance metric of comparisons.
+     */
+    private ComparisonProfile profile = ComparisonProfile.BALANCED;
+
+    /**
+     * The cache for reference signatures, or {@literal null} to compute them every time.
+     */
+    private SignatureCache signatureCache;
+
+
+    /**
+     * Use a listener for diagnostic output of the comparison processor, like timings of the single
+     * phases of a comparison. By default, there is no diagnostic output at all.
+     *
+     * @param comparisonListener The listener to use.
+     * @return This module.
+     */
+    public final ImageComparisonModule withComparisonListener(
+            final ComparisonListener comparisonListener) {
+
+        this.listener = comparisonListener;
+        return this;
+    }
+
+    /**
+     * Choose how a test image is brought to the width of the reference. By default, the whole
+     * test image is re-scaled.
+     *
+     * @param testImageScaling The scaling to use.
+     * @return This module.
+     * @see TestImageScaling
+     */
+    public final ImageComparisonModule withTestImageScaling(
+            final TestImageScaling testImageScaling) {
+
+        this.scaling = testImageScaling;
+        return this;
+    }
+
+    /**
+     * Let comparisons with a minimum percentage of equality stop as soon as the images can't be
+     * equal anymore. By default, every region is compared.
+     *
+     * @param comparisonEarlyExit Whether and how comparisons stop early.
+     * @return This module.
+     * @see EarlyExit
+     */
+    public final ImageComparisonModule withEarlyExit(final EarlyExit comparisonEarlyExit) {
+
+        this.earlyExit = comparisonEarlyExit;
+        return this;
+    }
+
+    /**
+     * Choose the profile trading the accuracy of comparisons for their speed. By default, the
+     * {@link ComparisonProfile#BALANCED} profile is used. Single comparisons may still use another
+     * profile by means of {@link ImageComparisonService#withProfile(ComparisonProfile)}.
+     *
+     * @param comparisonProfile The profile to use.
+     * @return This module.
+     * @see ComparisonProfile
+     */
+    public final ImageComparisonModule withProfile(final ComparisonProfile comparisonProfile) {
+
+        this.profile = comparisonProfile;
+        return this;
+    }
+
+    /**
+     * Memoize the signatures of reference images in a cache. The bound processor is then a
+     * {@link CachingImageComparisonProcessor}. By default, signatures aren't cached.
+     *
+     * @param cache The cache to use. It may be shared with other modules, even ones with other
+     * profiles: signatures are cached by the profile they have been created with, too.
+     * @return This module.
+     */
+    public final ImageComparisonModule withSignatureCache(final SignatureCache cache) {
+
+        this.signatureCache = cache;
+        return this;
+    }
+
+    /**
+     * Use an executor of your own to run comparisons on. By default, a fixed pool of daemon
+     * threads is used, with one thread per available processor, which is shared by all injectors
+     * and must not be shut down. The executor isn't shut down by any of the bound
+     * implementations.
+     *
+     * @param executorService The executor to use.
+     * @return This module.
+     */
+    public final ImageComparisonModule withExecutorService(final ExecutorService executorService) {
+
+        this.executor = executorService;
+        return this;
+    }
+
+    /**
+     * Use a bounded executor of your own to run asynchronous comparisons on. Comparisons it
+     * rejects fail with a {@link java.util.concurrent.RejectedExecutionException}. The executor
+     * isn't shut down by any of the bound implementations.
+     *
+     * @param executorService The executor to use.
+     * @return This module.
+     */
+    public final ImageComparisonModule withAsyncExecutorService(
+            final ExecutorService executorService) {
+
+        this.asyncExecutor = executorService;
+        return this;
+    }
+
+    /**
+     * Set the maximum number of asynchronous comparisons waiting for a thread of the default
+     * asynchronous executor. Further comparisons are rejected. The default executor, and so its
+     * queue, is shared by all injectors with the same capacity. By default,
+     * {@link #DEFAULT_ASYNC_QUEUE_CAPACITY} comparisons may wait.
+     *
+     * @param capacity The maximum number of waiting comparisons, at least one.
+     * @return This module.
+     * @throws InvalidArgumentException If {@literal capacity} is lower than one.
+     */
+    public final ImageComparisonModule withAsyncQueueCapacity(final int capacity)
+        throws InvalidArgumentException {
+
+        if (capacity < 1) {
+            throw new InvalidArgumentException(
+                    "Capacity of the asynchronous queue has to be at least one.");
+        }
+        this.asyncQueueCapacity = capacity;
+        return this;
+    }
+
+    /**
+     * Set the maximum number of decoded pixels of a tile, when encoded images are decoded tile by
+     * tile. It bounds the memory needed for an encoded image of any size. By default, a tile has
+     * {@link #DEFAULT_TILE_PIXELS} pixels at most.
+     *
+     * @param maxTilePixels The maximum number of decoded pixels of a tile, at least one.
+     * @return This module.
+     * @throws InvalidArgumentException If {@literal maxTilePixels} is lower than one.
+     * @see ImageComparisonService#compareDetailed(java.io.File, ImageSignature)
+     */
+    public final ImageComparisonModule withTilePixels(final int maxTilePixels)
+        throws InvalidArgumentException {
+
+        if (maxTilePixels < 1) {
+            throw new InvalidArgumentException(
+                    "Number of pixels of a tile has to be at least one.");
+        }
+        this.tilePixels = maxTilePixels;
+        return this;
+    }
+
     @Override
     protected final void configure() {
 
-        bind(ImageComparisonService.class).to(ImageComparison.class);
-        bind(ImageComparisonProcessor.class).to(SimpleImageComparisonProcessor.class);
+        bind(ComparisonListener.class).toInstance(listener);
+        bind(TestImageScaling.class).toInstance(scaling);
+        bind(EarlyExit.class).toInstance(earlyExit);
+        bind(ComparisonProfile.class).toInstance(profile);
+        bindConstant().annotatedWith(Names.named(TILE_PIXELS)).to(tilePixels);
+        if (executor == null) {
+            bind(ExecutorService.class).annotatedWith(Names.named(COMPARISON_EXECUTOR))
+                    .toProvider(DefaultExecutorServiceProvider.class).in(Singleton.class);
+        } else {
+            bind(ExecutorService.class).annotatedWith(Names.named(COMPARISON_EXECUTOR))
+                    .toInstance(executor);
+        }
+        if (asyncExecutor == null) {
+            bindConstant().annotatedWith(Names.named(ASYNC_QUEUE_CAPACITY))
+                    .to(asyncQueueCapacity);
+            bind(ExecutorService.class).annotatedWith(Names.named(ASYNC_EXECUTOR))
+                    .toProvider(AsyncExecutorServiceProvider.class).in(Singleton.class);
+        } else {
+            bind(ExecutorService.class).annotatedWith(Names.named(ASYNC_EXECUTOR))
+                    .toInstance(asyncExecutor);
+        }
+
+        // All implementations are thread-safe, so one instance of each can be shared.
+        bind(ImageComparisonService.class).to(ImageComparison.class).in(Singleton.class);
+        if (signatureCache == null) {
+            bind(ImageComparisonProcessor.class).to(SimpleImageComparisonProcessor.class)
+                    .in(Singleton.class);
+        } else {
+            bind(SignatureCache.class).toInstance(signatureCache);
+            bind(ImageComparisonProcessor.class).to(CachingImageComparisonProcessor.class)
+                    .in(Singleton.class);
+            bind(ImageComparisonProcessor.class).annotatedWith(Names.named(UNCACHED_PROCESSOR))
+                    .to(SimpleImageComparisonProcessor.class).in(Singleton.class);
+        }
+        bind(ParallelImageComparisonService.class).to(ParallelImageComparison.class)
+                .in(Singleton.class);
+        bind(AsyncImageComparisonService.class).to(AsyncImageComparison.class)
+                .in(Singleton.class);
     }
 }
@@ -21,6 +21,10 @@
 package com.github.kayabendroth.imagecompare;
 
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+
+import javax.imageio.stream.ImageInputStream;
 
 
 /**
@@ -67,4 +71,200 @@ public interface ImageComparisonProcessor {
             BufferedImage testImage,
             BufferedImage referenceImage,
             double minEqualPercentage) throws InvalidArgumentException;
+
+    /**
+     * Compute the signature of an image. The signature can be used as a reference for any number
+     * of comparisons without being computed again.
+     *
+     * @param image The image to compute the signature for.
+     * @return The signature of the image.
+     */
+    ImageSignature createSignature(BufferedImage image);
+
+    /**
+     * Compute the signature of an image, leaving out the regions masked. Masked regions are not
+     * sampled, neither for this signature nor for any image compared to it, and they don't count
+     * towards the maximum distance of a comparison. So a dynamic area of the image, such as a
+     * clock, doesn't lower the percentage of equality.
+     *
+     * @param image The image to compute the signature for.
+     * @param mask The areas of the image to leave out.
+     * @return The signature of the image.
+     * @throws InvalidArgumentException If the mask is missing or masks every region.
+     */
+    ImageSignature createSignature(BufferedImage image, ImageMask mask)
+        throws InvalidArgumentException;
+
+    /**
+     * Compare an image to a precomputed reference signature.
+     *
+     * @param testImage The image you want to test.
+     * @param referenceSignature The signature of the reference image for the test.
+     * @return {@literal true}, if the test image is {@link DEFAULT_DEFINITION_OF_EQUAL} per
+     * cent identical to the reference image.
+     */
+    boolean compareWithSignature(BufferedImage testImage, ImageSignature referenceSignature);
+
+    /**
+     * Compare an image to a precomputed reference signature with configurable minimum percentage
+     * of equality.
+     *
+     * @param testImage The image you want to test.
+     * @param referenceSignature The signature of the reference image for the test.
+     * @param minEqualPercentage The per cent value definining whether or not the two images are to
+     * be considered equal.
+     * @return {@literal true}, if the test image is at least {@literal minEqualPercentage} per cent
+     * identical to the reference image.
+     * @throws InvalidArgumentException If {@literal minEqualPercentage} is lower than zero or
+     * higher than one hundred.
+     */
+    boolean compareWithSignature(
+            BufferedImage testImage,
+            ImageSignature referenceSignature,
+            double minEqualPercentage) throws InvalidArgumentException;
+
+    /**
+     * Compare two precomputed signatures. Both signatures need to be computed with the same grid
+     * of regions.
+     *
+     * @param testSignature The signature of the image you want to test.
+     * @param referenceSignature The signature of the reference image for the test.
+     * @return {@literal true}, if the test image is {@link DEFAULT_DEFINITION_OF_EQUAL} per
+     * cent identical to the reference image.
+     */
+    boolean compareSignatures(ImageSignature testSignature, ImageSignature referenceSignature);
+
+    /**
+     * Compare two precomputed signatures with configurable minimum percentage of equality. Both
+     * signatures need to be computed with the same grid of regions.
+     *
+     * @param testSignature The signature of the image you want to test.
+     * @param referenceSignature The signature of the reference image for the test.
+     * @param minEqualPercentage The per cent value definining whether or not the two images are to
+     * be considered equal.
+     * @return {@literal true}, if the test image is at least {@literal minEqualPercentage} per cent
+     * identical to the reference image.
+     * @throws InvalidArgumentException If {@literal minEqualPercentage} is lower than zero or
+     * higher than one hundred or if the two signatures have been computed with different grids of
+     * regions.
+     */
+    boolean compareSignatures(
+            ImageSignature testSignature,
+            ImageSignature referenceSignature,
+            double minEqualPercentage) throws InvalidArgumentException;
+
+    /**
+     * Compare two images and return the detailed result, which can be checked against any
+     * threshold afterwards.
+     *
+     * @param testImage The image you want to test.
+     * @param referenceImage The reference image for the test.
+     * @return The detailed result of the comparison.
+     */
+    ComparisonResult compareDetailed(BufferedImage testImage, BufferedImage referenceImage);
+
+    /**
+     * Compare an image to a precomputed reference signature and return the detailed result, which
+     * can be checked against any threshold afterwards.
+     *
+     * @param testImage The image you want to test.
+     * @param referenceSignature The signature of the reference image for the test.
+     * @return The detailed result of the comparison.
+     */
+    ComparisonResult compareDetailed(BufferedImage testImage, ImageSignature referenceSignature);
+
+    /**
+     * Compare two precomputed signatures and return the detailed result, which can be checked
+     * against any threshold afterwards. Both signatures need to be computed with the same grid of
+     * regions.
+     *
+     * @param testSignature The signature of the image you want to test.
+     * @param referenceSignature The signature of the reference image for the test.
+     * @return The detailed result of the comparison.
+     * @throws InvalidArgumentException If the two signatures have been computed with different
+     * grids of regions.
+     */
+    ComparisonResult compareDetailed(
+            ImageSignature testSignature,
+            ImageSignature referenceSignature) throws InvalidArgumentException;
+
+    /**
+     * Compare an image to a precomputed reference signature and return the distance of every
+     * region next to the detailed result, to tell where the images differ.
+     *
+     * @param testImage The image you want to test.
+     * @param referenceSignature The signature of the reference image for the test.
+     * @return The distances of the regions and the detailed result of the comparison.
+     */
+    RegionDiff compareRegions(BufferedImage testImage, ImageSignature referenceSignature);
+
+    /**
+     * Compare two precomputed signatures and return the distance of every region next to the
+     * detailed result, to tell where the images differ. Both signatures need to be computed with
+     * the same grid of regions.
+     *
+     * @param testSignature The signature of the image you want to test.
+     * @param referenceSignature The signature of the reference image for the test.
+     * @return The distances of the regions and the detailed result of the comparison.
+     * @throws InvalidArgumentException If the two signatures have been computed with different
+     * grids of regions.
+     */
+    RegionDiff compareRegions(
+            ImageSignature testSignature,
+            ImageSignature referenceSignature) throws InvalidArgumentException;
+
+    /**
+     * Compare one image to several precomputed reference signatures. The test image is re-scaled
+     * and signed only once per distinct reference width.
+     *
+     * @param testImage The image you want to test.
+     * @param referenceSignatures The signatures of the reference images.
+     * @return One match per reference, the best match first.
+     */
+    List<ReferenceMatch> compareAll(
+            BufferedImage testImage,
+            List<ImageSignature> referenceSignatures);
+
+    /**
+     * Compute the signature of an encoded image without decoding it at full resolution. The image
+     * is decoded with source subsampling, so that every sampling area keeps just enough pixels.
+     * The signature has the same grid as the one of the fully decoded image, but its colors are
+     * averaged over fewer pixels. Large images are decoded tile by tile, so the memory needed
+     * depends on the size of a tile only.
+     *
+     * @param input The encoded image. It is read, but not closed.
+     * @return The signature of the image.
+     * @throws IOException If the image can't be decoded.
+     */
+    ImageSignature createSignature(ImageInputStream input) throws IOException;
+
+    /**
+     * Compare an encoded image to a precomputed reference signature without decoding the image at
+     * full resolution. The image is decoded with source subsampling, so that it is not larger than
+     * it would be after re-scaling to the width of the reference, and its signature is sampled
+     * straight from the decoded pixels. Large images are decoded tile by tile, so the memory
+     * needed depends on the size of a tile only, and the running distance is reported to the
+     * {@link ComparisonListener} after every band of tiles.
+     *
+     * @param testInput The encoded image you want to test. It is read, but not closed.
+     * @param referenceSignature The signature of the reference image for the test.
+     * @return The detailed result of the comparison.
+     * @throws IOException If the image can't be decoded.
+     */
+    ComparisonResult compareDetailed(ImageInputStream testInput, ImageSignature referenceSignature)
+        throws IOException;
+
+    /**
+     * @return The grid, sampling areas, scaling method and distance metric of comparisons.
+     */
+    ComparisonProfile getProfile();
+
+    /**
+     * Get a processor comparing with another profile, e.g. to recheck a disputed result more
+     * precisely. This processor stays unchanged.
+     *
+     * @param profile The profile to compare with.
+     * @return A processor sharing everything with this one, but the profile.
+     */
+    ImageComparisonProcessor withProfile(ComparisonProfile profile);
 }
@@ -21,6 +21,10 @@
 package com.github.kayabendroth.imagecompare;
 
 import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 
 
 /**
@@ -57,4 +61,254 @@ public interface ImageComparisonService {
             BufferedImage testImage,
             BufferedImage referenceImage,
             double minEqualPercentage) throws InvalidArgumentException;
+
+    /**
+     * Compute the signature of an image. The signature can be used as a reference for any number
+     * of comparisons without being computed again.
+     *
+     * @param image The image to compute the signature for.
+     * @return The signature of the image.
+     */
+    ImageSignature createSignature(BufferedImage image);
+
+    /**
+     * Compute the signature of an image, leaving out the regions masked. Masked regions are left
+     * out of every comparison with the signature.
+     *
+     * @param image The image to compute the signature for.
+     * @param mask The areas of the image to leave out.
+     * @return The signature of the image.
+     * @throws InvalidArgumentException If the mask is missing or masks every region.
+     * @see ImageComparisonProcessor#createSignature(BufferedImage, ImageMask)
+     */
+    ImageSignature createSignature(BufferedImage image, ImageMask mask)
+        throws InvalidArgumentException;
+
+    /**
+     * Compare two images, leaving out the areas masked in the reference image, and return the
+     * detailed result.
+     *
+     * @param testImage The image you want to test.
+     * @param referenceImage The reference image for the test.
+     * @param mask The areas of the reference image to leave out.
+     * @return The detailed result of the comparison.
+     * @throws InvalidArgumentException If the mask is missing or masks every region.
+     */
+    ComparisonResult compareDetailed(
+            BufferedImage testImage,
+            BufferedImage referenceImage,
+            ImageMask mask) throws InvalidArgumentException;
+
+    /**
+     * Compare an image to a precomputed reference signature.
+     *
+     * @param testImage The image you want to test.
+     * @param referenceSignature The signature of the reference image for the test.
+     * @return {@literal true}, if the test image is
+     * {@link ImageComparisonProcessor#DEFAULT_DEFINITION_OF_EQUAL} per cent identical to the
+     * reference image.
+     */
+    boolean compareWithSignature(BufferedImage testImage, ImageSignature referenceSignature);
+
+    /**
+     * Compare an image to a precomputed reference signature with configurable minimum percentage
+     * of equality.
+     *
+     * @param testImage The image you want to test.
+     * @param referenceSignature The signature of the reference image for the test.
+     * @param minEqualPercentage The per cent value definining whether or not the two images are to
+     * be considered equal.
+     * @return {@literal true}, if the test image is at least {@literal minEqualPercentage} per cent
+     * identical to the reference image.
+     * @throws InvalidArgumentException If {@literal minEqualPercentage} is lower than zero or
+     * higher than one hundred.
+     */
+    boolean compareWithSignature(
+            BufferedImage testImage,
+            ImageSignature referenceSignature,
+            double minEqualPercentage) throws InvalidArgumentException;
+
+    /**
+     * Compare two precomputed signatures. Both signatures need to be computed with the same grid
+     * of regions.
+     *
+     * @param testSignature The signature of the image you want to test.
+     * @param referenceSignature The signature of the reference image for the test.
+     * @return {@literal true}, if the test image is
+     * {@link ImageComparisonProcessor#DEFAULT_DEFINITION_OF_EQUAL} per cent identical to the
+     * reference image.
+     */
+    boolean compareSignatures(ImageSignature testSignature, ImageSignature referenceSignature);
+
+    /**
+     * Compare two precomputed signatures with configurable minimum percentage of equality. Both
+     * signatures need to be computed with the same grid of regions.
+     *
+     * @param testSignature The signature of the image you want to test.
+     * @param referenceSignature The signature of the reference image for the test.
+     * @param minEqualPercentage The per cent value definining whether or not the two images are to
+     * be considered equal.
+     * @return {@literal true}, if the test image is at least {@literal minEqualPercentage} per cent
+     * identical to the reference image.
+     * @throws InvalidArgumentException If {@literal minEqualPercentage} is lower than zero or
+     * higher than one hundred or if the two signatures have been computed with different grids of
+     * regions.
+     */
+    boolean compareSignatures(
+            ImageSignature testSignature,
+            ImageSignature referenceSignature,
+            double minEqualPercentage) throws InvalidArgumentException;
+
+    /**
+     * Compare two images and return the detailed result, which can be checked against any
+     * threshold afterwards.
+     *
+     * @param testImage The image you want to test.
+     * @param referenceImage The reference image for the test.
+     * @return The detailed result of the comparison.
+     */
+    ComparisonResult compareDetailed(BufferedImage testImage, BufferedImage referenceImage);
+
+    /**
+     * Compare an image to a precomputed reference signature and return the detailed result, which
+     * can be checked against any threshold afterwards.
+     *
+     * @param testImage The image you want to test.
+     * @param referenceSignature The signature of the reference image for the test.
+     * @return The detailed result of the comparison.
+     */
+    ComparisonResult compareDetailed(BufferedImage testImage, ImageSignature referenceSignature);
+
+    /**
+     * Compare two precomputed signatures and return the detailed result, which can be checked
+     * against any threshold afterwards. Both signatures need to be computed with the same grid of
+     * regions.
+     *
+     * @param testSignature The signature of the image you want to test.
+     * @param referenceSignature The signature of the reference image for the test.
+     * @return The detailed result of the comparison.
+     * @throws InvalidArgumentException If the two signatures have been computed with different
+     * grids of regions.
+     */
+    ComparisonResult compareDetailed(
+            ImageSignature testSignature,
+            ImageSignature referenceSignature) throws InvalidArgumentException;
+
+    /**
+     * Compare two images and return the distance of every region next to the detailed result, to
+     * tell where the images differ.
+     *
+     * @param testImage The image you want to test.
+     * @param referenceImage The reference image for the test.
+     * @return The distances of the regions and the detailed result of the comparison.
+     * @see ImageComparisonProcessor#compareRegions(BufferedImage, ImageSignature)
+     */
+    RegionDiff compareRegions(BufferedImage testImage, BufferedImage referenceImage);
+
+    /**
+     * Compare an image to a precomputed reference signature and return the distance of every
+     * region next to the detailed result, to tell where the images differ.
+     *
+     * @param testImage The image you want to test.
+     * @param referenceSignature The signature of the reference image for the test.
+     * @return The distances of the regions and the detailed result of the comparison.
+     */
+    RegionDiff compareRegions(BufferedImage testImage, ImageSignature referenceSignature);
+
+    /**
+     * Compare two precomputed signatures and return the distance of every region next to the
+     * detailed result, to tell where the images differ. Both signatures need to be computed with
+     * the same grid of regions.
+     *
+     * @param testSignature The signature of the image you want to test.
+     * @param referenceSignature The signature of the reference image for the test.
+     * @return The distances of the regions and the detailed result of the comparison.
+     * @throws InvalidArgumentException If the two signatures have been computed with different
+     * grids of regions.
+     */
+    RegionDiff compareRegions(
+            ImageSignature testSignature,
+            ImageSignature referenceSignature) throws InvalidArgumentException;
+
+    /**
+     * Compare one image to several precomputed reference signatures. The test image is re-scaled
+     * and signed only once per distinct reference width.
+     *
+     * @param testImage The image you want to test.
+     * @param referenceSignatures The signatures of the reference images.
+     * @return One match per reference, the best match first.
+     */
+    List<ReferenceMatch> compareAll(
+            BufferedImage testImage,
+            List<ImageSignature> referenceSignatures);
+
+    /**
+     * Compare one image to several reference images. The test image is re-scaled and signed only
+     * once per distinct reference width.
+     *
+     * @param testImage The image you want to test.
+     * @param referenceImages The reference images.
+     * @return One match per reference, the best match first.
+     */
+    List<ReferenceMatch> compareAllImages(
+            BufferedImage testImage,
+            List<BufferedImage> referenceImages);
+
+    /**
+     * Compute the signature of an encoded image without decoding it at full resolution.
+     *
+     * @param input The encoded image. It is read, but not closed.
+     * @return The signature of the image.
+     * @throws IOException If the image can't be decoded.
+     * @see ImageComparisonProcessor#createSignature(javax.imageio.stream.ImageInputStream)
+     */
+    ImageSignature createSignature(InputStream input) throws IOException;
+
+    /**
+     * Compute the signature of an image file without decoding it at full resolution.
+     *
+     * @param file The image file.
+     * @return The signature of the image.
+     * @throws IOException If the image can't be decoded.
+     * @see ImageComparisonProcessor#createSignature(javax.imageio.stream.ImageInputStream)
+     */
+    ImageSignature createSignature(File file) throws IOException;
+
+    /**
+     * Compare an encoded image to a precomputed reference signature without decoding the image at
+     * full resolution.
+     *
+     * @param testInput The encoded image you want to test. It is read, but not closed.
+     * @param referenceSignature The signature of the reference image for the test.
+     * @return The detailed result of the comparison.
+     * @throws IOException If the image can't be decoded.
+     * @see ImageComparisonProcessor#compareDetailed(javax.imageio.stream.ImageInputStream,
+     * ImageSignature)
+     */
+    ComparisonResult compareDetailed(InputStream testInput, ImageSignature referenceSignature)
+        throws IOException;
+
+    /**
+     * Compare an image file to a precomputed reference signature without decoding the image at
+     * full resolution.
+     *
+     * @param testFile The image file you want to test.
+     * @param referenceSignature The signature of the reference image for the test.
+     * @return The detailed result of the comparison.
+     * @throws IOException If the image can't be decoded.
+     * @see ImageComparisonProcessor#compareDetailed(javax.imageio.stream.ImageInputStream,
+     * ImageSignature)
+     */
+    ComparisonResult compareDetailed(File testFile, ImageSignature referenceSignature)
+        throws IOException;
+
+    /**
+     * Get a service comparing with another profile, e.g. to recheck a disputed result more
+     * precisely. This service stays unchanged.
+     *
+     * @param profile The profile to compare with.
+     * @return A service sharing everything with this one, but the profile.
+     * @see ImageComparisonProcessor#withProfile(ComparisonProfile)
+     */
+    ImageComparisonService withProfile(ComparisonProfile profile);
 }
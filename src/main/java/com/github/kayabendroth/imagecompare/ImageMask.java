@@ -0,0 +1,298 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+
+/**
+ * The areas of a reference image to leave out of comparisons, such as clocks, ads or cursors. A
+ * mask is applied when the signature of the reference is created: every region, whose sampling
+ * area touches a masked pixel, is neither sampled for the reference nor for any test image
+ * compared to it, and doesn't count towards the maximum distance. Masks are immutable.
+ * <p>
+ * Masks are built from {@link #NONE} or from a bitmap and may be narrowed by areas to ignore and
+ * areas of interest. Areas are given in pixels of the reference image.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ * @see ImageComparisonProcessor#createSignature(BufferedImage, ImageMask)
+ */
+public final class ImageMask {
+
+
+    /**
+     * The mask, which doesn't mask anything.
+     */
+    public static final ImageMask NONE = new ImageMask(new Rectangle[0], new Rectangle[0], null,
+            0, 0);
+
+    /**
+     * The mask for the alpha channel of a pixel.
+     */
+    private static final int ALPHA_MASK = 0xFF000000;
+
+    /**
+     * The mask for the color channels of a pixel.
+     */
+    private static final int RGB_MASK = 0x00FFFFFF;
+
+
+    /**
+     * The areas of interest. Pixels outside of all of them are masked, unless there are none.
+     */
+    private final Rectangle[] areasOfInterest;
+
+    /**
+     * The areas to ignore.
+     */
+    private final Rectangle[] ignoredAreas;
+
+    /**
+     * The masked pixels of the bitmap, row by row, or {@literal null}.
+     */
+    private final boolean[] bitmap;
+
+    /**
+     * The width of the bitmap.
+     */
+    private final int bitmapWidth;
+
+    /**
+     * The height of the bitmap.
+     */
+    private final int bitmapHeight;
+
+
+    /**
+     * This is the constructor. The arrays will not be copied.
+     *
+     * @param interesting The areas of interest.
+     * @param ignored The areas to ignore.
+     * @param maskedPixels The masked pixels of the bitmap, row by row, or {@literal null}.
+     * @param width The width of the bitmap.
+     * @param height The height of the bitmap.
+     */
+    private ImageMask(
+            final Rectangle[] interesting,
+            final Rectangle[] ignored,
+            final boolean[] maskedPixels,
+            final int width,
+            final int height) {
+
+        this.areasOfInterest = interesting;
+        this.ignoredAreas = ignored;
+        this.bitmap = maskedPixels;
+        this.bitmapWidth = width;
+        this.bitmapHeight = height;
+    }
+
+
+    /**
+     * Create a mask from a bitmap. Black and fully transparent pixels are masked, all others are
+     * compared. The bitmap is stretched to the size of the reference image, so it may be smaller.
+     *
+     * @param maskImage The bitmap. It is copied, so it may be modified afterwards.
+     * @return The mask.
+     * @throws InvalidArgumentException If the bitmap is missing.
+     */
+    public static ImageMask fromBitmap(final BufferedImage maskImage)
+        throws InvalidArgumentException {
+
+        if (maskImage == null) {
+            throw new InvalidArgumentException("Bitmap of the mask is required.");
+        }
+
+        final int width = maskImage.getWidth();
+        final int height = maskImage.getHeight();
+        final int[] pixels = maskImage.getRGB(0, 0, width, height, null, 0, width);
+        final boolean[] maskedPixels = new boolean[pixels.length];
+        for (int i = 0; i < pixels.length; i++) {
+            maskedPixels[i] = (pixels[i] & ALPHA_MASK) == 0 || (pixels[i] & RGB_MASK) == 0;
+        }
+
+        return new ImageMask(new Rectangle[0], new Rectangle[0], maskedPixels, width, height);
+    }
+
+
+    /**
+     * Get a mask, which additionally ignores some areas.
+     *
+     * @param areas The areas to ignore.
+     * @return The mask.
+     * @throws InvalidArgumentException If an area is missing or empty.
+     */
+    public ImageMask ignoring(final Rectangle... areas) throws InvalidArgumentException {
+
+        return new ImageMask(areasOfInterest, concat(ignoredAreas, areas), bitmap, bitmapWidth,
+                bitmapHeight);
+    }
+
+    /**
+     * Get a mask, which additionally compares the pixels within some areas of interest only. A
+     * mask with several areas of interest compares the pixels within any of them.
+     *
+     * @param areas The areas of interest.
+     * @return The mask.
+     * @throws InvalidArgumentException If an area is missing or empty.
+     */
+    public ImageMask within(final Rectangle... areas) throws InvalidArgumentException {
+
+        return new ImageMask(concat(areasOfInterest, areas), ignoredAreas, bitmap, bitmapWidth,
+                bitmapHeight);
+    }
+
+    /**
+     * Mark the masked regions of a grid.
+     *
+     * @param areas The sampling areas in pixels of the image, as calculated by the processor: the
+     * first pixel column, the last pixel column (exclusive), the first pixel row and the last
+     * pixel row (exclusive) of the sampling areas of every column or row of regions.
+     * @param width The width of the image.
+     * @param height The height of the image.
+     * @return The regions, row by row, every masked one set to
+     * {@link ImageSignature#MASKED_REGION} and every other one to zero.
+     */
+    int[] maskRegions(final int[][] areas, final int width, final int height) {
+
+        final int[] fromX = areas[0];
+        final int[] toX = areas[1];
+        final int[] fromY = areas[2];
+        final int[] toY = areas[3];
+        final int[] regions = new int[fromX.length * fromY.length];
+        int i = 0;
+        for (int y = 0; y < fromY.length; y++) {
+            for (int x = 0; x < fromX.length; x++) {
+                // An empty sampling area stands for the pixel it starts at.
+                final Rectangle area = new Rectangle(fromX[x], fromY[y],
+                        Math.max(toX[x] - fromX[x], 1), Math.max(toY[y] - fromY[y], 1));
+                if (isMasked(area, width, height)) {
+                    regions[i] = ImageSignature.MASKED_REGION;
+                }
+                i++;
+            }
+        }
+
+        return regions;
+    }
+
+    @Override
+    public String toString() {
+
+        return "ImageMask[areasOfInterest=" + areasOfInterest.length + ", ignoredAreas="
+                + ignoredAreas.length + ", bitmap=" + (bitmap != null) + "]";
+    }
+
+    /**
+     * Check, whether a sampling area touches a masked pixel.
+     *
+     * @param area The sampling area.
+     * @param width The width of the image.
+     * @param height The height of the image.
+     * @return {@literal true}, if the area is to be masked.
+     */
+    private boolean isMasked(final Rectangle area, final int width, final int height) {
+
+        for (final Rectangle ignored : ignoredAreas) {
+            if (ignored.intersects(area)) {
+                return true;
+            }
+        }
+        if (areasOfInterest.length > 0) {
+            boolean interesting = false;
+            for (final Rectangle areaOfInterest : areasOfInterest) {
+                interesting = interesting || areaOfInterest.contains(area);
+            }
+            if (!interesting) {
+                return true;
+            }
+        }
+        if (bitmap == null) {
+            return false;
+        }
+
+        // Every pixel of the bitmap covering the area at least partially counts.
+        final int fromX = scale(Math.max(area.x, 0), width, bitmapWidth, false);
+        final int toX = scale(Math.min(area.x + area.width, width), width, bitmapWidth, true);
+        final int fromY = scale(Math.max(area.y, 0), height, bitmapHeight, false);
+        final int toY = scale(Math.min(area.y + area.height, height), height, bitmapHeight, true);
+        for (int y = fromY; y < toY; y++) {
+            for (int x = fromX; x < toX; x++) {
+                if (bitmap[y * bitmapWidth + x]) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Scale a pixel coordinate of the image to the bitmap.
+     *
+     * @param coordinate The coordinate in the image.
+     * @param imageSize The size of the image along the axis.
+     * @param bitmapSize The size of the bitmap along the axis.
+     * @param roundUp {@literal true} to round up, {@literal false} to round down.
+     * @return The coordinate in the bitmap.
+     */
+    private static int scale(
+            final int coordinate,
+            final int imageSize,
+            final int bitmapSize,
+            final boolean roundUp) {
+
+        long scaled = (long) coordinate * bitmapSize;
+        if (roundUp) {
+            scaled += imageSize - 1;
+        }
+
+        return (int) Math.min(scaled / imageSize, bitmapSize);
+    }
+
+    /**
+     * Append areas to others, copying every one of them.
+     *
+     * @param areas The areas to append to.
+     * @param moreAreas The areas to append.
+     * @return The areas.
+     * @throws InvalidArgumentException If an area to append is missing or empty.
+     */
+    private static Rectangle[] concat(final Rectangle[] areas, final Rectangle[] moreAreas)
+        throws InvalidArgumentException {
+
+        if (moreAreas == null) {
+            throw new InvalidArgumentException("Areas are required.");
+        }
+
+        final Rectangle[] all = new Rectangle[areas.length + moreAreas.length];
+        System.arraycopy(areas, 0, all, 0, areas.length);
+        for (int i = 0; i < moreAreas.length; i++) {
+            if (moreAreas[i] == null || moreAreas[i].isEmpty()) {
+                throw new InvalidArgumentException("An area must not be missing or empty.");
+            }
+            all[areas.length + i] = new Rectangle(moreAreas[i]);
+        }
+
+        return all;
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+
+/**
+ * The signature of an image, i.e. the averaged colors of its reference regions. A signature is
+ * immutable, so the signature of a reference image has to be computed only once and can then be
+ * used for any number of comparisons.
+ * <p>
+ * The region colors are kept in one flat array of packed RGB values (row by row), so a signature
+ * consists of two objects only, no matter how many regions it has. Regions left out by an
+ * {@link ImageMask} are marked by {@link #MASKED_REGION} in the same array, above the colors.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ * @see ImageComparisonProcessor#createSignature(java.awt.image.BufferedImage)
+ */
+public final class ImageSignature {
+
+
+    /**
+     * The bit marking a masked region in the packed region colors. Distance metrics only look at
+     * the lower 24 bits, so a masked region is black to them.
+     */
+    static final int MASKED_REGION = 1 << 24;
+
+    /**
+     * The mask for the color of a region.
+     */
+    private static final int RGB_MASK = 0x00FFFFFF;
+
+
+    /**
+     * The width of the image this signature has been computed for.
+     */
+    private final int width;
+
+    /**
+     * The height of the image this signature has been computed for.
+     */
+    private final int height;
+
+    /**
+     * The number of columns of reference regions.
+     */
+    private final int regionColumns;
+
+    /**
+     * The number of rows of reference regions.
+     */
+    private final int regionRows;
+
+    /**
+     * The size of the sampling area around the center of every reference region.
+     */
+    private final int sampleSize;
+
+    /**
+     * The averaged color of every reference region, packed as {@literal 0xRRGGBB}. The region
+     * (x, y) is stored at index {@literal y * regionColumns + x}.
+     */
+    private final int[] regions;
+
+    /**
+     * The number of regions, which haven't been masked.
+     */
+    private final int activeRegionCount;
+
+
+    /**
+     * This constructor creates a signature with a square grid of regions. The region array will
+     * not be copied, so it must not be modified afterwards.
+     *
+     * @param imageWidth The width of the image this signature has been computed for.
+     * @param imageHeight The height of the image this signature has been computed for.
+     * @param refRegionsInOneDimension The number of reference regions in one dimension.
+     * @param regionSampleSize The size of the sampling area around the center of every region.
+     * @param regionRgb The averaged color of every reference region, packed as
+     * {@literal 0xRRGGBB}.
+     */
+    ImageSignature(
+            final int imageWidth,
+            final int imageHeight,
+            final int refRegionsInOneDimension,
+            final int regionSampleSize,
+            final int[] regionRgb) {
+
+        this(imageWidth, imageHeight, refRegionsInOneDimension, refRegionsInOneDimension,
+                regionSampleSize, regionRgb);
+    }
+
+    /**
+     * This is the constructor. The region array will not be copied, so it must not be modified
+     * afterwards.
+     *
+     * @param imageWidth The width of the image this signature has been computed for.
+     * @param imageHeight The height of the image this signature has been computed for.
+     * @param columns The number of columns of reference regions.
+     * @param rows The number of rows of reference regions.
+     * @param regionSampleSize The size of the sampling area around the center of every region.
+     * @param regionRgb The averaged color of every reference region, packed as
+     * {@literal 0xRRGGBB}, or {@link #MASKED_REGION} for a masked region.
+     */
+    ImageSignature(
+            final int imageWidth,
+            final int imageHeight,
+            final int columns,
+            final int rows,
+            final int regionSampleSize,
+            final int[] regionRgb) {
+
+        this.width = imageWidth;
+        this.height = imageHeight;
+        this.regionColumns = columns;
+        this.regionRows = rows;
+        this.sampleSize = regionSampleSize;
+        this.regions = regionRgb;
+
+        int active = 0;
+        for (final int rgb : regionRgb) {
+            if ((rgb & MASKED_REGION) == 0) {
+                active++;
+            }
+        }
+        this.activeRegionCount = active;
+    }
+
+
+    /**
+     * @return The width of the image this signature has been computed for.
+     */
+    public int getWidth() {
+
+        return width;
+    }
+
+    /**
+     * @return The height of the image this signature has been computed for.
+     */
+    public int getHeight() {
+
+        return height;
+    }
+
+    /**
+     * @return The number of reference regions in one dimension. For grids, which aren't square,
+     * this is the number of columns.
+     */
+    public int getRegionsInOneDimension() {
+
+        return regionColumns;
+    }
+
+    /**
+     * @return The number of columns of reference regions.
+     */
+    public int getRegionColumns() {
+
+        return regionColumns;
+    }
+
+    /**
+     * @return The number of rows of reference regions.
+     */
+    public int getRegionRows() {
+
+        return regionRows;
+    }
+
+    /**
+     * Check whether another signature has been computed on the same grid of regions, so the two
+     * can be compared.
+     *
+     * @param other The other signature.
+     * @return {@literal true}, if both signatures have the same numbers of columns and rows.
+     */
+    public boolean hasSameGrid(final ImageSignature other) {
+
+        return regionColumns == other.regionColumns && regionRows == other.regionRows;
+    }
+
+    /**
+     * Check whether a region is compared or has been masked.
+     *
+     * @param x The index of the region on the x-axis.
+     * @param y The index of the region on the y-axis.
+     * @return {@literal true}, if the region is compared.
+     */
+    public boolean isRegionActive(final int x, final int y) {
+
+        return (regions[y * regionColumns + x] & MASKED_REGION) == 0;
+    }
+
+    /**
+     * @return The number of regions, which are compared, i.e. which haven't been masked.
+     */
+    public int getActiveRegionCount() {
+
+        return activeRegionCount;
+    }
+
+    /**
+     * @return {@literal true}, if some regions have been masked.
+     */
+    public boolean isMasked() {
+
+        return activeRegionCount < regions.length;
+    }
+
+    /**
+     * @return The size of the sampling area around the center of every reference region.
+     */
+    public int getSampleSize() {
+
+        return sampleSize;
+    }
+
+    /**
+     * Get the averaged color of a reference region.
+     *
+     * @param x The index of the region on the x-axis.
+     * @param y The index of the region on the y-axis.
+     * @return The averaged color of the region, packed as {@literal 0xRRGGBB}, or black, if the
+     * region has been masked.
+     */
+    public int getRegionRgb(final int x, final int y) {
+
+        return regions[y * regionColumns + x] & RGB_MASK;
+    }
+
+    /**
+     * @return The packed region colors as used for the distance calculation, masked regions
+     * marked by {@link #MASKED_REGION}. Not to be modified.
+     */
+    int[] regions() {
+
+        return regions;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+
+/**
+ * Compares many pairs of images in parallel on the comparison executor. Every pair is one task;
+ * large signatures are additionally split into bands of rows by the processor.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ */
+public class ParallelImageComparison implements ParallelImageComparisonService {
+
+    /**
+     * The image comparison processor to be used for the actual comparison work.
+     */
+    private final ImageComparisonProcessor proc;
+
+    /**
+     * The executor the comparisons are run on.
+     */
+    private final ExecutorService executor;
+
+
+    /**
+     * This is the constructor.
+     *
+     * @param processor The image comparison processor to use.
+     * @param executorService The executor to run the comparisons on.
+     */
+    @Inject
+    public ParallelImageComparison(
+            final ImageComparisonProcessor processor,
+            @Named(ImageComparisonModule.COMPARISON_EXECUTOR)
+            final ExecutorService executorService) {
+
+        this.proc = processor;
+        this.executor = executorService;
+    }
+
+
+    @Override
+    public final List<Future<ComparisonResult>> submitAll(final List<ComparisonPair> pairs) {
+
+        final List<Future<ComparisonResult>> futures =
+                new ArrayList<Future<ComparisonResult>>(pairs.size());
+        for (final ComparisonPair pair : pairs) {
+            futures.add(executor.submit(new Callable<ComparisonResult>() {
+                @Override
+                public ComparisonResult call() {
+
+                    return pair.compare(proc);
+                }
+            }));
+        }
+        return futures;
+    }
+
+    @Override
+    public final List<ComparisonResult> compareAll(final List<ComparisonPair> pairs)
+        throws InterruptedException, ExecutionException {
+
+        final List<Future<ComparisonResult>> futures = submitAll(pairs);
+        final List<ComparisonResult> results = new ArrayList<ComparisonResult>(futures.size());
+        try {
+            for (final Future<ComparisonResult> future : futures) {
+                results.add(future.get());
+            }
+        } finally {
+            // Don't leave work behind, if we give up waiting.
+            if (results.size() < futures.size()) {
+                for (final Future<ComparisonResult> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+
+/**
+ * Interface for the comparison of many pairs of images in parallel.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ */
+public interface ParallelImageComparisonService {
+
+
+    /**
+     * Submit the comparison of every pair to the comparison executor and return immediately.
+     *
+     * @param pairs The pairs of test image and reference to compare.
+     * @return One future per pair, in the order of {@literal pairs}.
+     */
+    List<Future<ComparisonResult>> submitAll(List<ComparisonPair> pairs);
+
+    /**
+     * Compare every pair in parallel and wait for all results.
+     *
+     * @param pairs The pairs of test image and reference to compare.
+     * @return One result per pair, in the order of {@literal pairs}.
+     * @throws InterruptedException If the calling thread has been interrupted while waiting.
+     * @throws ExecutionException If a comparison has failed.
+     */
+    List<ComparisonResult> compareAll(List<ComparisonPair> pairs)
+        throws InterruptedException, ExecutionException;
+}
@@ -0,0 +1,107 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+
+/**
+ * Runs a number of tasks in parallel and waits for all of them to finish.
+ * <p>
+ * The calling thread takes part in the work: every task, which hasn't been picked up by the
+ * executor yet, is run by the calling thread itself. So the calling thread only ever waits for
+ * tasks, which are actually running. That's why tasks may be split further from within a task of
+ * the very same executor without any risk of a deadlock, even if the executor has no idle thread
+ * left or rejects tasks.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ */
+final class ParallelTasks {
+
+
+    /**
+     * This is a utility class, which is not to be instantiated.
+     */
+    private ParallelTasks() {
+    }
+
+
+    /**
+     * Run all tasks and wait for all of them to finish.
+     *
+     * @param executor The executor to run the tasks on.
+     * @param tasks The tasks to run.
+     * @throws RuntimeException If a task has thrown one.
+     * @throws Error If a task has thrown one.
+     */
+    static void runAll(final Executor executor, final List<Runnable> tasks) {
+
+        final List<FutureTask<Object>> futures = new ArrayList<FutureTask<Object>>(tasks.size());
+        // The first task is always run by the calling thread.
+        for (int i = 1; i < tasks.size(); i++) {
+            final FutureTask<Object> future = new FutureTask<Object>(tasks.get(i), null);
+            futures.add(future);
+            try {
+                executor.execute(future);
+            } catch (final RejectedExecutionException ree) {
+                // The task will be run by the calling thread below.
+                continue;
+            }
+        }
+
+        if (!tasks.isEmpty()) {
+            tasks.get(0).run();
+        }
+        // Does nothing for tasks already run or running in another thread.
+        for (final FutureTask<Object> future : futures) {
+            future.run();
+        }
+
+        boolean interrupted = false;
+        try {
+            for (final FutureTask<Object> future : futures) {
+                while (true) {
+                    try {
+                        future.get();
+                        break;
+                    } catch (final InterruptedException ie) {
+                        interrupted = true;
+                    } catch (final ExecutionException ee) {
+                        final Throwable cause = ee.getCause();
+                        if (cause instanceof RuntimeException) { throw (RuntimeException) cause; }
+                        if (cause instanceof Error) { throw (Error) cause; }
+                        throw new IllegalStateException(cause);
+                    }
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
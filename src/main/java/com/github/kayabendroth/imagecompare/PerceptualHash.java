@@ -0,0 +1,312 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+import java.util.Arrays;
+
+
+/**
+ * Computes 64 bit perceptual hashes of images. Similar images have hashes with a small Hamming
+ * distance, so hashes can be used to find candidates among many references cheaply, before the
+ * candidates are compared precisely.
+ * <p>
+ * The hashes are computed from the region colors of an {@link ImageSignature}, not from the image
+ * itself, so no pixel is read twice and hashes can be computed for stored signatures, too.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ */
+public final class PerceptualHash {
+
+
+    /**
+     * The size of the grid the average hash and the difference hash are computed from.
+     */
+    private static final int HASH_SIZE = 8;
+
+    /**
+     * The size of the grid the discrete cosine transform of the perceptual hash is computed from.
+     */
+    private static final int DCT_SIZE = 32;
+
+    /**
+     * The number of bits of a hash.
+     */
+    private static final int HASH_BITS = HASH_SIZE * HASH_SIZE;
+
+    /**
+     * Weight of the red component in the luma, in thousandths.
+     */
+    private static final int RED_WEIGHT = 299;
+
+    /**
+     * Weight of the green component in the luma, in thousandths.
+     */
+    private static final int GREEN_WEIGHT = 587;
+
+    /**
+     * Weight of the blue component in the luma, in thousandths.
+     */
+    private static final int BLUE_WEIGHT = 114;
+
+    /**
+     * The sum of the weights of the luma.
+     */
+    private static final double WEIGHT_SUM = 1000.0;
+
+    /**
+     * Bit position of the red component in a packed RGB value.
+     */
+    private static final int RED_POSITION = 16;
+
+    /**
+     * Bit position of the green component in a packed RGB value.
+     */
+    private static final int GREEN_POSITION = 8;
+
+    /**
+     * The mask of a color component.
+     */
+    private static final int COMPONENT_MASK = 0xff;
+
+    /**
+     * The cosines of the discrete cosine transform, {@literal [frequency][position]}.
+     */
+    private static final double[][] DCT_COSINES = new double[HASH_SIZE][DCT_SIZE];
+
+    static {
+        for (int u = 0; u < HASH_SIZE; u++) {
+            for (int x = 0; x < DCT_SIZE; x++) {
+                DCT_COSINES[u][x] = Math.cos((2 * x + 1) * u * Math.PI / (2 * DCT_SIZE));
+            }
+        }
+    }
+
+
+    /**
+     * This is a utility class.
+     */
+    private PerceptualHash() {
+
+    }
+
+
+    /**
+     * Compute the perceptual hash of an image from its signature.
+     *
+     * @param signature The signature of the image.
+     * @param algorithm The hash algorithm.
+     * @return The 64 bit hash.
+     */
+    public static long of(final ImageSignature signature, final HashAlgorithm algorithm) {
+
+        switch (algorithm) {
+            case AVERAGE:
+                return averageHash(lumaGrid(signature, HASH_SIZE, HASH_SIZE));
+            case DIFFERENCE:
+                return differenceHash(lumaGrid(signature, HASH_SIZE + 1, HASH_SIZE));
+            default:
+                return perceptualHash(lumaGrid(signature, DCT_SIZE, DCT_SIZE));
+        }
+    }
+
+    /**
+     * Calculate the Hamming distance between two hashes, i.e. the number of differing bits.
+     *
+     * @param hash1 The first hash.
+     * @param hash2 The second hash.
+     * @return The Hamming distance, between zero and 64.
+     */
+    public static int hammingDistance(final long hash1, final long hash2) {
+
+        return Long.bitCount(hash1 ^ hash2);
+    }
+
+    /**
+     * Compute the average hash of a luma grid.
+     *
+     * @param luma The 8x8 luma grid.
+     * @return The hash.
+     */
+    private static long averageHash(final double[][] luma) {
+
+        double mean = 0;
+        for (final double[] row : luma) {
+            for (final double value : row) {
+                mean += value;
+            }
+        }
+        mean /= HASH_BITS;
+
+        long hash = 0;
+        for (final double[] row : luma) {
+            for (final double value : row) {
+                hash <<= 1;
+                if (value > mean) {
+                    hash |= 1;
+                }
+            }
+        }
+
+        return hash;
+    }
+
+    /**
+     * Compute the difference hash of a luma grid.
+     *
+     * @param luma The 8 rows by 9 columns luma grid.
+     * @return The hash.
+     */
+    private static long differenceHash(final double[][] luma) {
+
+        long hash = 0;
+        for (final double[] row : luma) {
+            for (int x = 0; x < HASH_SIZE; x++) {
+                hash <<= 1;
+                if (row[x] > row[x + 1]) {
+                    hash |= 1;
+                }
+            }
+        }
+
+        return hash;
+    }
+
+    /**
+     * Compute the perceptual hash of a luma grid.
+     *
+     * @param luma The 32x32 luma grid.
+     * @return The hash.
+     */
+    private static long perceptualHash(final double[][] luma) {
+
+        // The transform is separable: first along the rows, then along the columns.
+        final double[][] rows = new double[DCT_SIZE][HASH_SIZE];
+        for (int y = 0; y < DCT_SIZE; y++) {
+            for (int u = 0; u < HASH_SIZE; u++) {
+                double sum = 0;
+                for (int x = 0; x < DCT_SIZE; x++) {
+                    sum += luma[y][x] * DCT_COSINES[u][x];
+                }
+                rows[y][u] = sum;
+            }
+        }
+        final double[] coefficients = new double[HASH_BITS];
+        for (int v = 0; v < HASH_SIZE; v++) {
+            for (int u = 0; u < HASH_SIZE; u++) {
+                double sum = 0;
+                for (int y = 0; y < DCT_SIZE; y++) {
+                    sum += rows[y][u] * DCT_COSINES[v][y];
+                }
+                coefficients[v * HASH_SIZE + u] = sum;
+            }
+        }
+
+        // The mean brightness (DC) says nothing about the structure, so the median ignores it.
+        final double[] sorted = Arrays.copyOfRange(coefficients, 1, HASH_BITS);
+        Arrays.sort(sorted);
+        final double median = sorted[sorted.length / 2];
+
+        long hash = 0;
+        for (int i = 0; i < HASH_BITS; i++) {
+            hash <<= 1;
+            if (i > 0 && coefficients[i] > median) {
+                hash |= 1;
+            }
+        }
+
+        return hash;
+    }
+
+    /**
+     * Reduce the regions of a signature to a grid of luma values. Every cell averages the regions
+     * it covers; if there are fewer regions than cells, a region is used by several cells. Masked
+     * regions are left out, and cells covering masked regions only get the mean luma of all
+     * regions compared, so masked parts of an image don't look black to the hashes.
+     *
+     * @param signature The signature.
+     * @param width The number of cells in a row.
+     * @param height The number of cells in a column.
+     * @return The luma grid, {@literal [row][column]}.
+     */
+    private static double[][] lumaGrid(
+            final ImageSignature signature,
+            final int width,
+            final int height) {
+
+        final int columns = signature.getRegionColumns();
+        final int rows = signature.getRegionRows();
+        final int[] rgb = signature.regions();
+        final double[][] grid = new double[height][width];
+        if (columns == 0 || rows == 0) {
+            return grid;
+        }
+        double meanLuma = 0;
+        int activeRegions = 0;
+        for (final int color : rgb) {
+            if ((color & ImageSignature.MASKED_REGION) == 0) {
+                meanLuma += luma(color);
+                activeRegions++;
+            }
+        }
+        if (activeRegions > 0) {
+            meanLuma /= activeRegions;
+        }
+        for (int cy = 0; cy < height; cy++) {
+            final int fromY = cy * rows / height;
+            final int toY = Math.max((cy + 1) * rows / height, fromY + 1);
+            for (int cx = 0; cx < width; cx++) {
+                final int fromX = cx * columns / width;
+                final int toX = Math.max((cx + 1) * columns / width, fromX + 1);
+                double sum = 0;
+                int count = 0;
+                for (int y = fromY; y < toY; y++) {
+                    for (int x = fromX; x < toX; x++) {
+                        final int color = rgb[y * columns + x];
+                        if ((color & ImageSignature.MASKED_REGION) == 0) {
+                            sum += luma(color);
+                            count++;
+                        }
+                    }
+                }
+                grid[cy][cx] = meanLuma;
+                if (count > 0) {
+                    grid[cy][cx] = sum / count;
+                }
+            }
+        }
+
+        return grid;
+    }
+
+    /**
+     * Calculate the luma of a color.
+     *
+     * @param rgb The color, packed as {@literal 0xRRGGBB}.
+     * @return The luma, between zero and 255.
+     */
+    private static double luma(final int rgb) {
+
+        return (RED_WEIGHT * ((rgb >> RED_POSITION) & COMPONENT_MASK)
+                + GREEN_WEIGHT * ((rgb >> GREEN_POSITION) & COMPONENT_MASK)
+                + BLUE_WEIGHT * (rgb & COMPONENT_MASK)) / WEIGHT_SUM;
+    }
+}
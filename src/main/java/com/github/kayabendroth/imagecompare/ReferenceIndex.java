@@ -0,0 +1,199 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * An index of reference signatures by their perceptual hashes. Finding the references a test
+ * image matches then takes two steps: a lookup of the few references, whose hashes are close to
+ * the one of the test image, and precise comparisons with these candidates only.
+ * <p>
+ * The index is thread-safe.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ * @see PerceptualHash
+ */
+public final class ReferenceIndex {
+
+
+    /**
+     * The processor for the signatures and the precise comparisons.
+     */
+    private final ImageComparisonProcessor proc;
+
+    /**
+     * The hash algorithm.
+     */
+    private final HashAlgorithm algorithm;
+
+    /**
+     * The indices of the references by their hashes.
+     */
+    private final BkTree<Integer> tree = new BkTree<Integer>();
+
+    /**
+     * The reference signatures by their index.
+     */
+    private final List<ImageSignature> signatures = new ArrayList<ImageSignature>();
+
+
+    /**
+     * This is the constructor.
+     *
+     * @param processor The processor for the signatures and the precise comparisons.
+     * @param hashAlgorithm The hash algorithm.
+     */
+    public ReferenceIndex(
+            final ImageComparisonProcessor processor,
+            final HashAlgorithm hashAlgorithm) {
+
+        this.proc = processor;
+        this.algorithm = hashAlgorithm;
+    }
+
+
+    /**
+     * Add a reference image.
+     *
+     * @param referenceImage The reference image.
+     * @return The index of the reference, as returned by
+     * {@link ReferenceMatch#getReferenceIndex()}.
+     */
+    public int add(final BufferedImage referenceImage) {
+
+        return add(proc.createSignature(referenceImage));
+    }
+
+    /**
+     * Add a precomputed reference signature.
+     *
+     * @param referenceSignature The signature of the reference image.
+     * @return The index of the reference, as returned by
+     * {@link ReferenceMatch#getReferenceIndex()}.
+     */
+    public int add(final ImageSignature referenceSignature) {
+
+        final long hash = PerceptualHash.of(referenceSignature, algorithm);
+        synchronized (tree) {
+            final int index = signatures.size();
+            signatures.add(referenceSignature);
+            tree.add(hash, index);
+            return index;
+        }
+    }
+
+    /**
+     * Find the references a test image may match and compare them precisely. The signature the
+     * test image is hashed by is re-used to compare candidates of the same size, grid and sample
+     * size; the test image is signed again for the other candidates only.
+     *
+     * @param testImage The image you want to test.
+     * @param maxHammingDistance The maximum Hamming distance between the hashes of the test image
+     * and a candidate, between zero and 64.
+     * @return One match per candidate, the best match first. References, which aren't candidates,
+     * aren't compared at all.
+     */
+    public List<ReferenceMatch> findMatches(
+            final BufferedImage testImage,
+            final int maxHammingDistance) {
+
+        final ImageSignature testSignature = proc.createSignature(testImage);
+        final long hash = PerceptualHash.of(testSignature, algorithm);
+        final List<Integer> candidates;
+        final List<ImageSignature> candidateSignatures;
+        synchronized (tree) {
+            candidates = tree.find(hash, maxHammingDistance);
+            candidateSignatures = new ArrayList<ImageSignature>(candidates.size());
+            for (final Integer index : candidates) {
+                candidateSignatures.add(signatures.get(index));
+            }
+        }
+        if (candidates.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final List<ReferenceMatch> matches = new ArrayList<ReferenceMatch>(candidates.size());
+        final List<Integer> otherCandidates = new ArrayList<Integer>();
+        final List<ImageSignature> otherSignatures = new ArrayList<ImageSignature>();
+        for (int i = 0; i < candidates.size(); i++) {
+            final ImageSignature candidateSignature = candidateSignatures.get(i);
+            if (isSignedAlike(testSignature, candidateSignature)) {
+                try {
+                    matches.add(new ReferenceMatch(candidates.get(i), candidateSignature,
+                            proc.compareDetailed(testSignature, candidateSignature)));
+                    continue;
+                } catch (final InvalidArgumentException iae) {
+                    // Can't happen, as both signatures share their grid; sign the image again.
+                }
+            }
+            otherCandidates.add(candidates.get(i));
+            otherSignatures.add(candidateSignature);
+        }
+
+        // The processor numbers the other candidates; the matches carry the index in this index.
+        if (!otherSignatures.isEmpty()) {
+            for (final ReferenceMatch match : proc.compareAll(testImage, otherSignatures)) {
+                matches.add(new ReferenceMatch(otherCandidates.get(match.getReferenceIndex()),
+                        match.getReferenceSignature(), match.getResult()));
+            }
+        }
+        Collections.sort(matches);
+
+        return matches;
+    }
+
+    /**
+     * @return The number of references.
+     */
+    public int size() {
+
+        synchronized (tree) {
+            return signatures.size();
+        }
+    }
+
+
+    /**
+     * Check whether the signature of the test image is the one the processor would compute to
+     * compare it to a reference, which is the case for unmasked references of the same size, grid
+     * and sample size.
+     *
+     * @param testSignature The signature of the test image.
+     * @param referenceSignature The signature of the reference.
+     * @return {@literal true}, if the signature of the test image can be compared directly.
+     */
+    private static boolean isSignedAlike(
+            final ImageSignature testSignature,
+            final ImageSignature referenceSignature) {
+
+        return !referenceSignature.isMasked()
+                && testSignature.getWidth() == referenceSignature.getWidth()
+                && testSignature.getHeight() == referenceSignature.getHeight()
+                && testSignature.getSampleSize() == referenceSignature.getSampleSize()
+                && testSignature.hasSameGrid(referenceSignature);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+
+/**
+ * The result of comparing a test image to one of several references. Matches are ordered by
+ * their percentage of equality, the best match first.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ * @see ImageComparisonProcessor#compareAll(java.awt.image.BufferedImage, java.util.List)
+ */
+public final class ReferenceMatch implements Comparable<ReferenceMatch> {
+
+
+    /**
+     * The index of the reference in the list of references handed over.
+     */
+    private final int referenceIndex;
+
+    /**
+     * The signature of the reference.
+     */
+    private final ImageSignature referenceSignature;
+
+    /**
+     * The result of the comparison.
+     */
+    private final ComparisonResult result;
+
+
+    /**
+     * This is the constructor.
+     *
+     * @param index The index of the reference in the list of references handed over.
+     * @param signature The signature of the reference.
+     * @param comparisonResult The result of the comparison.
+     */
+    ReferenceMatch(
+            final int index,
+            final ImageSignature signature,
+            final ComparisonResult comparisonResult) {
+
+        this.referenceIndex = index;
+        this.referenceSignature = signature;
+        this.result = comparisonResult;
+    }
+
+
+    /**
+     * @return The index of the reference in the list of references handed over.
+     */
+    public int getReferenceIndex() {
+
+        return referenceIndex;
+    }
+
+    /**
+     * @return The signature of the reference.
+     */
+    public ImageSignature getReferenceSignature() {
+
+        return referenceSignature;
+    }
+
+    /**
+     * @return The result of the comparison.
+     */
+    public ComparisonResult getResult() {
+
+        return result;
+    }
+
+    /**
+     * Higher percentages of equality come first. Results without a valid percentage come last,
+     * equal percentages are ordered by the index of the reference.
+     *
+     * @param other The match to compare to.
+     * @return A negative value, if this match is better than the other one.
+     */
+    @Override
+    public int compareTo(final ReferenceMatch other) {
+
+        final double percentage = result.getPercentageOfEquality();
+        final double otherPercentage = other.result.getPercentageOfEquality();
+        if (Double.isNaN(percentage) != Double.isNaN(otherPercentage)) {
+            if (Double.isNaN(percentage)) { return 1; }
+            return -1;
+        }
+
+        final int byPercentage = Double.compare(otherPercentage, percentage);
+        if (byPercentage != 0) { return byPercentage; }
+
+        return referenceIndex - other.referenceIndex;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+
+        if (!(obj instanceof ReferenceMatch)) { return false; }
+        final ReferenceMatch other = (ReferenceMatch) obj;
+
+        return referenceIndex == other.referenceIndex
+                && referenceSignature == other.referenceSignature
+                && result == other.result;
+    }
+
+    @Override
+    public int hashCode() {
+
+        return referenceIndex;
+    }
+
+    @Override
+    public String toString() {
+
+        return "ReferenceMatch[referenceIndex=" + referenceIndex + ", result=" + result + "]";
+    }
+}
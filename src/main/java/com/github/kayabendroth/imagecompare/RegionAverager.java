@@ -0,0 +1,46 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+
+/**
+ * Averages the pixels of rectangular regions of one particular image.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ * @see RegionAveragers
+ */
+interface RegionAverager {
+
+
+    /**
+     * Average the RGB values of all pixels within a rectangle. The rectangle will be clipped to
+     * the bounds of the image.
+     *
+     * @param x0 The first column of the rectangle (inclusive).
+     * @param y0 The first row of the rectangle (inclusive).
+     * @param x1 The last column of the rectangle (exclusive).
+     * @param y1 The last row of the rectangle (exclusive).
+     * @return The averaged color packed as {@literal 0xRRGGBB}, or zero (black) if the rectangle
+     * doesn't contain any pixel.
+     */
+    int averageRgb(int x0, int y0, int x1, int y1);
+}
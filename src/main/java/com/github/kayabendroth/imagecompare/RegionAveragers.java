@@ -0,0 +1,442 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+
+/**
+ * Factory for {@link RegionAverager} instances. For the most common image types the pixels are
+ * read straight from the backing data buffer of the raster, without calling
+ * {@link BufferedImage#getRGB(int, int)} and without allocating anything per pixel. All other
+ * image types fall back to {@link BufferedImage#getRGB(int, int)}.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ */
+final class RegionAveragers {
+
+
+    /**
+     * Bit position of the red component in a packed RGB value.
+     */
+    private static final int RED_POSITION = 16;
+
+    /**
+     * Bit position of the green component in a packed RGB value.
+     */
+    private static final int GREEN_POSITION = 8;
+
+    /**
+     * Bitmask for one color component.
+     */
+    private static final int BITMASK = 0xFF;
+
+    /**
+     * Number of bands of an RGB image.
+     */
+    private static final int RGB_BANDS = 3;
+
+
+    /**
+     * This is a utility class, which is not to be instantiated.
+     */
+    private RegionAveragers() {
+    }
+
+
+    /**
+     * Get the region averager best suited for an image.
+     *
+     * @param image The image to average regions of.
+     * @return A raster based region averager for images of the types {@literal TYPE_INT_RGB},
+     * {@literal TYPE_INT_ARGB}, {@literal TYPE_3BYTE_BGR} and {@literal TYPE_BYTE_GRAY}, a
+     * {@link BufferedImage#getRGB(int, int)} based one otherwise.
+     */
+    static RegionAverager forImage(final BufferedImage image) {
+
+        final WritableRaster raster = image.getRaster();
+        final SampleModel sampleModel = raster.getSampleModel();
+        final DataBuffer dataBuffer = raster.getDataBuffer();
+
+        if (dataBuffer.getNumBanks() == 1) {
+            switch (image.getType()) {
+                case BufferedImage.TYPE_INT_RGB:
+                case BufferedImage.TYPE_INT_ARGB:
+                    if (sampleModel instanceof SinglePixelPackedSampleModel
+                            && dataBuffer instanceof DataBufferInt) {
+                        return new IntRgbAverager(raster);
+                    }
+                    break;
+                case BufferedImage.TYPE_3BYTE_BGR:
+                    if (sampleModel instanceof ComponentSampleModel
+                            && dataBuffer instanceof DataBufferByte) {
+                        return new ThreeByteBgrAverager(raster);
+                    }
+                    break;
+                case BufferedImage.TYPE_BYTE_GRAY:
+                    if (sampleModel instanceof ComponentSampleModel
+                            && dataBuffer instanceof DataBufferByte) {
+                        return new ByteGrayAverager(raster);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        return new GetRgbAverager(image);
+    }
+
+    /**
+     * Pack averaged color components.
+     *
+     * @param red The accumulated red values.
+     * @param green The accumulated green values.
+     * @param blue The accumulated blue values.
+     * @param numPixels The number of accumulated pixels.
+     * @return The averaged color packed as {@literal 0xRRGGBB}, or zero, if no pixel has been
+     * accumulated.
+     */
+    static int pack(final long red, final long green, final long blue, final long numPixels) {
+
+        if (numPixels <= 0) { return 0; }
+
+        return (int) (red / numPixels) << RED_POSITION
+                | (int) (green / numPixels) << GREEN_POSITION
+                | (int) (blue / numPixels);
+    }
+
+
+    /**
+     * Common base for all region averagers, which clips the rectangles to the image bounds.
+     */
+    private abstract static class AbstractRegionAverager implements RegionAverager {
+
+        /**
+         * The width of the image.
+         */
+        private final int width;
+
+        /**
+         * The height of the image.
+         */
+        private final int height;
+
+        /**
+         * Constructor.
+         *
+         * @param imageWidth The width of the image.
+         * @param imageHeight The height of the image.
+         */
+        AbstractRegionAverager(final int imageWidth, final int imageHeight) {
+
+            this.width = imageWidth;
+            this.height = imageHeight;
+        }
+
+        @Override
+        public final int averageRgb(final int x0, final int y0, final int x1, final int y1) {
+
+            final int fromX = Math.max(x0, 0);
+            final int fromY = Math.max(y0, 0);
+            final int toX = Math.min(x1, width);
+            final int toY = Math.min(y1, height);
+            if (fromX >= toX || fromY >= toY) { return 0; }
+
+            return average(fromX, fromY, toX, toY);
+        }
+
+        /**
+         * Average a rectangle, which is known to be non-empty and within the image bounds.
+         *
+         * @param x0 The first column of the rectangle (inclusive).
+         * @param y0 The first row of the rectangle (inclusive).
+         * @param x1 The last column of the rectangle (exclusive).
+         * @param y1 The last row of the rectangle (exclusive).
+         * @return The averaged color packed as {@literal 0xRRGGBB}.
+         */
+        protected abstract int average(int x0, int y0, int x1, int y1);
+    }
+
+    /**
+     * Averager for images with one packed {@literal int} per pixel.
+     */
+    private static final class IntRgbAverager extends AbstractRegionAverager {
+
+        /**
+         * The pixel data.
+         */
+        private final int[] data;
+
+        /**
+         * Index of the pixel at (0, 0).
+         */
+        private final int base;
+
+        /**
+         * Number of array elements per row.
+         */
+        private final int scanlineStride;
+
+        /**
+         * Constructor.
+         *
+         * @param raster The raster to read from.
+         */
+        IntRgbAverager(final WritableRaster raster) {
+
+            super(raster.getWidth(), raster.getHeight());
+            final DataBufferInt dataBuffer = (DataBufferInt) raster.getDataBuffer();
+            this.data = dataBuffer.getData();
+            this.scanlineStride =
+                    ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+            this.base = dataBuffer.getOffset()
+                    - raster.getSampleModelTranslateY() * scanlineStride
+                    - raster.getSampleModelTranslateX();
+        }
+
+        @Override
+        protected int average(final int x0, final int y0, final int x1, final int y1) {
+
+            long red = 0;
+            long green = 0;
+            long blue = 0;
+            for (int y = y0; y < y1; y++) {
+                final int rowStart = base + y * scanlineStride;
+                for (int i = rowStart + x0; i < rowStart + x1; i++) {
+                    final int pixel = data[i];
+                    red += (pixel >> RED_POSITION) & BITMASK;
+                    green += (pixel >> GREEN_POSITION) & BITMASK;
+                    blue += pixel & BITMASK;
+                }
+            }
+
+            return pack(red, green, blue, (long) (x1 - x0) * (y1 - y0));
+        }
+    }
+
+    /**
+     * Averager for images with three interleaved bytes per pixel.
+     */
+    private static final class ThreeByteBgrAverager extends AbstractRegionAverager {
+
+        /**
+         * The pixel data.
+         */
+        private final byte[] data;
+
+        /**
+         * Index of the pixel at (0, 0).
+         */
+        private final int base;
+
+        /**
+         * Number of array elements per row.
+         */
+        private final int scanlineStride;
+
+        /**
+         * Number of array elements per pixel.
+         */
+        private final int pixelStride;
+
+        /**
+         * Offset of the red band within a pixel.
+         */
+        private final int redOffset;
+
+        /**
+         * Offset of the green band within a pixel.
+         */
+        private final int greenOffset;
+
+        /**
+         * Offset of the blue band within a pixel.
+         */
+        private final int blueOffset;
+
+        /**
+         * Constructor.
+         *
+         * @param raster The raster to read from.
+         */
+        ThreeByteBgrAverager(final WritableRaster raster) {
+
+            super(raster.getWidth(), raster.getHeight());
+            final DataBufferByte dataBuffer = (DataBufferByte) raster.getDataBuffer();
+            final ComponentSampleModel sampleModel = (ComponentSampleModel) raster.getSampleModel();
+            final int[] bandOffsets = sampleModel.getBandOffsets();
+            this.data = dataBuffer.getData();
+            this.scanlineStride = sampleModel.getScanlineStride();
+            this.pixelStride = sampleModel.getPixelStride();
+            this.base = dataBuffer.getOffset()
+                    - raster.getSampleModelTranslateY() * scanlineStride
+                    - raster.getSampleModelTranslateX() * pixelStride;
+            this.redOffset = bandOffsets[0];
+            this.greenOffset = bandOffsets[1];
+            this.blueOffset = bandOffsets[RGB_BANDS - 1];
+        }
+
+        @Override
+        protected int average(final int x0, final int y0, final int x1, final int y1) {
+
+            long red = 0;
+            long green = 0;
+            long blue = 0;
+            for (int y = y0; y < y1; y++) {
+                final int rowStart = base + y * scanlineStride;
+                final int rowEnd = rowStart + x1 * pixelStride;
+                for (int i = rowStart + x0 * pixelStride; i < rowEnd; i += pixelStride) {
+                    red += data[i + redOffset] & BITMASK;
+                    green += data[i + greenOffset] & BITMASK;
+                    blue += data[i + blueOffset] & BITMASK;
+                }
+            }
+
+            return pack(red, green, blue, (long) (x1 - x0) * (y1 - y0));
+        }
+    }
+
+    /**
+     * Averager for images with one gray byte per pixel.
+     */
+    private static final class ByteGrayAverager extends AbstractRegionAverager {
+
+        /**
+         * {@link BufferedImage#getRGB(int, int)} converts the linear gray values of
+         * {@literal TYPE_BYTE_GRAY} images to sRGB. This table holds the converted value for
+         * every gray value, so we get the very same results.
+         */
+        private static final int[] GRAY_TO_RGB = new int[BITMASK + 1];
+
+        static {
+            final BufferedImage grayRamp =
+                    new BufferedImage(GRAY_TO_RGB.length, 1, BufferedImage.TYPE_BYTE_GRAY);
+            for (int gray = 0; gray < GRAY_TO_RGB.length; gray++) {
+                grayRamp.getRaster().setSample(gray, 0, 0, gray);
+            }
+            for (int gray = 0; gray < GRAY_TO_RGB.length; gray++) {
+                GRAY_TO_RGB[gray] = grayRamp.getRGB(gray, 0) & BITMASK;
+            }
+        }
+
+        /**
+         * The pixel data.
+         */
+        private final byte[] data;
+
+        /**
+         * Index of the pixel at (0, 0).
+         */
+        private final int base;
+
+        /**
+         * Number of array elements per row.
+         */
+        private final int scanlineStride;
+
+        /**
+         * Number of array elements per pixel.
+         */
+        private final int pixelStride;
+
+        /**
+         * Constructor.
+         *
+         * @param raster The raster to read from.
+         */
+        ByteGrayAverager(final WritableRaster raster) {
+
+            super(raster.getWidth(), raster.getHeight());
+            final DataBufferByte dataBuffer = (DataBufferByte) raster.getDataBuffer();
+            final ComponentSampleModel sampleModel = (ComponentSampleModel) raster.getSampleModel();
+            this.data = dataBuffer.getData();
+            this.scanlineStride = sampleModel.getScanlineStride();
+            this.pixelStride = sampleModel.getPixelStride();
+            this.base = dataBuffer.getOffset() + sampleModel.getBandOffsets()[0]
+                    - raster.getSampleModelTranslateY() * scanlineStride
+                    - raster.getSampleModelTranslateX() * pixelStride;
+        }
+
+        @Override
+        protected int average(final int x0, final int y0, final int x1, final int y1) {
+
+            long gray = 0;
+            for (int y = y0; y < y1; y++) {
+                final int rowStart = base + y * scanlineStride;
+                final int rowEnd = rowStart + x1 * pixelStride;
+                for (int i = rowStart + x0 * pixelStride; i < rowEnd; i += pixelStride) {
+                    gray += GRAY_TO_RGB[data[i] & BITMASK];
+                }
+            }
+
+            return pack(gray, gray, gray, (long) (x1 - x0) * (y1 - y0));
+        }
+    }
+
+    /**
+     * Fallback averager for all other image types.
+     */
+    private static final class GetRgbAverager extends AbstractRegionAverager {
+
+        /**
+         * The image to read from.
+         */
+        private final BufferedImage image;
+
+        /**
+         * Constructor.
+         *
+         * @param source The image to read from.
+         */
+        GetRgbAverager(final BufferedImage source) {
+
+            super(source.getWidth(), source.getHeight());
+            this.image = source;
+        }
+
+        @Override
+        protected int average(final int x0, final int y0, final int x1, final int y1) {
+
+            long red = 0;
+            long green = 0;
+            long blue = 0;
+            for (int y = y0; y < y1; y++) {
+                for (int x = x0; x < x1; x++) {
+                    final int pixel = image.getRGB(x, y);
+                    red += (pixel >> RED_POSITION) & BITMASK;
+                    green += (pixel >> GREEN_POSITION) & BITMASK;
+                    blue += pixel & BITMASK;
+                }
+            }
+
+            return pack(red, green, blue, (long) (x1 - x0) * (y1 - y0));
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * The distances of the single regions of a comparison of two images, next to its overall result.
+ * The distances are the very ones the result has been summed up from, so telling where two images
+ * differ takes no further pass over them. A diff is immutable.
+ * <p>
+ * Regions are mapped back to the reference image: the region (x, y) covers the pixels nearer to
+ * its center than to the center of any other region.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ * @see ImageComparisonProcessor#compareRegions(java.awt.image.BufferedImage, ImageSignature)
+ */
+public final class RegionDiff {
+
+
+    /**
+     * One hundred.
+     */
+    private static final int ONE_HUNDRED = 100;
+
+    /**
+     * The overall result of the comparison.
+     */
+    private final ComparisonResult result;
+
+    /**
+     * The distance of every region, row by row.
+     */
+    private final double[] regionDistances;
+
+    /**
+     * The largest distance possible between two regions.
+     */
+    private final double maxRegionDistance;
+
+    /**
+     * The width of the reference image.
+     */
+    private final int referenceWidth;
+
+    /**
+     * The height of the reference image.
+     */
+    private final int referenceHeight;
+
+
+    /**
+     * This is the constructor.
+     *
+     * @param comparisonResult The overall result of the comparison.
+     * @param distances The distance of every region, row by row. The array is kept, not copied.
+     * @param maxDistance The largest distance possible between two regions.
+     * @param width The width of the reference image.
+     * @param height The height of the reference image.
+     */
+    RegionDiff(
+            final ComparisonResult comparisonResult,
+            final double[] distances,
+            final double maxDistance,
+            final int width,
+            final int height) {
+
+        this.result = comparisonResult;
+        this.regionDistances = distances;
+        this.maxRegionDistance = maxDistance;
+        this.referenceWidth = width;
+        this.referenceHeight = height;
+    }
+
+
+    /**
+     * @return The overall result of the comparison.
+     */
+    public ComparisonResult getResult() {
+
+        return result;
+    }
+
+    /**
+     * @return The number of columns of regions.
+     */
+    public int getRegionColumns() {
+
+        return result.getRegionColumns();
+    }
+
+    /**
+     * @return The number of rows of regions.
+     */
+    public int getRegionRows() {
+
+        return result.getRegionRows();
+    }
+
+    /**
+     * Get the distance of a region of the test image to the one of the reference image.
+     *
+     * @param x The column of the region.
+     * @param y The row of the region.
+     * @return The distance.
+     */
+    public double getRegionDistance(final int x, final int y) {
+
+        return regionDistances[y * getRegionColumns() + x];
+    }
+
+    /**
+     * @return The largest distance possible between two regions.
+     */
+    public double getMaxRegionDistance() {
+
+        return maxRegionDistance;
+    }
+
+    /**
+     * @return A copy of the distances of all regions, the region (x, y) at index
+     * {@literal y * columns + x}.
+     */
+    public double[] getRegionDistances() {
+
+        return regionDistances.clone();
+    }
+
+    /**
+     * Get the pixels of the reference image covered by a region.
+     *
+     * @param x The column of the region.
+     * @param y The row of the region.
+     * @return The bounds of the region in the coordinates of the reference image.
+     */
+    public Rectangle getRegionBounds(final int x, final int y) {
+
+        final int left = cellBoundary(x, getRegionColumns(), referenceWidth);
+        final int top = cellBoundary(y, getRegionRows(), referenceHeight);
+
+        return new Rectangle(left, top,
+                cellBoundary(x + 1, getRegionColumns(), referenceWidth) - left,
+                cellBoundary(y + 1, getRegionRows(), referenceHeight) - top);
+    }
+
+    /**
+     * Find the areas of the reference image, which have changed in the test image. Neighbouring
+     * regions, which differ by more than the given percentage of the largest distance possible,
+     * form a single area.
+     *
+     * @param minDifferencePercentage The percentage of the largest distance possible between two
+     * regions, which a region has to exceed to count as changed.
+     * @return The bounds of every changed area in the coordinates of the reference image, in the
+     * order of their top-left-most regions.
+     * @throws InvalidArgumentException If {@literal minDifferencePercentage} is lower than zero or
+     * higher than one hundred.
+     */
+    public List<Rectangle> getChangedAreas(final double minDifferencePercentage)
+        throws InvalidArgumentException {
+
+        if (minDifferencePercentage < 0 || minDifferencePercentage > ONE_HUNDRED) {
+            throw new InvalidArgumentException("Minimum percentage of difference is not allowed "
+                    + "to be lower than zero or higher than one hundred.");
+        }
+
+        final int columns = getRegionColumns();
+        final double threshold = maxRegionDistance * minDifferencePercentage / ONE_HUNDRED;
+        final boolean[] visited = new boolean[regionDistances.length];
+        final int[] stack = new int[regionDistances.length];
+        final List<Rectangle> areas = new ArrayList<Rectangle>();
+        for (int start = 0; start < regionDistances.length; start++) {
+            if (visited[start] || regionDistances[start] <= threshold) {
+                continue;
+            }
+
+            // Collect the changed regions connected to this one, horizontally or vertically.
+            Rectangle area = null;
+            int size = 0;
+            stack[size++] = start;
+            visited[start] = true;
+            while (size > 0) {
+                final int region = stack[--size];
+                final int x = region % columns;
+                final int y = region / columns;
+                final Rectangle bounds = getRegionBounds(x, y);
+                if (area == null) {
+                    area = bounds;
+                } else {
+                    area.add(bounds);
+                }
+                for (final int neighbour : new int[] {
+                        neighbour(x - 1, y), neighbour(x + 1, y),
+                        neighbour(x, y - 1), neighbour(x, y + 1)}) {
+                    if (neighbour >= 0 && !visited[neighbour]
+                            && regionDistances[neighbour] > threshold) {
+                        visited[neighbour] = true;
+                        stack[size++] = neighbour;
+                    }
+                }
+            }
+            areas.add(area);
+        }
+
+        return areas;
+    }
+
+    @Override
+    public String toString() {
+
+        return "RegionDiff[result=" + result + "]";
+    }
+
+    /**
+     * Get the index of a region, if it exists.
+     *
+     * @param x The column of the region.
+     * @param y The row of the region.
+     * @return The index of the region or -1, if it is outside of the grid.
+     */
+    private int neighbour(final int x, final int y) {
+
+        if (x < 0 || y < 0 || x >= getRegionColumns() || y >= getRegionRows()) {
+            return -1;
+        }
+
+        return y * getRegionColumns() + x;
+    }
+
+    /**
+     * Calculate the boundary between two cells of regions along one axis. The boundary lies
+     * halfway between the centers of the regions, which are laid out like
+     * {@link SimpleImageComparisonProcessor#calcProportions(int)} does.
+     *
+     * @param cell The cell after the boundary, from zero to the number of cells.
+     * @param cells The number of cells along the axis.
+     * @param size The size of the reference image along the axis.
+     * @return The pixel coordinate of the boundary.
+     */
+    private static int cellBoundary(final int cell, final int cells, final int size) {
+
+        if (cell <= 0) {
+            return 0;
+        }
+        if (cell >= cells) {
+            return size;
+        }
+
+        return (int) Math.round((cell + 0.5) * size / (cells + 1));
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * A bounded cache of image signatures. Once the maximum number of entries or the maximum number of
+ * bytes is exceeded, the least recently used signatures are evicted. All methods are thread-safe.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ * @see CachingImageComparisonProcessor
+ */
+public final class SignatureCache {
+
+
+    /**
+     * The estimated number of bytes of a signature without its regions: the signature itself, the
+     * array header and the cache entry.
+     */
+    static final int SIGNATURE_OVERHEAD_BYTES = 96;
+
+    /**
+     * The number of bytes of a single region, which is one packed RGB value.
+     */
+    private static final int BYTES_PER_REGION = 4;
+
+    /**
+     * The initial capacity of the map.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The load factor of the map.
+     */
+    private static final float LOAD_FACTOR = 0.75f;
+
+
+    /**
+     * The signatures in access order, the least recently used first.
+     */
+    private final LinkedHashMap<Object, ImageSignature> signatures =
+            new LinkedHashMap<Object, ImageSignature>(INITIAL_CAPACITY, LOAD_FACTOR, true);
+
+    /**
+     * The maximum number of signatures.
+     */
+    private final int maxEntries;
+
+    /**
+     * The maximum estimated number of bytes of all signatures.
+     */
+    private final long maxBytes;
+
+    /**
+     * The estimated number of bytes of all signatures.
+     */
+    private long bytes;
+
+    /**
+     * Number of lookups, which have found a signature.
+     */
+    private long hitCount;
+
+    /**
+     * Number of lookups, which haven't found a signature.
+     */
+    private long missCount;
+
+    /**
+     * Number of signatures evicted to stay within the bounds.
+     */
+    private long evictionCount;
+
+
+    /**
+     * This constructor creates a cache bounded by the number of signatures only.
+     *
+     * @param maximumEntries The maximum number of signatures, at least one.
+     * @throws InvalidArgumentException If {@literal maximumEntries} is lower than one.
+     */
+    public SignatureCache(final int maximumEntries) throws InvalidArgumentException {
+
+        this(maximumEntries, Long.MAX_VALUE);
+    }
+
+    /**
+     * This is the constructor.
+     *
+     * @param maximumEntries The maximum number of signatures, at least one.
+     * @param maximumBytes The maximum estimated number of bytes of all signatures, at least one.
+     * @throws InvalidArgumentException If {@literal maximumEntries} or {@literal maximumBytes} is
+     * lower than one.
+     */
+    public SignatureCache(final int maximumEntries, final long maximumBytes)
+        throws InvalidArgumentException {
+
+        if (maximumEntries < 1 || maximumBytes < 1) {
+            throw new InvalidArgumentException(
+                    "Maximum entries and maximum bytes of the cache have to be at least one.");
+        }
+        this.maxEntries = maximumEntries;
+        this.maxBytes = maximumBytes;
+    }
+
+
+    /**
+     * Look up a signature.
+     *
+     * @param key The key of the signature.
+     * @return The signature or {@literal null}, if there is none for the key.
+     */
+    public synchronized ImageSignature get(final Object key) {
+
+        final ImageSignature signature = signatures.get(key);
+        if (signature == null) {
+            missCount++;
+        } else {
+            hitCount++;
+        }
+
+        return signature;
+    }
+
+    /**
+     * Store a signature, evicting the least recently used ones if needed. A signature, which is
+     * larger than the maximum number of bytes on its own, isn't stored at all.
+     *
+     * @param key The key of the signature.
+     * @param signature The signature.
+     */
+    public synchronized void put(final Object key, final ImageSignature signature) {
+
+        final ImageSignature previous = signatures.put(key, signature);
+        if (previous != null) {
+            bytes -= estimateBytes(previous);
+        }
+        bytes += estimateBytes(signature);
+
+        final Iterator<Map.Entry<Object, ImageSignature>> eldest =
+                signatures.entrySet().iterator();
+        while ((signatures.size() > maxEntries || bytes > maxBytes) && eldest.hasNext()) {
+            bytes -= estimateBytes(eldest.next().getValue());
+            eldest.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Remove a signature.
+     *
+     * @param key The key of the signature.
+     */
+    public synchronized void invalidate(final Object key) {
+
+        final ImageSignature previous = signatures.remove(key);
+        if (previous != null) {
+            bytes -= estimateBytes(previous);
+        }
+    }
+
+    /**
+     * Remove all signatures. The statistics are kept.
+     */
+    public synchronized void clear() {
+
+        signatures.clear();
+        bytes = 0;
+    }
+
+    /**
+     * @return The number of cached signatures.
+     */
+    public synchronized int size() {
+
+        return signatures.size();
+    }
+
+    /**
+     * @return The estimated number of bytes of all cached signatures.
+     */
+    public synchronized long getBytes() {
+
+        return bytes;
+    }
+
+    /**
+     * @return The number of lookups, which have found a signature.
+     */
+    public synchronized long getHitCount() {
+
+        return hitCount;
+    }
+
+    /**
+     * @return The number of lookups, which haven't found a signature.
+     */
+    public synchronized long getMissCount() {
+
+        return missCount;
+    }
+
+    /**
+     * @return The number of signatures evicted to stay within the bounds.
+     */
+    public synchronized long getEvictionCount() {
+
+        return evictionCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+
+        return "SignatureCache[entries=" + signatures.size() + ", bytes=" + bytes
+                + ", hits=" + hitCount + ", misses=" + missCount
+                + ", evictions=" + evictionCount + "]";
+    }
+
+    /**
+     * Estimate the number of bytes a cached signature takes.
+     *
+     * @param signature The signature.
+     * @return The estimated number of bytes.
+     */
+    static long estimateBytes(final ImageSignature signature) {
+
+        return SIGNATURE_OVERHEAD_BYTES + (long) signature.regions().length * BYTES_PER_REGION;
+    }
+}
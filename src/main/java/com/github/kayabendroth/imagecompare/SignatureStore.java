@@ -0,0 +1,442 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * A read-only store of image signatures in a file, which is memory-mapped when opened. Opening a
+ * store reads nothing but its header, so a store of millions of signatures is ready at once; the
+ * operating system pages in what is actually looked up.
+ * <p>
+ * The file starts with a header and an open-addressing hash table of the keys, followed by the
+ * entries. A lookup hashes the key, probes the table and compares the key bytes in place. Only the
+ * region colors of a matching entry are copied, in one bulk read. All values are big-endian.
+ * <pre>
+ * header:  int magic "ISIG", int version, int entry count, int table capacity
+ * table:   capacity * (int key hash, long entry offset or 0 for an empty slot)
+ * entry:   int key length, UTF-8 key, padding to 4 bytes,
+ *          int width, int height, int region columns, int region rows, int sample size,
+ *          columns * rows * int packed RGB
+ * </pre>
+ * Masked regions are stored with the bit {@link ImageSignature#MASKED_REGION} set.
+ * <p>
+ * Files are mapped in segments of 1 GiB; entries are padded so none of them spans two segments.
+ * <p>
+ * A store is thread-safe. The mapping is only released once the store has been garbage-collected,
+ * even after {@link #close()}.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ */
+public final class SignatureStore implements Closeable {
+
+
+    /**
+     * The magic number at the start of every store file, {@literal "ISIG"}.
+     */
+    private static final int MAGIC = 0x49534947;
+
+    /**
+     * The version of the file format.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * The size of the header in bytes.
+     */
+    private static final int HEADER_BYTES = 16;
+
+    /**
+     * The size of a slot of the hash table in bytes.
+     */
+    private static final int SLOT_BYTES = 12;
+
+    /**
+     * The offset of the entry offset within a slot.
+     */
+    private static final int SLOT_OFFSET_POSITION = 4;
+
+    /**
+     * The position of the entry count in the header.
+     */
+    private static final int COUNT_POSITION = 8;
+
+    /**
+     * The position of the table capacity in the header.
+     */
+    private static final int CAPACITY_POSITION = 12;
+
+    /**
+     * The size of the fixed fields of an entry after the key in bytes.
+     */
+    private static final int ENTRY_FIELDS_BYTES = 20;
+
+    /**
+     * The size of an int in bytes.
+     */
+    private static final int INT_BYTES = 4;
+
+    /**
+     * Bit shift of the segment size; segments are 1 GiB.
+     */
+    private static final int SEGMENT_SHIFT = 30;
+
+    /**
+     * The size of a mapped segment in bytes.
+     */
+    private static final long SEGMENT_BYTES = 1L << SEGMENT_SHIFT;
+
+    /**
+     * The offset basis of the 32 bit FNV-1a hash.
+     */
+    private static final int FNV_OFFSET_BASIS = 0x811c9dc5;
+
+    /**
+     * The prime of the 32 bit FNV-1a hash.
+     */
+    private static final int FNV_PRIME = 0x01000193;
+
+    /**
+     * The mask for an unsigned byte.
+     */
+    private static final int BYTE_MASK = 0xff;
+
+    /**
+     * The encoding of the keys.
+     */
+    private static final String KEY_ENCODING = "UTF-8";
+
+
+    /**
+     * The file being mapped.
+     */
+    private final RandomAccessFile file;
+
+    /**
+     * The mapped segments of the file.
+     */
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * The number of entries.
+     */
+    private final int entryCount;
+
+    /**
+     * The capacity of the hash table, a power of two.
+     */
+    private final int tableCapacity;
+
+
+    /**
+     * This constructor is used by {@link #open(File)}.
+     *
+     * @param storeFile The file being mapped.
+     * @param mappedSegments The mapped segments of the file.
+     * @param count The number of entries.
+     * @param capacity The capacity of the hash table.
+     */
+    private SignatureStore(
+            final RandomAccessFile storeFile,
+            final MappedByteBuffer[] mappedSegments,
+            final int count,
+            final int capacity) {
+
+        this.file = storeFile;
+        this.segments = mappedSegments;
+        this.entryCount = count;
+        this.tableCapacity = capacity;
+    }
+
+
+    /**
+     * Write signatures to a new store file, replacing an existing file.
+     *
+     * @param storeFile The file to write.
+     * @param signatures The signatures by their keys.
+     * @throws IOException If the file can't be written.
+     */
+    public static void write(final File storeFile, final Map<String, ImageSignature> signatures)
+        throws IOException {
+
+        // Lay out the table and the entries first, so the file can be written in one go.
+        int capacity = 2;
+        while (capacity < 2L * signatures.size()) {
+            capacity <<= 1;
+        }
+        final long tableEnd = HEADER_BYTES + (long) capacity * SLOT_BYTES;
+        if (tableEnd > SEGMENT_BYTES) {
+            throw new IOException("Too many signatures for a single store file.");
+        }
+
+        final List<byte[]> keys = new ArrayList<byte[]>(signatures.size());
+        final List<ImageSignature> values = new ArrayList<ImageSignature>(signatures.size());
+        final long[] offsets = new long[signatures.size()];
+        final int[] slotHashes = new int[capacity];
+        final long[] slotOffsets = new long[capacity];
+        long offset = tableEnd;
+        for (final Map.Entry<String, ImageSignature> entry : signatures.entrySet()) {
+            final byte[] key = entry.getKey().getBytes(KEY_ENCODING);
+            final long entryBytes = entryBytes(key, entry.getValue());
+            if (entryBytes > SEGMENT_BYTES) {
+                throw new IOException("Signature too large for a store file: " + entry.getKey());
+            }
+            if ((offset & (SEGMENT_BYTES - 1)) + entryBytes > SEGMENT_BYTES) {
+                offset = (offset + SEGMENT_BYTES) & ~(SEGMENT_BYTES - 1);
+            }
+            offsets[keys.size()] = offset;
+
+            final int hash = hash(key);
+            int slot = hash & (capacity - 1);
+            while (slotOffsets[slot] != 0) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            slotHashes[slot] = hash;
+            slotOffsets[slot] = offset;
+
+            keys.add(key);
+            values.add(entry.getValue());
+            offset += entryBytes;
+        }
+
+        final DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(storeFile)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(signatures.size());
+            out.writeInt(capacity);
+            for (int slot = 0; slot < capacity; slot++) {
+                out.writeInt(slotHashes[slot]);
+                out.writeLong(slotOffsets[slot]);
+            }
+
+            long position = tableEnd;
+            for (int i = 0; i < keys.size(); i++) {
+                for (; position < offsets[i]; position++) {
+                    out.writeByte(0);
+                }
+                final byte[] key = keys.get(i);
+                final ImageSignature signature = values.get(i);
+                out.writeInt(key.length);
+                out.write(key);
+                for (int pad = key.length; pad % INT_BYTES != 0; pad++) {
+                    out.writeByte(0);
+                }
+                out.writeInt(signature.getWidth());
+                out.writeInt(signature.getHeight());
+                out.writeInt(signature.getRegionColumns());
+                out.writeInt(signature.getRegionRows());
+                out.writeInt(signature.getSampleSize());
+                for (final int rgb : signature.regions()) {
+                    out.writeInt(rgb);
+                }
+                position += entryBytes(key, signature);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Open a store file and map it into memory.
+     *
+     * @param storeFile The file to open.
+     * @return The store.
+     * @throws IOException If the file can't be read or isn't a store file.
+     */
+    public static SignatureStore open(final File storeFile) throws IOException {
+
+        final RandomAccessFile raf = new RandomAccessFile(storeFile, "r");
+        boolean opened = false;
+        try {
+            final FileChannel channel = raf.getChannel();
+            final long length = channel.size();
+            final int segmentCount = (int) ((length + SEGMENT_BYTES - 1) >>> SEGMENT_SHIFT);
+            final MappedByteBuffer[] mapped = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                final long start = (long) i << SEGMENT_SHIFT;
+                mapped[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(SEGMENT_BYTES, length - start));
+                mapped[i].order(ByteOrder.BIG_ENDIAN);
+            }
+            if (length < HEADER_BYTES || mapped[0].getInt(0) != MAGIC) {
+                throw new IOException("Not a signature store: " + storeFile);
+            }
+            if (mapped[0].getInt(INT_BYTES) != VERSION) {
+                throw new IOException("Unsupported signature store version: " + storeFile);
+            }
+            final SignatureStore store = new SignatureStore(raf, mapped,
+                    mapped[0].getInt(COUNT_POSITION), mapped[0].getInt(CAPACITY_POSITION));
+            opened = true;
+            return store;
+        } finally {
+            if (!opened) {
+                raf.close();
+            }
+        }
+    }
+
+    /**
+     * Look up a signature.
+     *
+     * @param key The key of the signature.
+     * @return The signature or {@literal null}, if there is none for the key.
+     */
+    public ImageSignature get(final String key) {
+
+        final byte[] keyBytes;
+        try {
+            keyBytes = key.getBytes(KEY_ENCODING);
+        } catch (final UnsupportedEncodingException uee) {
+            throw new IllegalStateException(uee);
+        }
+
+        final ByteBuffer table = segments[0];
+        final int hash = hash(keyBytes);
+        int slot = hash & (tableCapacity - 1);
+        while (true) {
+            final int slotPosition = HEADER_BYTES + slot * SLOT_BYTES;
+            final long offset = table.getLong(slotPosition + SLOT_OFFSET_POSITION);
+            if (offset == 0) {
+                return null;
+            }
+            if (table.getInt(slotPosition) == hash) {
+                final ImageSignature signature = readIfKeyMatches(offset, keyBytes);
+                if (signature != null) {
+                    return signature;
+                }
+            }
+            slot = (slot + 1) & (tableCapacity - 1);
+        }
+    }
+
+    /**
+     * @return The number of signatures in the store.
+     */
+    public int size() {
+
+        return entryCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        file.close();
+    }
+
+    /**
+     * Read the entry at an offset, if it has the given key.
+     *
+     * @param offset The offset of the entry in the file.
+     * @param keyBytes The encoded key.
+     * @return The signature or {@literal null}, if the entry has another key.
+     */
+    private ImageSignature readIfKeyMatches(final long offset, final byte[] keyBytes) {
+
+        final ByteBuffer segment = segments[(int) (offset >>> SEGMENT_SHIFT)];
+        int position = (int) (offset & (SEGMENT_BYTES - 1));
+        if (segment.getInt(position) != keyBytes.length) {
+            return null;
+        }
+        position += INT_BYTES;
+        for (int i = 0; i < keyBytes.length; i++) {
+            if (segment.get(position + i) != keyBytes[i]) {
+                return null;
+            }
+        }
+        position += padToInt(keyBytes.length);
+
+        final int width = segment.getInt(position);
+        final int height = segment.getInt(position + INT_BYTES);
+        final int columns = segment.getInt(position + 2 * INT_BYTES);
+        final int rows = segment.getInt(position + 3 * INT_BYTES);
+        position += ENTRY_FIELDS_BYTES - INT_BYTES;
+        final int sampleSize = segment.getInt(position);
+        position += INT_BYTES;
+
+        // A view of our own, as positions of shared buffers must not be moved.
+        final ByteBuffer view = segment.duplicate();
+        view.position(position);
+        final IntBuffer rgb = view.slice().order(ByteOrder.BIG_ENDIAN).asIntBuffer();
+        final int[] regionRgb = new int[columns * rows];
+        rgb.get(regionRgb);
+
+        return new ImageSignature(width, height, columns, rows, sampleSize, regionRgb);
+    }
+
+    /**
+     * Calculate the size of an entry in bytes.
+     *
+     * @param key The encoded key.
+     * @param signature The signature.
+     * @return The size of the entry in bytes.
+     */
+    private static long entryBytes(final byte[] key, final ImageSignature signature) {
+
+        return INT_BYTES + padToInt(key.length) + ENTRY_FIELDS_BYTES
+                + (long) signature.regions().length * INT_BYTES;
+    }
+
+    /**
+     * Round a number of bytes up to a multiple of the size of an int.
+     *
+     * @param bytes The number of bytes.
+     * @return The number of bytes including padding.
+     */
+    private static int padToInt(final int bytes) {
+
+        return (bytes + INT_BYTES - 1) / INT_BYTES * INT_BYTES;
+    }
+
+    /**
+     * Hash an encoded key with the 32 bit FNV-1a hash, which doesn't depend on the JVM.
+     *
+     * @param key The encoded key.
+     * @return The hash.
+     */
+    private static int hash(final byte[] key) {
+
+        int hash = FNV_OFFSET_BASIS;
+        for (final byte b : key) {
+            hash = (hash ^ (b & BYTE_MASK)) * FNV_PRIME;
+        }
+
+        return hash;
+    }
+}
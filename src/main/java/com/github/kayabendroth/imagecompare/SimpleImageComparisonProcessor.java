@@ -24,211 +24,2014 @@ import static org.imgscalr.Scalr.Method;
 import static org.imgscalr.Scalr.Mode;
 
 import java.awt.Color;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
 import org.imgscalr.Scalr;
 
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+
+/**
+ * This is a simple image comparison processor. It only computes differences in the RGB values,
+ * without trying to match key parts of the two images first.
+ * <p>
+ * Based on the article "How do I compare two images to see if they are equal?" by Rafael Santos.
+ *
+ * <p>
+ * The processor doesn't keep any state between two comparisons, so a single instance can be
+ * shared by any number of threads.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth), Rafael Santos
+ * @since 1.0.0
+ * @see http://www.lac.inpe.br/JIPCookbook/6050-howto-compareimages.jsp
+ * @see http://stackoverflow.com/questions/8644960/java-library-to-compare-image-similarity
+ */
+public class SimpleImageComparisonProcessor implements ImageComparisonProcessor {
+
+
+    /**
+     * The size of a pixel vector is three.
+     */
+    private static final int PIXEL_VECTOR_SIZE = 3;
+
+    /**
+     * One hundred.
+     */
+    private static final int ONE_HUNDRED = 100;
+
+    /**
+     * The minimum number of pixels to be sampled for a signature, before the regions are split
+     * into bands of rows to be sampled in parallel.
+     */
+    private static final int PARALLEL_SIGNATURE_THRESHOLD = 1 << 20;
+
+    /**
+     * The minimum number of decoded pixels along one axis of a sampling area, when an encoded
+     * image is decoded with source subsampling.
+     */
+    private static final int MIN_SUBSAMPLED_PIXELS_PER_AREA = 8;
+
+    /**
+     * The relative tolerance a distance may exceed its budget by, before a comparison is stopped
+     * early. It covers rounding differences between summing the regions in another order and
+     * summing them row by row, so stopping early never changes a result.
+     */
+    private static final double EARLY_EXIT_TOLERANCE = 1e-9;
+
+    /**
+     * The step between the regions of the coarsest grid sampled first by
+     * {@link EarlyExit#COARSE_TO_FINE}.
+     */
+    private static final int COARSEST_REGION_STEP = 8;
+
+    /**
+     * A signature is calculated from a summed-area table, if its sampling areas cover the image
+     * more often than this. Building the table costs about as much as reading the image three
+     * times.
+     */
+    private static final int SUMMED_AREA_TABLE_COVERAGE = 4;
+
+    /**
+     * The listener for diagnostic output like timings.
+     */
+    private final ComparisonListener listener;
+
+    /**
+     * The executor to sample large signatures in parallel, or {@literal null}.
+     */
+    private final Executor executor;
+
+    /**
+     * How a test image is brought to the width of the reference.
+     */
+    private final TestImageScaling scaling;
+
+    /**
+     * Whether and how comparisons with a minimum percentage of equality stop early.
+     */
+    private final EarlyExit earlyExit;
+
+    /**
+     * The grid, sampling areas, scaling method and distance metric of comparisons.
+     */
+    private final ComparisonProfile profile;
+
+    /**
+     * The maximum number of decoded pixels of a tile of an encoded image.
+     */
+    private final int tilePixels;
+
+
+    /**
+     * This constructor creates a processor without any diagnostic output.
+     */
+    public SimpleImageComparisonProcessor() {
+
+        this(new NoOpComparisonListener());
+    }
+
+    /**
+     * This constructor creates a processor, which samples every signature in the calling thread.
+     *
+     * @param comparisonListener The listener for diagnostic output like timings.
+     */
+    public SimpleImageComparisonProcessor(final ComparisonListener comparisonListener) {
+
+        this(comparisonListener, null);
+    }
+
+    /**
+     * This constructor creates a processor, which re-scales every test image.
+     *
+     * @param comparisonListener The listener for diagnostic output like timings.
+     * @param executorService The executor to sample the regions of large signatures in parallel.
+     * The calling thread takes part in the work, so this may be the very same executor the
+     * comparisons are run on.
+     */
+    public SimpleImageComparisonProcessor(
+            final ComparisonListener comparisonListener,
+            final ExecutorService executorService) {
+
+        this(comparisonListener, executorService, TestImageScaling.RESCALE);
+    }
+
+    /**
+     * This constructor creates a processor, which never stops comparisons early.
+     *
+     * @param comparisonListener The listener for diagnostic output like timings.
+     * @param executorService The executor to sample the regions of large signatures in parallel.
+     * The calling thread takes part in the work, so this may be the very same executor the
+     * comparisons are run on.
+     * @param testImageScaling How a test image is brought to the width of the reference.
+     */
+    public SimpleImageComparisonProcessor(
+            final ComparisonListener comparisonListener,
+            final ExecutorService executorService,
+            final TestImageScaling testImageScaling) {
+
+        this(comparisonListener, executorService, testImageScaling, EarlyExit.OFF);
+    }
+
+    /**
+     * This constructor creates a processor with the {@link ComparisonProfile#BALANCED} profile.
+     *
+     * @param comparisonListener The listener for diagnostic output like timings.
+     * @param executorService The executor to sample the regions of large signatures in parallel.
+     * The calling thread takes part in the work, so this may be the very same executor the
+     * comparisons are run on.
+     * @param testImageScaling How a test image is brought to the width of the reference.
+     * @param comparisonEarlyExit Whether and how comparisons with a minimum percentage of
+     * equality stop early.
+     */
+    public SimpleImageComparisonProcessor(
+            final ComparisonListener comparisonListener,
+            final ExecutorService executorService,
+            final TestImageScaling testImageScaling,
+            final EarlyExit comparisonEarlyExit) {
+
+        this(comparisonListener, executorService, testImageScaling, comparisonEarlyExit,
+                ComparisonProfile.BALANCED);
+    }
+
+    /**
+     * This is the constructor.
+     *
+     * @param comparisonListener The listener for diagnostic output like timings.
+     * @param executorService The executor to sample the regions of large signatures in parallel.
+     * The calling thread takes part in the work, so this may be the very same executor the
+     * comparisons are run on.
+     * @param testImageScaling How a test image is brought to the width of the reference.
+     * @param comparisonEarlyExit Whether and how comparisons with a minimum percentage of
+     * equality stop early.
+     * @param comparisonProfile The grid, sampling areas, scaling method and distance metric of
+     * comparisons.
+     */
+    public SimpleImageComparisonProcessor(
+            final ComparisonListener comparisonListener,
+            final ExecutorService executorService,
+            final TestImageScaling testImageScaling,
+            final EarlyExit comparisonEarlyExit,
+            final ComparisonProfile comparisonProfile) {
+
+        this(comparisonListener, executorService, testImageScaling, comparisonEarlyExit,
+                comparisonProfile, ImageComparisonModule.DEFAULT_TILE_PIXELS);
+    }
+
+    /**
+     * This is the constructor.
+     *
+     * @param comparisonListener The listener for diagnostic output like timings.
+     * @param executorService The executor to sample the regions of large signatures in parallel.
+     * The calling thread takes part in the work, so this may be the very same executor the
+     * comparisons are run on.
+     * @param testImageScaling How a test image is brought to the width of the reference.
+     * @param comparisonEarlyExit Whether and how comparisons with a minimum percentage of
+     * equality stop early.
+     * @param comparisonProfile The grid, sampling areas, scaling method and distance metric of
+     * comparisons.
+     * @param maxTilePixels The maximum number of decoded pixels of a tile of an encoded image.
+     */
+    @Inject
+    public SimpleImageComparisonProcessor(
+            final ComparisonListener comparisonListener,
+            @Named(ImageComparisonModule.COMPARISON_EXECUTOR)
+            final ExecutorService executorService,
+            final TestImageScaling testImageScaling,
+            final EarlyExit comparisonEarlyExit,
+            final ComparisonProfile comparisonProfile,
+            @Named(ImageComparisonModule.TILE_PIXELS)
+            final int maxTilePixels) {
+
+        this.listener = comparisonListener;
+        this.executor = executorService;
+        this.scaling = testImageScaling;
+        this.earlyExit = comparisonEarlyExit;
+        this.profile = comparisonProfile;
+        this.tilePixels = maxTilePixels;
+    }
+
+    /**
+     * This constructor creates a copy of a processor with another profile.
+     *
+     * @param processor The processor to copy.
+     * @param comparisonProfile The profile of the copy.
+     */
+    private SimpleImageComparisonProcessor(
+            final SimpleImageComparisonProcessor processor,
+            final ComparisonProfile comparisonProfile) {
+
+        this.listener = processor.listener;
+        this.executor = processor.executor;
+        this.scaling = processor.scaling;
+        this.earlyExit = processor.earlyExit;
+        this.profile = comparisonProfile;
+        this.tilePixels = processor.tilePixels;
+    }
+
+
+    @Override
+    public final ComparisonProfile getProfile() {
+
+        return profile;
+    }
+
+    @Override
+    public final ImageComparisonProcessor withProfile(final ComparisonProfile comparisonProfile) {
+
+        if (profile.equals(comparisonProfile)) { return this; }
+
+        return new SimpleImageComparisonProcessor(this, comparisonProfile);
+    }
+
+
+    @Override
+    public final boolean compare(
+            final BufferedImage testImage,
+            final BufferedImage referenceImage,
+            final double definitionOfEqual) throws InvalidArgumentException {
+
+        /**
+         * Set all the values we need for the processing, starting with the definition of equal.
+         *
+         * Definition of equal is not allowed to be lower than zero or higher than one hundred.
+         */
+        checkDefinitionOfEqual(definitionOfEqual);
+
+        // Calculate the signature vector for the reference.
+        final long start = System.nanoTime();
+        final ImageSignature refSignature = createSignature(referenceImage);
+
+        return isEqual(compareDetailed(testImage, refSignature, System.nanoTime() - start,
+                definitionOfEqual), definitionOfEqual);
+    }
+
+    @Override
+    public final boolean compare(final BufferedImage testImage, final BufferedImage referenceImage)
+    {
+        boolean areEqual = false;
+        try {
+            areEqual = compare(testImage, referenceImage, DEFAULT_DEFINITION_OF_EQUAL);
+        } catch (final InvalidArgumentException iae) {
+            listener.invalidArgument(iae);
+        }
+
+        return areEqual;
+    }
+
+    @Override
+    public final ImageSignature createSignature(final BufferedImage image) {
+
+        return createMaskedSignature(image, null);
+    }
+
+    @Override
+    public final ImageSignature createSignature(final BufferedImage image, final ImageMask mask)
+        throws InvalidArgumentException {
+
+        if (mask == null) {
+            throw new InvalidArgumentException("Mask is required.");
+        }
+
+        final ImageSignature signature = createMaskedSignature(image, mask);
+        if (signature.getActiveRegionCount() == 0) {
+            throw new InvalidArgumentException("Mask leaves no region to compare.");
+        }
+
+        return signature;
+    }
+
+    /**
+     * Compute the signature of an image, leaving out the regions masked.
+     *
+     * @param image The image to compute the signature for.
+     * @param mask The mask or {@literal null}.
+     * @return The signature of the image.
+     */
+    private ImageSignature createMaskedSignature(final BufferedImage image, final ImageMask mask) {
+
+        /**
+         * The width of the image. This value also determines the to-be-scaled-to-width of every
+         * test image compared to this signature.
+         */
+        final int referenceWidth = image.getWidth();
+        final int referenceHeight = image.getHeight();
+
+        /**
+         * The numbers of columns and rows determine the total amount of reference pixels. The
+         * higher they are, the higher the overall quality of the comparison. They're determined
+         * by the grid layout of the profile.
+         *
+         * @see ComparisonProfile#getGridLayout()
+         */
+        final int[] grid = calcGrid(referenceWidth, referenceHeight);
+        final int columns = grid[0];
+        final int rows = grid[1];
+
+        // The sampling areas have to fit into the image.
+        final int sampleSize = fitSampleSize(referenceWidth, referenceHeight, columns, rows,
+                calcTargetSampleSize(referenceWidth, columns));
+
+        /**
+         * The image "signature" (columns * rows representative pixels, each in R,G,B). Every
+         * pixel is packed into a single int. Masked regions aren't sampled at all.
+         */
+        final long start = System.nanoTime();
+        final int[][] areas = calcSamplingAreas(referenceWidth, referenceHeight, referenceWidth,
+                referenceHeight, columns, rows, sampleSize);
+        int[] maskedRegions = null;
+        if (mask != null) {
+            maskedRegions = mask.maskRegions(areas, referenceWidth, referenceHeight);
+        }
+        final int[] sig = calcSignature(createAverager(image, areas), areas, columns, rows,
+                sampleSize, executor, maskedRegions);
+        signatureCalculated(referenceWidth, referenceHeight, columns, sampleSize, start);
+
+        return new ImageSignature(referenceWidth, referenceHeight, columns, rows, sampleSize, sig);
+    }
+
+    /**
+     * Calculate the grid of regions of a reference image according to the profile.
+     *
+     * @param width The width of the reference image.
+     * @param height The height of the reference image.
+     * @return The number of columns and the number of rows of regions.
+     */
+    private int[] calcGrid(final int width, final int height) {
+
+        if (profile.getGridLayout() == GridLayout.FIXED) {
+            final int columns = profile.getGridColumns();
+            final int rows = Math.max(1, Math.round((float) columns * height / width));
+            return new int[] {columns, rows};
+        }
+
+        final int regions = width / profile.getDistanceBetweenReferencePixels();
+        if (profile.getGridLayout() == GridLayout.ASPECT_RATIO) {
+            return new int[] {Math.max(1, regions),
+                Math.max(1, height / profile.getDistanceBetweenReferencePixels())};
+        }
+
+        return new int[] {regions, regions};
+    }
+
+    /**
+     * Calculate the sample size to aim at for a reference image according to the profile. For a
+     * fixed grid, the sampling areas keep the proportion of the target sample size to the
+     * distance between reference pixels of the profile.
+     *
+     * @param width The width of the reference image.
+     * @param columns The number of columns of regions.
+     * @return The sample size to start with.
+     */
+    private int calcTargetSampleSize(final int width, final int columns) {
+
+        if (profile.getGridLayout() == GridLayout.FIXED) {
+            return (int) ((long) width * profile.getTargetSampleSize()
+                    / ((long) columns * profile.getDistanceBetweenReferencePixels()));
+        }
+
+        return profile.getTargetSampleSize();
+    }
+
+    /**
+     * Create the signature of an image from its summed-area table, with a grid of any density.
+     * A table may be reused for any number of signatures, each of them costing a few lookups per
+     * region only, no matter how large the sampling areas are.
+     *
+     * @param table The summed-area table of the image.
+     * @param refRegionsInOneDimension The number of regions along each axis, at least one.
+     * @return The signature of the image.
+     */
+    public final ImageSignature createSignature(
+            final SummedAreaTable table,
+            final int refRegionsInOneDimension) {
+
+        return createSignature(table, refRegionsInOneDimension, refRegionsInOneDimension);
+    }
+
+    /**
+     * Create the signature of an image from its summed-area table, with a grid of any numbers of
+     * columns and rows.
+     *
+     * @param table The summed-area table of the image.
+     * @param columns The number of columns of regions, at least one.
+     * @param rows The number of rows of regions, at least one.
+     * @return The signature of the image.
+     */
+    public final ImageSignature createSignature(
+            final SummedAreaTable table,
+            final int columns,
+            final int rows) {
+
+        final int width = table.getWidth();
+        final int height = table.getHeight();
+        final int sampleSize = fitSampleSize(width, height, columns, rows,
+                calcTargetSampleSize(width, columns));
+
+        final long start = System.nanoTime();
+        final int[][] areas = calcSamplingAreas(width, height, width, height, columns, rows,
+                sampleSize);
+        final int[] sig = calcSignature(table, areas, columns, rows, sampleSize, executor,
+                null);
+        signatureCalculated(width, height, columns, sampleSize, start);
+
+        return new ImageSignature(width, height, columns, rows, sampleSize, sig);
+    }
+
+    @Override
+    public final boolean compareWithSignature(
+            final BufferedImage testImage,
+            final ImageSignature referenceSignature,
+            final double definitionOfEqual) throws InvalidArgumentException {
+
+        checkDefinitionOfEqual(definitionOfEqual);
+
+        /**
+         * The two images are considered to be equal, if the test image is identical to the
+         * reference image for at least the amount of {{@link DEFAULT_DEFINITION_OF_EQUAL}}.
+         *
+         * @see DEFAULT_DEFINITION_OF_EQUAL
+         */
+        return isEqual(compareDetailed(testImage, referenceSignature, 0, definitionOfEqual),
+                definitionOfEqual);
+    }
+
+    @Override
+    public final boolean compareWithSignature(final BufferedImage testImage,
+            final ImageSignature referenceSignature) {
+
+        boolean areEqual = false;
+        try {
+            areEqual = compareWithSignature(testImage, referenceSignature,
+                    DEFAULT_DEFINITION_OF_EQUAL);
+        } catch (final InvalidArgumentException iae) {
+            listener.invalidArgument(iae);
+        }
+
+        return areEqual;
+    }
+
+    @Override
+    public final boolean compareSignatures(
+            final ImageSignature testSignature,
+            final ImageSignature referenceSignature,
+            final double definitionOfEqual) throws InvalidArgumentException {
+
+        checkDefinitionOfEqual(definitionOfEqual);
+
+        return compareDetailed(testSignature, referenceSignature).isEqual(definitionOfEqual);
+    }
+
+    @Override
+    public final boolean compareSignatures(final ImageSignature testSignature,
+            final ImageSignature referenceSignature) {
+
+        boolean areEqual = false;
+        try {
+            areEqual = compareSignatures(testSignature, referenceSignature,
+                    DEFAULT_DEFINITION_OF_EQUAL);
+        } catch (final InvalidArgumentException iae) {
+            listener.invalidArgument(iae);
+        }
+
+        return areEqual;
+    }
+
+    @Override
+    public final ComparisonResult compareDetailed(
+            final BufferedImage testImage,
+            final BufferedImage referenceImage) {
+
+        // Calculate the signature vector for the reference.
+        final long start = System.nanoTime();
+        final ImageSignature refSignature = createSignature(referenceImage);
+
+        return compareDetailed(testImage, refSignature, System.nanoTime() - start, Double.NaN);
+    }
+
+    @Override
+    public final ComparisonResult compareDetailed(
+            final BufferedImage testImage,
+            final ImageSignature referenceSignature) {
+
+        return compareDetailed(testImage, referenceSignature, 0, Double.NaN);
+    }
+
+    @Override
+    public final ComparisonResult compareDetailed(
+            final ImageSignature testSignature,
+            final ImageSignature referenceSignature) throws InvalidArgumentException {
+
+        checkSameGrid(testSignature, referenceSignature);
+
+        return calcResult(testSignature.regions(), referenceSignature, 0, 0, null,
+                testSignature.isMasked());
+    }
+
+    @Override
+    public final RegionDiff compareRegions(
+            final BufferedImage testImage,
+            final ImageSignature referenceSignature) {
+
+        final double[] regionDistances = new double[referenceSignature.getRegionColumns()
+                * referenceSignature.getRegionRows()];
+        final ComparisonResult result = compareDetailed(testImage, referenceSignature, 0,
+                Double.NaN, regionDistances);
+
+        return new RegionDiff(result, regionDistances,
+                profile.getDistanceMetric().maxRegionDistance(), referenceSignature.getWidth(),
+                referenceSignature.getHeight());
+    }
+
+    @Override
+    public final RegionDiff compareRegions(
+            final ImageSignature testSignature,
+            final ImageSignature referenceSignature) throws InvalidArgumentException {
+
+        checkSameGrid(testSignature, referenceSignature);
+
+        final double[] regionDistances = new double[referenceSignature.getRegionColumns()
+                * referenceSignature.getRegionRows()];
+        final ComparisonResult result = calcResult(testSignature.regions(), referenceSignature,
+                0, 0, regionDistances, testSignature.isMasked());
+
+        return new RegionDiff(result, regionDistances,
+                profile.getDistanceMetric().maxRegionDistance(), referenceSignature.getWidth(),
+                referenceSignature.getHeight());
+    }
+
+    /**
+     * Check, whether two signatures can be compared to each other.
+     *
+     * @param testSignature The signature of the test image.
+     * @param referenceSignature The signature of the reference image.
+     * @throws InvalidArgumentException If the signatures have been computed with different grids
+     * of regions.
+     */
+    private static void checkSameGrid(
+            final ImageSignature testSignature,
+            final ImageSignature referenceSignature) throws InvalidArgumentException {
+
+        /**
+         * Signatures of images with different widths have not been sampled the same way, unless
+         * their grids have been laid out independently of the width. Grids following the aspect
+         * ratio differ for images of the same width, but different height.
+         */
+        if (!testSignature.hasSameGrid(referenceSignature)) {
+            if (testSignature.getWidth() != referenceSignature.getWidth()) {
+                throw new InvalidArgumentException("Test signature and reference signature have "
+                        + "been computed for images of different width.");
+            }
+            throw new InvalidArgumentException("Test signature and reference signature have been "
+                    + "computed with different grids of regions.");
+        }
+    }
+
+    /**
+     * Compare an image to a reference signature.
+     *
+     * @param testImage The image you want to test.
+     * @param referenceSignature The signature of the reference image for the test.
+     * @param referenceNanos The time already spent for the reference signature in nanoseconds.
+     * @param definitionOfEqual The minimum percentage of equality, which allows to stop early, or
+     * {@link Double#NaN} to compare every region.
+     * @return The result of the comparison or {@literal null}, if the comparison has been stopped
+     * early, because the images can't be equal anymore.
+     */
+    private ComparisonResult compareDetailed(
+            final BufferedImage testImage,
+            final ImageSignature referenceSignature,
+            final long referenceNanos,
+            final double definitionOfEqual) {
+
+        return compareDetailed(testImage, referenceSignature, referenceNanos, definitionOfEqual,
+                null);
+    }
+
+    /**
+     * Compare an image to a reference signature.
+     *
+     * @param testImage The image you want to test.
+     * @param referenceSignature The signature of the reference image for the test.
+     * @param referenceNanos The time already spent for the reference signature in nanoseconds.
+     * @param definitionOfEqual The minimum percentage of equality, which allows to stop early, or
+     * {@link Double#NaN} to compare every region.
+     * @param regionDistances The array receiving the distance of every region, or {@literal null}.
+     * @return The result of the comparison or {@literal null}, if the comparison has been stopped
+     * early, because the images can't be equal anymore.
+     */
+    private ComparisonResult compareDetailed(
+            final BufferedImage testImage,
+            final ImageSignature referenceSignature,
+            final long referenceNanos,
+            final double definitionOfEqual,
+            final double[] regionDistances) {
+
+        final int referenceWidth = referenceSignature.getWidth();
+        final int columns = referenceSignature.getRegionColumns();
+        final int rows = referenceSignature.getRegionRows();
+
+        /**
+         * Re-scale the test image to match the width of our reference image, unless the
+         * signature is to be calculated straight from the pixels of the test image.
+         */
+        BufferedImage testImageScaled = testImage;
+        long rescaleNanos = 0;
+        if (scaling == TestImageScaling.RESCALE) {
+            final long rescaleStart = System.nanoTime();
+            testImageScaled = rescaleToWidth(testImage, referenceWidth,
+                    profile.getScalingMethod());
+            rescaleNanos = testImageRescaled(testImageScaled, rescaleStart);
+
+            /**
+             * "This operation leaves the original src image unmodified. If the caller is done with
+             * the src image after getting the result of this operation, remember to call
+             * Image.flush() on the src to free up native resources and make it easier for the GC
+             * to collect the unused image."
+             *
+             * @see org.imgscalr.Scalr.resize()
+             */
+            testImage.flush();
+        }
+        final int targetHeight = fitToWidthHeight(testImageScaled, referenceWidth);
+
+        /**
+         * Calculate the signature vector for the test image. We start with the sample size of the
+         * reference, which may need to be reduced further for the re-scaled test image.
+         */
+        final int sampleSize = fitTestSampleSize(targetHeight, referenceSignature);
+        final long signatureStart = System.nanoTime();
+        final int[] testSignature;
+        if (earlyExit == EarlyExit.OFF || Double.isNaN(definitionOfEqual)) {
+            testSignature = calcSignature(testImageScaled, referenceWidth, targetHeight, columns,
+                    rows, sampleSize, executor, maskOf(referenceSignature));
+        } else {
+            testSignature = calcSignatureWithinBudget(testImageScaled, referenceWidth,
+                    targetHeight, referenceSignature, sampleSize, definitionOfEqual,
+                    signatureStart);
+            if (testSignature == null) {
+                return null;
+            }
+        }
+        final long signatureNanos = signatureCalculated(referenceWidth, targetHeight, columns,
+                sampleSize, signatureStart);
+
+        return calcResult(testSignature, referenceSignature, referenceNanos + signatureNanos,
+                rescaleNanos, regionDistances, false);
+    }
+
+    /**
+     * Check a result against a minimum percentage of equality.
+     *
+     * @param result The result or {@literal null}, if the comparison has been stopped early.
+     * @param definitionOfEqual The minimum percentage of equality.
+     * @return {@literal true}, if the images are considered to be equal.
+     * @throws InvalidArgumentException If {@literal definitionOfEqual} is lower than zero or
+     * higher than one hundred.
+     */
+    private static boolean isEqual(final ComparisonResult result, final double definitionOfEqual)
+        throws InvalidArgumentException {
+
+        if (result == null) {
+            return false;
+        }
+
+        return result.isEqual(definitionOfEqual);
+    }
+
+    /**
+     * Sample the signature of a test image region by region and stop as soon as the distance to
+     * the reference exceeds what the minimum percentage of equality allows.
+     *
+     * @param image The test image, re-scaled or not.
+     * @param targetWidth The width to lay out the sampling areas for, i.e. the width of the
+     * reference.
+     * @param targetHeight The height to lay out the sampling areas for.
+     * @param referenceSignature The signature of the reference image.
+     * @param sampleSize The size of the sampling areas.
+     * @param definitionOfEqual The minimum percentage of equality.
+     * @param start The value of {@link System#nanoTime()} before sampling.
+     * @return The complete signature of the test image or {@literal null}, if the distance budget
+     * has been exceeded.
+     */
+    private int[] calcSignatureWithinBudget(
+            final BufferedImage image,
+            final int targetWidth,
+            final int targetHeight,
+            final ImageSignature referenceSignature,
+            final int sampleSize,
+            final double definitionOfEqual,
+            final long start) {
+
+        final int columns = referenceSignature.getRegionColumns();
+        final int rows = referenceSignature.getRegionRows();
+        final int[] reference = referenceSignature.regions();
+        final int[][] areas = calcSamplingAreas(image.getWidth(), image.getHeight(), targetWidth,
+                targetHeight, columns, rows, sampleSize);
+        final int[] fromX = areas[0];
+        final int[] toX = areas[1];
+        final int[] fromY = areas[2];
+        final int[] toY = areas[3];
+
+        /**
+         * The images are equal, if distance / maxDistance * 100 <= 100 - definitionOfEqual. The
+         * tolerance keeps rounding from ever stopping a comparison, which would succeed.
+         */
+        final DistanceMetric metric = profile.getDistanceMetric();
+        final double budget = metric.maxDistance(referenceSignature.getActiveRegionCount())
+                * (ONE_HUNDRED - definitionOfEqual) / ONE_HUNDRED;
+        final double limit = budget + budget * EARLY_EXIT_TOLERANCE;
+
+        final RegionAverager averager = RegionAveragers.forImage(image);
+        final int[] order = calcRegionOrder(columns, rows, earlyExit);
+        final int[] sig = new int[reference.length];
+        double distance = 0;
+        for (int i = 0; i < order.length; i++) {
+            final int region = order[i];
+            if ((reference[region] & ImageSignature.MASKED_REGION) != 0) {
+                sig[region] = ImageSignature.MASKED_REGION;
+                continue;
+            }
+            final int x = region % columns;
+            final int y = region / columns;
+            sig[region] = averager.averageRgb(fromX[x], fromY[y], toX[x], toY[y]);
+            distance += metric.regionDistance(sig[region], reference[region]);
+            if (distance > limit) {
+                if (listener.isEnabled()) {
+                    listener.comparisonStoppedEarly(i + 1, order.length,
+                            System.nanoTime() - start);
+                }
+                return null;
+            }
+        }
+
+        return sig;
+    }
+
+    /**
+     * Calculate the order, in which the regions are sampled when a comparison may stop early.
+     *
+     * @param refRegionsInOneDimension The number of reference regions in one dimension.
+     * @param mode How the comparison stops early.
+     * @return The indices of all regions in the order to sample them.
+     */
+    protected static final int[] calcRegionOrder(
+            final int refRegionsInOneDimension,
+            final EarlyExit mode) {
+
+        return calcRegionOrder(refRegionsInOneDimension, refRegionsInOneDimension, mode);
+    }
+
+    /**
+     * Calculate the order, in which the regions of a grid of any numbers of columns and rows are
+     * sampled when a comparison may stop early.
+     *
+     * @param columns The number of columns of regions.
+     * @param rows The number of rows of regions.
+     * @param mode How the comparison stops early.
+     * @return The indices of all regions in the order to sample them.
+     */
+    protected static final int[] calcRegionOrder(
+            final int columns,
+            final int rows,
+            final EarlyExit mode) {
+
+        final int[] order = new int[columns * rows];
+        if (mode != EarlyExit.COARSE_TO_FINE) {
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            return order;
+        }
+
+        /**
+         * Every step halves the distance between the sampled regions and adds the regions, which
+         * haven't been part of the coarser grid before.
+         */
+        int i = 0;
+        for (int step = COARSEST_REGION_STEP; step > 0; step /= 2) {
+            final int coarserStep = step * 2;
+            for (int y = 0; y < rows; y += step) {
+                for (int x = 0; x < columns; x += step) {
+                    if (step == COARSEST_REGION_STEP || x % coarserStep != 0
+                            || y % coarserStep != 0) {
+                        order[i++] = y * columns + x;
+                    }
+                }
+            }
+        }
+
+        return order;
+    }
+
+    @Override
+    public final List<ReferenceMatch> compareAll(
+            final BufferedImage testImage,
+            final List<ImageSignature> referenceSignatures) {
+
+        /**
+         * Group the references by their width, so the test image needs to be re-scaled only once
+         * per distinct width. Only one re-scaled test image is held in memory at any time.
+         */
+        final Map<Integer, List<Integer>> indicesByWidth =
+                new LinkedHashMap<Integer, List<Integer>>();
+        for (int i = 0; i < referenceSignatures.size(); i++) {
+            final Integer width = referenceSignatures.get(i).getWidth();
+            List<Integer> indices = indicesByWidth.get(width);
+            if (indices == null) {
+                indices = new ArrayList<Integer>();
+                indicesByWidth.put(width, indices);
+            }
+            indices.add(i);
+        }
+
+        final List<ReferenceMatch> matches =
+                new ArrayList<ReferenceMatch>(referenceSignatures.size());
+        for (final Map.Entry<Integer, List<Integer>> group : indicesByWidth.entrySet()) {
+            final int referenceWidth = group.getKey();
+            BufferedImage testImageScaled = testImage;
+            long rescaleNanos = 0;
+            if (scaling == TestImageScaling.RESCALE) {
+                final long rescaleStart = System.nanoTime();
+                testImageScaled = rescaleToWidth(testImage, referenceWidth,
+                        profile.getScalingMethod());
+                rescaleNanos = testImageRescaled(testImageScaled, rescaleStart);
+            }
+            final int targetHeight = fitToWidthHeight(testImageScaled, referenceWidth);
+
+            /**
+             * References of the same width mostly share their grid, but their grids and sample
+             * sizes may differ. So we keep one test signature per grid and sample size. Masked
+             * references get a test signature of their own, which leaves out their masked
+             * regions.
+             */
+            final Map<List<Integer>, int[]> testSignatures = new HashMap<List<Integer>, int[]>();
+            for (final Integer index : group.getValue()) {
+                final ImageSignature referenceSignature = referenceSignatures.get(index);
+                final int columns = referenceSignature.getRegionColumns();
+                final int rows = referenceSignature.getRegionRows();
+                final int sampleSize = fitTestSampleSize(targetHeight, referenceSignature);
+                final List<Integer> sampling = Arrays.asList(columns, rows, sampleSize);
+
+                long signatureNanos = 0;
+                int[] testSignature = null;
+                if (!referenceSignature.isMasked()) {
+                    testSignature = testSignatures.get(sampling);
+                }
+                if (testSignature == null) {
+                    final long signatureStart = System.nanoTime();
+                    testSignature = calcSignature(testImageScaled, referenceWidth, targetHeight,
+                            columns, rows, sampleSize, executor, maskOf(referenceSignature));
+                    signatureNanos = signatureCalculated(referenceWidth, targetHeight, columns,
+                            sampleSize, signatureStart);
+                    if (!referenceSignature.isMasked()) {
+                        testSignatures.put(sampling, testSignature);
+                    }
+                }
+
+                // Re-used work is accounted to the first reference only.
+                matches.add(new ReferenceMatch(index, referenceSignature,
+                        calcResult(testSignature, referenceSignature, signatureNanos,
+                                rescaleNanos)));
+                rescaleNanos = 0;
+            }
+        }
+        testImage.flush();
+
+        // The best match comes first.
+        Collections.sort(matches);
+
+        return matches;
+    }
+
+    @Override
+    public final ImageSignature createSignature(final ImageInputStream input) throws IOException {
+
+        final ImageReader reader = createReader(input);
+        try {
+            final int width = reader.getWidth(0);
+            final int height = reader.getHeight(0);
+            final int[] grid = calcGrid(width, height);
+            final int columns = grid[0];
+            final int rows = grid[1];
+            final int sampleSize = fitSampleSize(width, height, columns, rows,
+                    calcTargetSampleSize(width, columns));
+
+            final long start = System.nanoTime();
+            final int[] sig = calcSignatureTiled(reader, width, height, columns, rows,
+                    sampleSize, null);
+            signatureCalculated(width, height, columns, sampleSize, start);
+
+            return new ImageSignature(width, height, columns, rows, sampleSize, sig);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    @Override
+    public final ComparisonResult compareDetailed(
+            final ImageInputStream testInput,
+            final ImageSignature referenceSignature) throws IOException {
+
+        final ImageReader reader = createReader(testInput);
+        try {
+            final int referenceWidth = referenceSignature.getWidth();
+            final int columns = referenceSignature.getRegionColumns();
+            final int rows = referenceSignature.getRegionRows();
+            final int width = reader.getWidth(0);
+            final float ratio = (float) reader.getHeight(0) / (float) width;
+            final int targetHeight = Math.round((float) referenceWidth * ratio);
+            final int sampleSize = fitTestSampleSize(targetHeight, referenceSignature);
+
+            /**
+             * The sampling areas are laid out for the test image re-scaled to the width of the
+             * reference, so they are mapped to the encoded pixels just like with
+             * {@link TestImageScaling#DIRECT}.
+             */
+            final long signatureStart = System.nanoTime();
+            final int[] testSignature = calcSignatureTiled(reader, referenceWidth, targetHeight,
+                    columns, rows, sampleSize, referenceSignature);
+            final long signatureNanos = signatureCalculated(referenceWidth, targetHeight, columns,
+                    sampleSize, signatureStart);
+
+            return calcResult(testSignature, referenceSignature, signatureNanos, 0);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * Definition of equal is not allowed to be lower than zero or higher than one hundred.
+     *
+     * @param definitionOfEqual The minimum percentage of equality to check.
+     * @throws InvalidArgumentException If {@literal definitionOfEqual} is lower than zero or
+     * higher than one hundred.
+     */
+    static void checkDefinitionOfEqual(final double definitionOfEqual)
+            throws InvalidArgumentException {
+
+        if (definitionOfEqual < 0 || definitionOfEqual > ONE_HUNDRED) {
+            throw new InvalidArgumentException("Minmum percentage for equality is not allowed to "
+                    + "be lower than zero or higher than one hundred.");
+        }
+    }
+
+    /**
+     * Calculate how much of the test image is identical to the reference image.
+     *
+     * @param testSignature The signature of the test image, computed with the same number of
+     * regions as the reference signature.
+     * @param referenceSignature The signature of the reference image.
+     * @param signatureNanos The time spent for the signatures in nanoseconds.
+     * @param rescaleNanos The time spent for re-scaling the test image in nanoseconds.
+     * @return The result of the comparison.
+     */
+    private ComparisonResult calcResult(
+            final int[] testSignature,
+            final ImageSignature referenceSignature,
+            final long signatureNanos,
+            final long rescaleNanos) {
+
+        return calcResult(testSignature, referenceSignature, signatureNanos, rescaleNanos, null,
+                false);
+    }
+
+    /**
+     * Calculate how much of the test image is identical to the reference image.
+     *
+     * @param testSignature The signature of the test image, computed with the same number of
+     * regions as the reference signature.
+     * @param referenceSignature The signature of the reference image.
+     * @param signatureNanos The time spent for the signatures in nanoseconds.
+     * @param rescaleNanos The time spent for re-scaling the test image in nanoseconds.
+     * @param regionDistances The array receiving the distance of every region, or {@literal null}.
+     * The distance to the reference is summed up from these, instead of in a single pass.
+     * @param testMasked {@literal true}, if the test signature has masked regions of its own.
+     * Regions masked in either signature are left out.
+     * @return The result of the comparison.
+     */
+    private ComparisonResult calcResult(
+            final int[] testSignature,
+            final ImageSignature referenceSignature,
+            final long signatureNanos,
+            final long rescaleNanos,
+            final double[] regionDistances,
+            final boolean testMasked) {
+
+        final int columns = referenceSignature.getRegionColumns();
+        final int rows = referenceSignature.getRegionRows();
+
+        /**
+         * Calculate the distance to the other image. Masked regions don't add to the distance and
+         * the maximum possible distance between reference image and test image counts the
+         * regions compared only.
+         */
+        final DistanceMetric metric = profile.getDistanceMetric();
+        final long start = System.nanoTime();
+        double distanceToReference = 0;
+        int activeRegions = columns * rows;
+        if (regionDistances == null && !referenceSignature.isMasked() && !testMasked) {
+            distanceToReference = metric.distance(testSignature, referenceSignature.regions(),
+                    columns * rows);
+        } else {
+            final int[] referenceRegions = referenceSignature.regions();
+            activeRegions = 0;
+            for (int i = 0; i < columns * rows; i++) {
+                if (((testSignature[i] | referenceRegions[i]) & ImageSignature.MASKED_REGION)
+                        != 0) {
+                    continue;
+                }
+                final double regionDistance =
+                        metric.regionDistance(testSignature[i], referenceRegions[i]);
+                if (regionDistances != null) {
+                    regionDistances[i] = regionDistance;
+                }
+                distanceToReference += regionDistance;
+                activeRegions++;
+            }
+        }
+        final double maxDistance = metric.maxDistance(activeRegions);
+        final long distanceNanos = System.nanoTime() - start;
+
+        final ComparisonResult result = new ComparisonResult(distanceToReference, maxDistance,
+                columns, rows, signatureNanos, rescaleNanos, distanceNanos);
+        if (listener.isEnabled()) {
+            listener.distanceCalculated(distanceToReference, maxDistance,
+                    result.getPercentageOfEquality(), distanceNanos);
+        }
+
+        return result;
+    }
+
+    /**
+     * Re-scale the test image to match the width of our reference image. The library
+     * {@literal imgscalr} will be used with following options:
+     * <ul>
+     *   <li>the scaling method is determined by the profile and</li>
+     *   <li>we re-scale in {@literal FIT_TO_WIDTH} mode always</li>
+     * </ul>
+     *
+     * @param testImage The image you want to test.
+     * @param referenceWidth The width of the reference image.
+     * @param scalingMethod The scaling method.
+     * @return The re-scaled test image.
+     * @see http://www.thebuzzmedia.com/software/imgscalr-java-image-scaling-library
+     * @see ComparisonProfile#getScalingMethod()
+     * @see org.imgscalr.Scalr.Mode.FIT_TO_WIDTH
+     */
+    private static BufferedImage rescaleToWidth(
+            final BufferedImage testImage,
+            final int referenceWidth,
+            final Method scalingMethod) {
+
+        return Scalr.resize(testImage, scalingMethod, Mode.FIT_TO_WIDTH, referenceWidth, 1);
+    }
+
+    /**
+     * Create a reader for the first image of an encoded input.
+     *
+     * @param input The encoded image.
+     * @return The reader, which has to be disposed of.
+     * @throws IOException If there is no reader for the format of the image.
+     */
+    private static ImageReader createReader(final ImageInputStream input) throws IOException {
+
+        final Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            throw new IOException("No image reader found for the input.");
+        }
+        final ImageReader reader = readers.next();
+        // Images decoded in tiles are read several times, so the input is not read forward only.
+        reader.setInput(input, false, true);
+
+        return reader;
+    }
+
+    /**
+     * This method calculates the signature of an encoded image tile by tile. The sampling areas
+     * are grouped into tiles of neighbouring regions, so no tile decodes to more than
+     * {@link #tilePixels} pixels, unless a single sampling area does. Every tile is decoded on its
+     * own with source subsampling and dropped as soon as its regions have been averaged. So the
+     * memory needed depends on the size of the tiles, but not on the size of the image.
+     * <p>
+     * The tiles are decoded band by band from the top. Formats, which can only be decoded
+     * sequentially, are decoded again up to the bottom of every band, so an image should not be
+     * split into more bands than its size requires.
+     *
+     * @param reader The reader for the image.
+     * @param targetWidth The width to lay out the sampling areas for.
+     * @param targetHeight The height to lay out the sampling areas for.
+     * @param columns The number of columns of reference areas to be used.
+     * @param rows The number of rows of reference areas to be used.
+     * @param sampleSize The size of the sampling area around the center of every reference area
+     * in the coordinate space of the target size.
+     * @param referenceSignature The signature to report the running distance to after every band
+     * and to take the masked regions from, or {@literal null}.
+     * @return An array of packed RGB values. The region (x, y) is stored at index
+     * {@literal y * columns + x}.
+     * @throws IOException If the image can't be decoded.
+     */
+    private int[] calcSignatureTiled(
+            final ImageReader reader,
+            final int targetWidth,
+            final int targetHeight,
+            final int columns,
+            final int rows,
+            final int sampleSize,
+            final ImageSignature referenceSignature) throws IOException {
+
+        final int imageWidth = reader.getWidth(0);
+        final int imageHeight = reader.getHeight(0);
+        final int period = subsamplingPeriod(imageWidth, targetWidth, sampleSize);
+        final int[][] areas = calcSamplingAreas(imageWidth, imageHeight, targetWidth,
+                targetHeight, columns, rows, sampleSize);
+        final int[] fromX = areas[0];
+        final int[] toX = areas[1];
+        final int[] fromY = areas[2];
+        final int[] toY = areas[3];
+
+        /**
+         * Columns of regions are grouped first, so a single row of regions fits into a tile, and
+         * then rows of regions, so the widest group of columns does.
+         */
+        final int[] columnGroups = groupSamplingAreas(fromX, toX, period,
+                tilePixels / Math.max(maxDecodedLength(fromY, toY, period), 1));
+        int maxTileWidth = 1;
+        for (int group = 0; group + 1 < columnGroups.length; group++) {
+            maxTileWidth = Math.max(maxTileWidth, decodedLength(fromX, toX,
+                    columnGroups[group], columnGroups[group + 1], period));
+        }
+        final int[] rowGroups = groupSamplingAreas(fromY, toY, period,
+                tilePixels / maxTileWidth);
+
+        final int[] sig = new int[columns * rows];
+        final DistanceMetric metric = profile.getDistanceMetric();
+        double maxDistance = metric.maxDistance(sig.length);
+        if (referenceSignature != null) {
+            copyMask(maskOf(referenceSignature), sig);
+            maxDistance = metric.maxDistance(referenceSignature.getActiveRegionCount());
+        }
+        double distance = 0;
+        final long start = System.nanoTime();
+        for (int band = 0; band + 1 < rowGroups.length; band++) {
+            final int firstRow = rowGroups[band];
+            final int lastRow = rowGroups[band + 1];
+            for (int group = 0; group + 1 < columnGroups.length; group++) {
+                sampleTile(reader, period, sig, columns, areas, columnGroups[group],
+                        columnGroups[group + 1], firstRow, lastRow);
+            }
+
+            if (listener.isEnabled()) {
+                if (referenceSignature == null) {
+                    distance = Double.NaN;
+                } else {
+                    final int[] reference = referenceSignature.regions();
+                    for (int region = firstRow * columns; region < lastRow * columns; region++) {
+                        distance += metric.regionDistance(sig[region], reference[region]);
+                    }
+                }
+                listener.bandSampled(lastRow * columns, sig.length, distance, maxDistance,
+                        System.nanoTime() - start);
+            }
+        }
+
+        return sig;
+    }
+
+    /**
+     * This method decodes a tile of an encoded image and averages the regions within it.
+     *
+     * @param reader The reader for the image.
+     * @param period The subsampling period.
+     * @param sig The signature to store the average RGB values in. Regions already marked as
+     * masked are skipped.
+     * @param columns The number of columns of regions of the signature.
+     * @param areas The sampling areas in the pixels of the image, as returned by
+     * {@link #calcSamplingAreas(int, int, int, int, int, int, int)}.
+     * @param firstColumn The first column of regions of the tile (inclusive).
+     * @param lastColumn The last column of regions of the tile (exclusive).
+     * @param firstRow The first row of regions of the tile (inclusive).
+     * @param lastRow The last row of regions of the tile (exclusive).
+     * @throws IOException If the tile can't be decoded.
+     */
+    private static void sampleTile(
+            final ImageReader reader,
+            final int period,
+            final int[] sig,
+            final int columns,
+            final int[][] areas,
+            final int firstColumn,
+            final int lastColumn,
+            final int firstRow,
+            final int lastRow) throws IOException {
+
+        final int[] fromX = areas[0];
+        final int[] toX = areas[1];
+        final int[] fromY = areas[2];
+        final int[] toY = areas[3];
+
+        // A tile of masked regions only isn't decoded at all.
+        boolean masked = true;
+        for (int y = firstRow; y < lastRow && masked; y++) {
+            for (int x = firstColumn; x < lastColumn && masked; x++) {
+                masked = (sig[y * columns + x] & ImageSignature.MASKED_REGION) != 0;
+            }
+        }
+        if (masked) {
+            return;
+        }
+
+        /**
+         * The tile starts at a multiple of the period, so its pixels are the very same ones the
+         * whole image would be subsampled to. Empty sampling areas stay black.
+         */
+        final Rectangle region = calcTileRegion(fromX, toX, firstColumn, lastColumn, fromY, toY,
+                firstRow, lastRow, period, reader.getWidth(0), reader.getHeight(0));
+        if (region == null) {
+            return;
+        }
+        final ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceRegion(region);
+        param.setSourceSubsampling(period, period, 0, 0);
+        final BufferedImage tile = reader.read(0, param);
+
+        final RegionAverager averager = RegionAveragers.forImage(tile);
+        for (int y = firstRow; y < lastRow; y++) {
+            final int tileFromY = toTile(fromY[y], region.y, region.height, period);
+            final int tileToY = toTile(toY[y], region.y, region.height, period);
+            for (int x = firstColumn; x < lastColumn; x++) {
+                if (toX[x] <= fromX[x] || toY[y] <= fromY[y]
+                        || (sig[y * columns + x] & ImageSignature.MASKED_REGION) != 0) {
+                    continue;
+                }
+                sig[y * columns + x] = averager.averageRgb(
+                        toTile(fromX[x], region.x, region.width, period), tileFromY,
+                        toTile(toX[x], region.x, region.width, period), tileToY);
+            }
+        }
+        tile.flush();
+    }
+
+    /**
+     * This method calculates the pixels of an image to decode for a tile of regions.
+     *
+     * @param fromX The first pixel column of the sampling areas of every column of regions.
+     * @param toX The last pixel column (exclusive) of the sampling areas of every column.
+     * @param firstColumn The first column of regions of the tile (inclusive).
+     * @param lastColumn The last column of regions of the tile (exclusive).
+     * @param fromY The first pixel row of the sampling areas of every row of regions.
+     * @param toY The last pixel row (exclusive) of the sampling areas of every row.
+     * @param firstRow The first row of regions of the tile (inclusive).
+     * @param lastRow The last row of regions of the tile (exclusive).
+     * @param period The subsampling period.
+     * @param imageWidth The width of the image.
+     * @param imageHeight The height of the image.
+     * @return The source region of the tile or {@literal null}, if all of its sampling areas are
+     * empty.
+     */
+    private static Rectangle calcTileRegion(
+            final int[] fromX,
+            final int[] toX,
+            final int firstColumn,
+            final int lastColumn,
+            final int[] fromY,
+            final int[] toY,
+            final int firstRow,
+            final int lastRow,
+            final int period,
+            final int imageWidth,
+            final int imageHeight) {
+
+        final int[] spanX = calcSpan(fromX, toX, firstColumn, lastColumn, imageWidth);
+        final int[] spanY = calcSpan(fromY, toY, firstRow, lastRow, imageHeight);
+        if (spanX == null || spanY == null) {
+            return null;
+        }
+        final int x = spanX[0] / period * period;
+        final int y = spanY[0] / period * period;
+
+        return new Rectangle(x, y, spanX[1] - x, spanY[1] - y);
+    }
+
+    /**
+     * This method calculates the pixels spanned by some sampling areas along one axis.
+     *
+     * @param from The first pixel coordinate of every sampling area.
+     * @param to The last pixel coordinate (exclusive) of every sampling area.
+     * @param first The first sampling area (inclusive).
+     * @param last The last sampling area (exclusive).
+     * @param imageSize The size of the image along the axis.
+     * @return The first and the last pixel coordinate (exclusive) of the span within the image, or
+     * {@literal null}, if all of the sampling areas are empty.
+     */
+    private static int[] calcSpan(
+            final int[] from,
+            final int[] to,
+            final int first,
+            final int last,
+            final int imageSize) {
+
+        int spanFrom = Integer.MAX_VALUE;
+        int spanTo = Integer.MIN_VALUE;
+        for (int i = first; i < last; i++) {
+            if (to[i] > from[i]) {
+                spanFrom = Math.min(spanFrom, Math.max(from[i], 0));
+                spanTo = Math.max(spanTo, Math.min(to[i], imageSize));
+            }
+        }
+        if (spanTo <= spanFrom) {
+            return null;
+        }
+
+        return new int[] {spanFrom, spanTo};
+    }
+
+    /**
+     * This method calculates the number of decoded pixels spanned by some sampling areas along
+     * one axis, when the span is decoded from a multiple of the period.
+     *
+     * @param from The first pixel coordinate of every sampling area.
+     * @param to The last pixel coordinate (exclusive) of every sampling area.
+     * @param first The first sampling area (inclusive).
+     * @param last The last sampling area (exclusive).
+     * @param period The subsampling period.
+     * @return The number of decoded pixels, zero if all of the sampling areas are empty.
+     */
+    private static int decodedLength(
+            final int[] from,
+            final int[] to,
+            final int first,
+            final int last,
+            final int period) {
+
+        final int[] span = calcSpan(from, to, first, last, Integer.MAX_VALUE);
+        if (span == null) {
+            return 0;
+        }
+
+        return decodedLength(span[0], span[1], period);
+    }
+
+    /**
+     * This method calculates the number of decoded pixels of a span of pixels along one axis,
+     * when the span is decoded from a multiple of the period.
+     *
+     * @param spanFrom The first pixel coordinate of the span.
+     * @param spanTo The last pixel coordinate (exclusive) of the span.
+     * @param period The subsampling period.
+     * @return The number of decoded pixels.
+     */
+    private static int decodedLength(final int spanFrom, final int spanTo, final int period) {
+
+        return (spanTo - spanFrom / period * period + period - 1) / period;
+    }
+
+    /**
+     * This method calculates the largest number of decoded pixels of a single sampling area
+     * along one axis.
+     *
+     * @param from The first pixel coordinate of every sampling area.
+     * @param to The last pixel coordinate (exclusive) of every sampling area.
+     * @param period The subsampling period.
+     * @return The largest number of decoded pixels.
+     */
+    private static int maxDecodedLength(final int[] from, final int[] to, final int period) {
+
+        int max = 0;
+        for (int i = 0; i < from.length; i++) {
+            max = Math.max(max, decodedLength(from, to, i, i + 1, period));
+        }
+
+        return max;
+    }
 
-/**
- * This is a simple image comparison processor. It only computes differences in the RGB values,
- * without trying to match key parts of the two images first.
- * <p>
- * Based on the article "How do I compare two images to see if they are equal?" by Rafael Santos.
- *
- * @author kay.abendroth@raxion.net (Kay Abendroth), Rafael Santos
- * @since 1.0.0
- * @see http://www.lac.inpe.br/JIPCookbook/6050-howto-compareimages.jsp
- * @see http://stackoverflow.com/questions/8644960/java-library-to-compare-image-similarity
- */
-public class SimpleImageComparisonProcessor implements ImageComparisonProcessor {
+    /**
+     * This method groups neighbouring sampling areas along one axis, so the decoded pixels
+     * spanned by every group don't exceed a limit. Every group holds one sampling area at least.
+     *
+     * @param from The first pixel coordinate of every sampling area, in ascending order.
+     * @param to The last pixel coordinate (exclusive) of every sampling area.
+     * @param period The subsampling period.
+     * @param maxLength The maximum number of decoded pixels spanned by a group.
+     * @return The index of the first sampling area of every group, followed by the number of
+     * sampling areas.
+     */
+    private static int[] groupSamplingAreas(
+            final int[] from,
+            final int[] to,
+            final int period,
+            final int maxLength) {
 
+        final int[] groups = new int[from.length + 1];
+        int count = 1;
+        boolean groupEmpty = true;
+        int spanFrom = 0;
+        int spanTo = 0;
+        for (int i = 0; i < from.length; i++) {
+            // Empty sampling areas join any group.
+            if (to[i] <= from[i]) {
+                continue;
+            }
+            final int areaFrom = Math.max(from[i], 0);
+            if (!groupEmpty && decodedLength(Math.min(spanFrom, areaFrom),
+                    Math.max(spanTo, to[i]), period) > maxLength) {
+                groups[count++] = i;
+                groupEmpty = true;
+            }
+            if (groupEmpty) {
+                spanFrom = areaFrom;
+                spanTo = to[i];
+                groupEmpty = false;
+            } else {
+                spanFrom = Math.min(spanFrom, areaFrom);
+                spanTo = Math.max(spanTo, to[i]);
+            }
+        }
+        groups[count++] = from.length;
+
+        return Arrays.copyOf(groups, count);
+    }
+
+    /**
+     * This method maps a pixel coordinate of the image to the decoded pixels of a tile. A decoded
+     * pixel belongs to a sampling area, if the pixel of the image it has been decoded from does.
+     *
+     * @param coordinate The pixel coordinate in the image.
+     * @param tileStart The first pixel coordinate of the tile in the image.
+     * @param tileLength The number of pixels of the image spanned by the tile.
+     * @param period The subsampling period.
+     * @return The coordinate of the first decoded pixel of the tile at or after the coordinate.
+     */
+    private static int toTile(
+            final int coordinate,
+            final int tileStart,
+            final int tileLength,
+            final int period) {
+
+        final int offset = Math.min(Math.max(coordinate - tileStart, 0), tileLength);
+
+        return (offset + period - 1) / period;
+    }
 
     /**
-     * Overrides {@link ImageComparisonProcessor.DEFAULT_DEFINITION_OF_EQUAL}, if user hands-over
-     * her or his own equality percentage value.
+     * Calculate how many pixels can be skipped when decoding an image, so every sampling area
+     * still keeps {@link #MIN_SUBSAMPLED_PIXELS_PER_AREA} pixels along both axes.
+     *
+     * @param imageWidth The width of the encoded image.
+     * @param targetWidth The width the sampling areas are laid out for.
+     * @param sampleSize The size of the sampling area in the coordinate space of the target
+     * width.
+     * @return The subsampling period, at least one.
      */
-    private double myDefinitionOfEqual = -1;
+    private static int subsamplingPeriod(
+            final int imageWidth,
+            final int targetWidth,
+            final int sampleSize) {
+
+        final long areaInImagePixels = 2L * sampleSize * imageWidth / Math.max(targetWidth, 1);
+
+        return (int) Math.max(1, areaInImagePixels / MIN_SUBSAMPLED_PIXELS_PER_AREA);
+    }
 
     /**
-     * This is the main value setting the overall quality of the comparison as it determines the
-     * number of reference pixels per image. The smaller the distance, the higher the quality.
+     * Calculate the height of an image re-scaled to a given width, keeping its aspect ratio. The
+     * height is rounded the same way {@literal imgscalr} does in {@literal FIT_TO_WIDTH} mode.
+     *
+     * @param image The image to re-scale.
+     * @param width The width to re-scale to.
+     * @return The height of the re-scaled image.
      */
-    private static final short DISTANCE_BETWEEN_REFERENCE_PIXELS = 28;
+    private static int fitToWidthHeight(final BufferedImage image, final int width) {
+
+        if (image.getWidth() == width) {
+            return image.getHeight();
+        }
+        final float ratio = (float) image.getHeight() / (float) image.getWidth();
+
+        return Math.round((float) width * ratio);
+    }
 
     /**
-     * This is our target sample size. It will be used to initialize {@link sampleSize}.
+     * Calculate the sample size for a re-scaled test image. We start with the sample size of the
+     * reference, which may need to be reduced further for the re-scaled test image.
+     *
+     * @param testImageHeight The height of the test image re-scaled to the width of the
+     * reference.
+     * @param referenceSignature The signature of the reference image.
+     * @return The sample size to use for the test image.
      */
-    private static final short TARGET_SAMPLE_SIZE = 12;
+    private static int fitTestSampleSize(
+            final int testImageHeight,
+            final ImageSignature referenceSignature) {
+
+        return fitSampleSize(referenceSignature.getWidth(), testImageHeight,
+                referenceSignature.getRegionColumns(), referenceSignature.getRegionRows(),
+                referenceSignature.getSampleSize());
+    }
 
     /**
-     * The size of the sampling area used in the averageAround() method.
+     * Report a re-scaled test image to the listener, if it is enabled.
+     *
+     * @param testImageRescaled The re-scaled test image.
+     * @param start The value of {@link System#nanoTime()} before re-scaling.
+     * @return The time spent for re-scaling in nanoseconds.
      */
-    private static int sampleSize = TARGET_SAMPLE_SIZE;
+    private long testImageRescaled(final BufferedImage testImageRescaled, final long start) {
+
+        final long nanos = System.nanoTime() - start;
+        if (listener.isEnabled()) {
+            listener.testImageRescaled(testImageRescaled.getWidth(), testImageRescaled.getHeight(),
+                    nanos);
+        }
+
+        return nanos;
+    }
 
     /**
-     * The scaling method to be used for scaling the test image.
+     * Report a calculated signature to the listener, if it is enabled.
      *
-     * @see org.imgscalr.Scalr.Method.BALANCED
+     * @param width The width the signature has been calculated for.
+     * @param height The height the signature has been calculated for.
+     * @param columns The number of columns of reference areas used.
+     * @param sampleSize The size of the sampling area used.
+     * @param start The value of {@link System#nanoTime()} before the calculation.
+     * @return The time spent for the signature in nanoseconds.
      */
-    private static final Method SCALING_METHOD = Method.BALANCED;
+    private long signatureCalculated(
+            final int width,
+            final int height,
+            final int columns,
+            final int sampleSize,
+            final long start) {
+
+        final long nanos = System.nanoTime() - start;
+        if (listener.isEnabled()) {
+            listener.signatureCalculated(width, height, columns, sampleSize,
+                    nanos);
+        }
+
+        return nanos;
+    }
 
     /**
-     * The size of a pixel vector is three.
+     * This method calculates and returns signature vectors for the input image.
+     *
+     * @param image The image to calculate the signature for.
+     * @param refRegionsInOneDimension The number of reference areas to be used.
+     * @param sampleSize The size of the sampling area around the center of every reference area,
+     * as returned by {@link #fitSampleSize(int, int, int, int, int)}.
+     * @return An array of packed RGB values of the size {@link numberOfReferencePixels} *
+     * {@link numberOfReferencePixels}. The region (x, y) is stored at index
+     * {@literal y * refRegionsInOneDimension + x}.
      */
-    private static final int PIXEL_VECTOR_SIZE = 3;
+    protected static final int[] calcSignature(
+            final BufferedImage image,
+            final int refRegionsInOneDimension,
+            final int sampleSize) {
+
+        return calcSignature(image, refRegionsInOneDimension, sampleSize, null);
+    }
 
     /**
-     * One hundred.
+     * This method calculates and returns signature vectors for the input image. If there are a
+     * lot of pixels to sample, the rows of regions are split into bands, which are sampled in
+     * parallel.
+     *
+     * @param image The image to calculate the signature for.
+     * @param refRegionsInOneDimension The number of reference areas to be used.
+     * @param sampleSize The size of the sampling area around the center of every reference area,
+     * as returned by {@link #fitSampleSize(int, int, int, int, int)}.
+     * @param executor The executor to sample bands of rows on, or {@literal null} to sample all
+     * regions in the calling thread.
+     * @return An array of packed RGB values of the size {@link numberOfReferencePixels} *
+     * {@link numberOfReferencePixels}. The region (x, y) is stored at index
+     * {@literal y * refRegionsInOneDimension + x}.
      */
-    private static final int ONE_HUNDRED = 100;
+    protected static final int[] calcSignature(
+            final BufferedImage image,
+            final int refRegionsInOneDimension,
+            final int sampleSize,
+            final Executor executor) {
+
+        return calcSignature(image, image.getWidth(), image.getHeight(), refRegionsInOneDimension,
+                sampleSize, executor);
+    }
 
     /**
-     * The maximum value for RGB is 255.
+     * This method calculates and returns signature vectors for the input image as if it had been
+     * re-scaled to the target size first. The sampling areas are laid out in the coordinate space
+     * of the target size and every one of them is mapped back to the pixels of the input image it
+     * covers. So no re-scaled copy of the image is needed.
+     *
+     * @param image The image to calculate the signature for.
+     * @param targetWidth The width to lay out the sampling areas for.
+     * @param targetHeight The height to lay out the sampling areas for.
+     * @param refRegionsInOneDimension The number of reference areas to be used.
+     * @param sampleSize The size of the sampling area around the center of every reference area
+     * in the coordinate space of the target size, as returned by
+     * {@link #fitSampleSize(int, int, int, int, int)}.
+     * @param executor The executor to sample bands of rows on, or {@literal null} to sample all
+     * regions in the calling thread.
+     * @return An array of packed RGB values of the size {@link numberOfReferencePixels} *
+     * {@link numberOfReferencePixels}. The region (x, y) is stored at index
+     * {@literal y * refRegionsInOneDimension + x}.
      */
-    private static final int MAX_RGB_VALUE = 255;
+    protected static final int[] calcSignature(
+            final BufferedImage image,
+            final int targetWidth,
+            final int targetHeight,
+            final int refRegionsInOneDimension,
+            final int sampleSize,
+            final Executor executor) {
+
+        return calcSignature(image, targetWidth, targetHeight, refRegionsInOneDimension,
+                refRegionsInOneDimension, sampleSize, executor);
+    }
 
     /**
-     * To calculate the maximum possible distance between two images, we need a multiplier, which
-     * is based on the vector size and the maximum RGB value.
+     * This method calculates and returns signature vectors for a grid of regions, which needn't be
+     * square, as if the input image had been re-scaled to the target size first.
+     *
+     * @param image The image to calculate the signature for.
+     * @param targetWidth The width to lay out the sampling areas for.
+     * @param targetHeight The height to lay out the sampling areas for.
+     * @param columns The number of columns of reference areas to be used.
+     * @param rows The number of rows of reference areas to be used.
+     * @param sampleSize The size of the sampling area around the center of every reference area
+     * in the coordinate space of the target size, as returned by
+     * {@link #fitSampleSize(int, int, int, int, int)}.
+     * @param executor The executor to sample bands of rows on, or {@literal null} to sample all
+     * regions in the calling thread.
+     * @return An array of packed RGB values of the size {@literal columns * rows}. The region
+     * (x, y) is stored at index {@literal y * columns + x}.
      */
-    private static final double MAX_DISTANCE_MULTIPLIER =
-            (Math.sqrt((MAX_RGB_VALUE - 0) * (MAX_RGB_VALUE - 0)
-                     + (MAX_RGB_VALUE - 0) * (MAX_RGB_VALUE - 0)
-                     + (MAX_RGB_VALUE - 0) * (MAX_RGB_VALUE - 0)));
+    protected static final int[] calcSignature(
+            final BufferedImage image,
+            final int targetWidth,
+            final int targetHeight,
+            final int columns,
+            final int rows,
+            final int sampleSize,
+            final Executor executor) {
 
+        return calcSignature(image, targetWidth, targetHeight, columns, rows, sampleSize,
+                executor, null);
+    }
 
-    @Override
-    public final boolean compare(
-            final BufferedImage testImage,
-            final BufferedImage referenceImage,
-            final double definitionOfEqual) throws InvalidArgumentException {
+    /**
+     * This method calculates and returns signature vectors for a grid of regions as if the input
+     * image had been re-scaled to the target size first, leaving out masked regions.
+     *
+     * @param image The image to calculate the signature for.
+     * @param targetWidth The width to lay out the sampling areas for.
+     * @param targetHeight The height to lay out the sampling areas for.
+     * @param columns The number of columns of reference areas to be used.
+     * @param rows The number of rows of reference areas to be used.
+     * @param sampleSize The size of the sampling area around the center of every reference area
+     * in the coordinate space of the target size.
+     * @param executor The executor to sample bands of rows on, or {@literal null} to sample all
+     * regions in the calling thread.
+     * @param maskedRegions The regions, of which those marked by
+     * {@link ImageSignature#MASKED_REGION} are left out, or {@literal null}.
+     * @return An array of packed RGB values. The region (x, y) is stored at index
+     * {@literal y * columns + x}.
+     */
+    private static int[] calcSignature(
+            final BufferedImage image,
+            final int targetWidth,
+            final int targetHeight,
+            final int columns,
+            final int rows,
+            final int sampleSize,
+            final Executor executor,
+            final int[] maskedRegions) {
 
-        /**
-         * Set all the values we need for the processing, starting with the definition of equal.
-         *
-         * Definition of equal is not allowed to be lower than zero or higher than one hundred.
-         */
-        if (definitionOfEqual < 0 || definitionOfEqual > ONE_HUNDRED) {
-            throw new InvalidArgumentException("Minmum percentage for equality is not allowed to "
-                    + "be lower than zero or higher than one hundred.");
+        final int[][] areas = calcSamplingAreas(image.getWidth(), image.getHeight(), targetWidth,
+                targetHeight, columns, rows, sampleSize);
+
+        return calcSignature(createAverager(image, areas), areas, columns, rows, sampleSize,
+                executor, maskedRegions);
+    }
+
+    /**
+     * This method chooses how to average the sampling areas of an image. If the areas cover the
+     * image several times over, as for dense grids or test images much larger than the
+     * reference, a {@link SummedAreaTable} is built, which reads every pixel once. Otherwise the
+     * areas are averaged straight from the raster.
+     *
+     * @param image The image to calculate the signature for.
+     * @param areas The sampling areas, as returned by
+     * {@link #calcSamplingAreas(int, int, int, int, int, int, int)}.
+     * @return The averager for the sampling areas of the image.
+     */
+    private static RegionAverager createAverager(final BufferedImage image, final int[][] areas) {
+
+        final long pixelsToSample = sumLengths(areas[0], areas[1], image.getWidth())
+                * sumLengths(areas[2], areas[3], image.getHeight());
+        final long imagePixels = (long) image.getWidth() * image.getHeight();
+        if (pixelsToSample > SUMMED_AREA_TABLE_COVERAGE * imagePixels) {
+            return new SummedAreaTable(image);
         }
 
-        myDefinitionOfEqual = definitionOfEqual;
+        return RegionAveragers.forImage(image);
+    }
 
-        /**
-         * The width of the reference image. This value also determines the to-be-scaled-to-width
-         * of the test image.
-         */
-        final int referenceWidth = referenceImage.getWidth();
-        System.err.println("Reference width is: " + referenceWidth);
-        System.err.println("Reference heigth is: " + referenceImage.getHeight());
+    /**
+     * This method sums the lengths of the sampling areas along one axis within the image.
+     *
+     * @param from The first pixel coordinate of every sampling area.
+     * @param to The last pixel coordinate (exclusive) of every sampling area.
+     * @param imageSize The size of the image along the axis.
+     * @return The number of pixels sampled along the axis, counting overlapping areas repeatedly.
+     */
+    private static long sumLengths(final int[] from, final int[] to, final int imageSize) {
 
-        /**
-         * This number determines the total amount of reference pixels, which is
-         * numberOfReferencePixels * numberOfReferencePixels. The higher this value, the higher
-         * the overall quality of the comparison. It's determined only by
-         * DISTANCE_BETWEEN_REFERENCE_PIXELS.
-         *
-         * @see DISTANCE_BETWEEN_REFERENCE_PIXELS
-         */
-        final int refRegionsInOneDimension = referenceWidth / DISTANCE_BETWEEN_REFERENCE_PIXELS;
-        System.err.println("No. of reference regions in one dimension is: "
-                + refRegionsInOneDimension);
+        long sum = 0;
+        for (int i = 0; i < from.length; i++) {
+            sum += Math.max(Math.min(to[i], imageSize) - Math.max(from[i], 0), 0);
+        }
 
-        /**
-         * The maximum possible distance between reference image and test image.
-         */
-        final double maxDistance =
-                calculateMaxDistance(refRegionsInOneDimension * refRegionsInOneDimension);
-        System.err.println("Max. distance is: " + maxDistance);
+        return sum;
+    }
+
+    /**
+     * This method calculates and returns signature vectors from an averager.
+     *
+     * @param averager The averager for the image to calculate the signature for.
+     * @param areas The sampling areas, as returned by
+     * {@link #calcSamplingAreas(int, int, int, int, int, int, int)}.
+     * @param columns The number of columns of reference areas to be used.
+     * @param rows The number of rows of reference areas to be used.
+     * @param sampleSize The size of the sampling area around the center of every reference area.
+     * @param executor The executor to sample bands of rows on, or {@literal null} to sample all
+     * regions in the calling thread.
+     * @param maskedRegions The regions, of which those marked by
+     * {@link ImageSignature#MASKED_REGION} are left out, or {@literal null}.
+     * @return An array of packed RGB values, masked regions marked as such. The region (x, y) is
+     * stored at index {@literal y * columns + x}.
+     */
+    private static int[] calcSignature(
+            final RegionAverager averager,
+            final int[][] areas,
+            final int columns,
+            final int rows,
+            final int sampleSize,
+            final Executor executor,
+            final int[] maskedRegions) {
+
+        // Get memory for the signature.
+        final int[] sig = new int[columns * rows];
+        copyMask(maskedRegions, sig);
+
+        final int sampleLength = Math.max(2 * sampleSize, 0);
+        final int[] fromX = areas[0];
+        final int[] toX = areas[1];
+        final int[] fromY = areas[2];
+        final int[] toY = areas[3];
 
         /**
-         * The reference image "signature" (numberOfReferencePixels * numberOfReferencePixels
-         * representative pixels, each in R,G,B). We use instances of Color to make things simpler.
-         *
-         * Calculate the signature vector for the reference.
+         * Then we calculate the average RGB value for every region.
          */
-        final Color[][] refSignature = calcSignature(referenceImage, refRegionsInOneDimension);
+        final long pixelsToSample = (long) sig.length * sampleLength * sampleLength;
+        final int bands = Math.min(rows, Runtime.getRuntime().availableProcessors());
+        if (executor == null || pixelsToSample < PARALLEL_SIGNATURE_THRESHOLD || bands < 2) {
+            calcSignatureRows(sig, averager, fromX, toX, fromY, toY, 0, rows);
+            return sig;
+        }
+
+        // Every band writes its own rows of the signature only.
+        final List<Runnable> tasks = new ArrayList<Runnable>(bands);
+        for (int band = 0; band < bands; band++) {
+            final int firstRow = band * rows / bands;
+            final int lastRow = (band + 1) * rows / bands;
+            tasks.add(new Runnable() {
+                @Override
+                public void run() {
+                    calcSignatureRows(sig, averager, fromX, toX, fromY, toY, firstRow,
+                            lastRow);
+                }
+            });
+        }
+        ParallelTasks.runAll(executor, tasks);
+
+        return sig;
+    }
+
+    /**
+     * This method calculates the pixel coordinates of the sampling areas of an image.
+     *
+     * @param imageWidth The width of the image to calculate the signature for.
+     * @param imageHeight The height of the image to calculate the signature for.
+     * @param targetWidth The width to lay out the sampling areas for.
+     * @param targetHeight The height to lay out the sampling areas for.
+     * @param columns The number of columns of reference areas to be used.
+     * @param rows The number of rows of reference areas to be used.
+     * @param sampleSize The size of the sampling area around the center of every reference area
+     * in the coordinate space of the target size.
+     * @return The first pixel column, the last pixel column (exclusive), the first pixel row and
+     * the last pixel row (exclusive) of the sampling areas of every column or row of regions.
+     */
+    private static int[][] calcSamplingAreas(
+            final int imageWidth,
+            final int imageHeight,
+            final int targetWidth,
+            final int targetHeight,
+            final int columns,
+            final int rows,
+            final int sampleSize) {
 
         /**
-         * Re-scale the test image to match the width of our reference image. The library
-         * {@literal imgscalr} will be used with following options:
-         * <ul>
-         *   <li>the scaling method is determined by the class variable {@link SCALING_METHOD} and
-         *   </li>
-         *   <li>we re-scale in {@literal FIT_TO_WIDTH} mode always</li>
-         * </ul>
-         *
-         * @see http://www.thebuzzmedia.com/software/imgscalr-java-image-scaling-library
-         * @see SCALING_METHOD
-         * @see org.imgscalr.Scalr.Mode.FIT_TO_WIDTH
+         * For each of the XXX signature values average the pixels around it. Note that the
+         * coordinate of the central pixel is in proportions.
          */
-        final BufferedImage testImageRescaled = Scalr.resize(testImage, SCALING_METHOD,
-                Mode.FIT_TO_WIDTH, referenceWidth, 1);
+        final float[] propX = calcProportions(columns);
+        final float[] propY = calcProportions(rows);
 
         /**
-         * "This operation leaves the original src image unmodified. If the caller is done with the
-         * src image after getting the result of this operation, remember to call Image.flush() on
-         * the src to free up native resources and make it easier for the GC to collect the unused
-         * image."
-         *
-         * @see org.imgscalr.Scalr.resize()
+         * The sampling areas are the same for every row and every column, so we calculate their
+         * pixel coordinates only once.
          */
-        testImage.flush();
+        final int sampleLength = Math.max(2 * sampleSize, 0);
+        final int[] fromX = calcSamplingAreaStarts(propX, targetWidth, sampleSize);
+        final int[] toX = mapSamplingAreas(fromX, sampleLength, targetWidth, imageWidth);
+        final int[] fromY = calcSamplingAreaStarts(propY, targetHeight, sampleSize);
+        final int[] toY = mapSamplingAreas(fromY, sampleLength, targetHeight, imageHeight);
 
-        // Calculate the signature vector for the test image.
-        final Color[][] testSignature = calcSignature(testImageRescaled, refRegionsInOneDimension);
+        return new int[][] {fromX, toX, fromY, toY};
+    }
+
+    /**
+     * This method calculates the average RGB values for some rows of regions.
+     *
+     * @param sig The signature to store the average RGB values in. Regions already marked as
+     * masked are skipped.
+     * @param averager The averager for the image to calculate the signature for.
+     * @param fromX The first pixel column of the sampling areas of every column of regions.
+     * @param toX The last pixel column (exclusive) of the sampling areas of every column.
+     * @param fromY The first pixel row of the sampling areas of every row of regions.
+     * @param toY The last pixel row (exclusive) of the sampling areas of every row.
+     * @param firstRow The first row of regions to calculate (inclusive).
+     * @param lastRow The last row of regions to calculate (exclusive).
+     */
+    private static void calcSignatureRows(
+            final int[] sig,
+            final RegionAverager averager,
+            final int[] fromX,
+            final int[] toX,
+            final int[] fromY,
+            final int[] toY,
+            final int firstRow,
+            final int lastRow) {
 
-        // Calculate the distance to the other image.
-        double distanceToReference = -1;
-        distanceToReference = calcDistance(testSignature, refSignature, refRegionsInOneDimension);
+        int i = firstRow * fromX.length;
+        for (int y = firstRow; y < lastRow; y++) {
+            for (int x = 0; x < fromX.length; x++) {
+                if ((sig[i] & ImageSignature.MASKED_REGION) == 0) {
+                    sig[i] = averager.averageRgb(fromX[x], fromY[y], toX[x], toY[y]);
+                }
+                i++;
+            }
+        }
+    }
 
-        // How much of the test image is identical to the reference image?
-        final double percentageOfEquality =
-                ONE_HUNDRED - ((distanceToReference / maxDistance) * ONE_HUNDRED);
-        System.err.println("Calculated percentage of equality is: " + percentageOfEquality);
+    /**
+     * This method marks the masked regions of a signature before it's sampled.
+     *
+     * @param maskedRegions The regions, of which those marked by
+     * {@link ImageSignature#MASKED_REGION} are to be left out, or {@literal null}.
+     * @param sig The signature to mark the masked regions in.
+     */
+    private static void copyMask(final int[] maskedRegions, final int[] sig) {
 
-        /**
-         * The two images are considered to be equal, if the test image is identical to the
-         * reference image for at least the amount of {{@link DEFAULT_DEFINITION_OF_EQUAL}}.
-         *
-         * @see DEFAULT_DEFINITION_OF_EQUAL
-         */
-        return (percentageOfEquality >= myDefinitionOfEqual);
+        if (maskedRegions == null) {
+            return;
+        }
+        for (int i = 0; i < sig.length; i++) {
+            sig[i] = maskedRegions[i] & ImageSignature.MASKED_REGION;
+        }
     }
 
-    @Override
-    public final boolean compare(final BufferedImage testImage, final BufferedImage referenceImage)
-    {
-        boolean areEqual = false;
-        try {
-            areEqual = compare(testImage, referenceImage, DEFAULT_DEFINITION_OF_EQUAL);
-        } catch (final InvalidArgumentException iae) {
-            System.err.println(iae.getMessage());
+    /**
+     * This method gets the masked regions of a reference signature.
+     *
+     * @param referenceSignature The signature of the reference image.
+     * @return The regions of the signature or {@literal null}, if none of them has been masked.
+     */
+    private static int[] maskOf(final ImageSignature referenceSignature) {
+
+        if (!referenceSignature.isMasked()) {
+            return null;
         }
 
-        return areEqual;
+        return referenceSignature.regions();
     }
 
     /**
-     * This method calculates and returns signature vectors for the input image.
+     * This method maps the sampling areas along one axis from the coordinate space of the target
+     * size to the pixels of the image. If both sizes are the same, the areas are kept as they are.
+     * Otherwise every area is clipped to the target size first, so areas outside of a re-scaled
+     * image stay empty, and is then widened to the image pixels it covers at least partially.
      *
-     * @param image The image to calculate the signature for.
-     * @param refRegionsInOneDimension The number of reference areas to be used.
-     * @return A two-dimensional {@link Color} array of the size {@link numberOfReferencePixels} *
-     * {@link numberOfReferencePixels}.
+     * @param from The first coordinate of every sampling area in target space. The values are
+     * replaced by the first pixel coordinate in the image.
+     * @param sampleLength The length of a sampling area in target space.
+     * @param targetSize The size along the axis the sampling areas have been laid out for.
+     * @param imageSize The size of the image along the axis.
+     * @return The last pixel coordinate (exclusive) of every sampling area in the image.
      */
-    protected static final Color[][] calcSignature(
-            final BufferedImage image,
-            final int refRegionsInOneDimension) {
+    private static int[] mapSamplingAreas(
+            final int[] from,
+            final int sampleLength,
+            final int targetSize,
+            final int imageSize) {
 
-        // Get memory for the signature.
-        final Color[][] sig = new Color[refRegionsInOneDimension][refRegionsInOneDimension];
+        final int[] to = new int[from.length];
+        for (int i = 0; i < from.length; i++) {
+            if (targetSize == imageSize) {
+                to[i] = from[i] + sampleLength;
+                continue;
+            }
+            final long first = Math.max(from[i], 0);
+            final long last = Math.min(from[i] + sampleLength, targetSize);
+            if (last <= first) {
+                // The averager treats an empty area as black, just like the clipped original.
+                from[i] = 0;
+                to[i] = 0;
+                continue;
+            }
+            from[i] = (int) (first * imageSize / targetSize);
+            to[i] = (int) ((last * imageSize + targetSize - 1) / targetSize);
+        }
+
+        return to;
+    }
+
+    /**
+     * This method calculates the proportional coordinates of the centers of the reference regions
+     * along one axis.
+     *
+     * @param refRegionsInOneDimension The number of reference areas to be used.
+     * @return The proportional coordinates of the region centers.
+     */
+    protected static final float[] calcProportions(final int refRegionsInOneDimension) {
 
-        /**
-         * For each of the XXX signature values average the pixels around it. Note that the
-         * coordinate of the central pixel is in proportions.
-         */
         final float[] prop = new float[refRegionsInOneDimension];
 
         /**
@@ -241,153 +2044,188 @@ public class SimpleImageComparisonProcessor implements ImageComparisonProcessor
          */
         final float propValueDistance =
                 (ONE_HUNDRED * 1f / (refRegionsInOneDimension + 1)) / ONE_HUNDRED * 1f;
-        System.err.println("propValueDistance is: " + propValueDistance);
         for (int i = 0; i < refRegionsInOneDimension; i++) {
             prop[i] = (i + 1) * propValueDistance;
         }
 
-        /**
-         * The following calculation is very important, as we may get IndexOutOfBounce errors
-         * otherwise. Depending on the @link NUMBER_OF_REFERENCE_PIXELS and the
-         * {@link DISTANCE_BETWEEN_REFERENCE_PIXELS} the {@link SAMPLE_SIZE} may be too high.
-         * <p>
-         * In order to prevent that, we then need to adjust the sample size.
-         */
-        final int imageWidth = image.getWidth();
-        final int imageHeight = image.getHeight();
+        return prop;
+    }
+
+    /**
+     * The following calculation is very important, as we may get IndexOutOfBounce errors
+     * otherwise. Depending on the distance between reference pixels and the size of the image the
+     * sample size may be too high.
+     * <p>
+     * In order to prevent that, we then need to adjust the sample size. The adjusted sample size is
+     * returned instead of being stored anywhere, so every comparison uses its own sampling
+     * parameters.
+     *
+     * @param imageWidth The width of the image to sample.
+     * @param imageHeight The height of the image to sample.
+     * @param refRegionsInOneDimension The number of reference areas to be used.
+     * @param targetSampleSize The sample size to start with.
+     * @return The largest sample size not larger than {@literal targetSampleSize}, which keeps all
+     * sampling areas within the image.
+     */
+    protected static final int fitSampleSize(
+            final int imageWidth,
+            final int imageHeight,
+            final int refRegionsInOneDimension,
+            final int targetSampleSize) {
+
+        return fitSampleSize(imageWidth, imageHeight, refRegionsInOneDimension,
+                refRegionsInOneDimension, targetSampleSize);
+    }
+
+    /**
+     * This method adjusts the sample size for a grid of regions, which needn't be square, the same
+     * way as {@link #fitSampleSize(int, int, int, int)} does for square grids.
+     *
+     * @param imageWidth The width of the image to sample.
+     * @param imageHeight The height of the image to sample.
+     * @param columns The number of columns of reference areas to be used.
+     * @param rows The number of rows of reference areas to be used.
+     * @param targetSampleSize The sample size to start with.
+     * @return The largest sample size not larger than {@literal targetSampleSize}, which keeps all
+     * sampling areas within the image.
+     */
+    protected static final int fitSampleSize(
+            final int imageWidth,
+            final int imageHeight,
+            final int columns,
+            final int rows,
+            final int targetSampleSize) {
+
+        int sampleSize = targetSampleSize;
+        final float[] propX = calcProportions(columns);
+        final float[] propY = calcProportions(rows);
+
         // Upper boundaries for X- and Y-axis.
-        while (prop[refRegionsInOneDimension - 1] * imageWidth + sampleSize
-                >= imageWidth) {
+        while (propX[columns - 1] * imageWidth + sampleSize >= imageWidth) {
             sampleSize = sampleSize - 1;
         }
-        while (prop[refRegionsInOneDimension - 1] * imageHeight + sampleSize >= imageHeight) {
+        while (propY[rows - 1] * imageHeight + sampleSize >= imageHeight) {
             sampleSize = sampleSize - 1;
         }
         // Lower boundaries for X- and Y-axis.
-        while (prop[0] * imageWidth - sampleSize <= 0) {
+        while (propX[0] * imageWidth - sampleSize <= 0) {
             sampleSize = sampleSize - 1;
         }
-        while (prop[0] * imageHeight - sampleSize <= 0) {
+        while (propY[0] * imageHeight - sampleSize <= 0) {
             sampleSize = sampleSize - 1;
         }
-        System.err.println("(New) SAMPLE_SIZE is: " + sampleSize);
-
-        /**
-         * Then we calculate the average RGB value for every region.
-         */
-        for (int x = 0; x < refRegionsInOneDimension; x++) {
-            for (int y = 0; y < refRegionsInOneDimension; y++) {
-                sig[x][y] = averageAround(image, prop[x], prop[y]);
-            }
-        }
 
-        return sig;
+        return sampleSize;
     }
 
     /**
      * This method averages the pixel values around a central point and return the average as an
-     * instance of Color. The point coordinates are proportional to the image.
+     * instance of Color. The point coordinates are proportional to the image. The pixels are read
+     * straight from the raster of the image, if the image type allows to.
      *
      * @param image The image to operate on.
      * @param px The x-coordinate of the center of the area to inspect.
      * @param py The y-coordinate of the center of the area to inspect.
+     * @param sampleSize The size of the sampling area around the center.
      * @return An averaged color value for the area of interest.
      */
     protected static Color averageAround(
             final BufferedImage image,
             final double px,
-            final double py) {
-
-        // Get memory for raw pixel, pixel and for the accumulator.
-        int rawPixel = -1;
-        final double[] accum = new double[] {0, 0, 0};
-
-        int numPixels = 0;
-        final int imageWidth = image.getWidth();
-        final int imageHeight = image.getHeight();
-        // Sample the pixels.
-        // Traverse along the x-axis of the image.
-        for (double x = px * imageWidth - sampleSize; x < px * imageWidth + sampleSize; x++)
-        {
-            // Travers along the y-axis of the image.
-            for (double y = py * imageHeight - sampleSize; y < py * imageHeight + sampleSize; y++) {
-                // Get the raw pixel value for the current pixel first.
-                rawPixel = image.getRGB((int) x, (int) y);
-                // Convert this to a double array.
-                final double[] pixel = getRgbArrayFromPixel(rawPixel);
-                accum[0] += pixel[0];
-                accum[1] += pixel[1];
-                accum[2] += pixel[2];
-                numPixels++;
-            }
-        }
+            final double py,
+            final int sampleSize) {
+
+        final double x = px * image.getWidth() - sampleSize;
+        final double y = py * image.getHeight() - sampleSize;
+        final int sampleLength = Math.max(2 * sampleSize, 0);
+
+        return new Color(RegionAveragers.forImage(image).averageRgb(
+                (int) x, (int) y, (int) x + sampleLength, (int) y + sampleLength));
+    }
+
+    /**
+     * This method calculates the first pixel coordinate of every sampling area along one axis.
+     *
+     * @param prop The proportional coordinates of the region centers.
+     * @param imageSize The size of the image along the axis.
+     * @param sampleSize The size of the sampling area around the center.
+     * @return The first pixel coordinate of every sampling area.
+     */
+    protected static final int[] calcSamplingAreaStarts(
+            final float[] prop,
+            final int imageSize,
+            final int sampleSize) {
 
-        // Average the accumulated values.
-        accum[0] /= numPixels;
-        accum[1] /= numPixels;
-        accum[2] /= numPixels;
+        final int[] starts = new int[prop.length];
+        for (int i = 0; i < prop.length; i++) {
+            starts[i] = (int) (prop[i] * (double) imageSize - sampleSize);
+        }
 
-        return new Color((int) accum[0], (int) accum[1], (int) accum[2]);
+        return starts;
     }
 
     /**
-     * This method calculates the distance between the signatures of an image and the reference one.
+     * This method calculates the Euclidean distance between the signatures of an image and the
+     * reference one.
      * The signatures for the image passed as the parameter are calculated inside the method.
      *
-     * @param source The source signature array.
-     * @param target The target signature array.
+     * @param source The source signature array of packed RGB values.
+     * @param target The target signature array of packed RGB values.
      * @param refRegionsInOneDimension The number of reference regions in one dimension.
      * @return The calculated distance to the other image.
      * @throws InvalidArgumentException If the source or target array length doesn't match
      * refRegionsInOneDimension or if refRegionsInOneDimension is smaller than zero.
      */
     protected static final double calcDistance(
-            final Color[][] source,
-            final Color[][] target,
+            final int[] source,
+            final int[] target,
             final int refRegionsInOneDimension) throws InvalidArgumentException {
 
-        // We can return zero immediately, if the number of reference regions is zero.
-        if (refRegionsInOneDimension == 0) { return 0; }
+        return calcDistance(source, target, refRegionsInOneDimension, refRegionsInOneDimension);
+    }
+
+    /**
+     * This method calculates the Euclidean distance between the signatures of an image and the
+     * reference one for a grid of regions, which needn't be square.
+     *
+     * @param source The source signature array of packed RGB values.
+     * @param target The target signature array of packed RGB values.
+     * @param columns The number of columns of reference regions.
+     * @param rows The number of rows of reference regions.
+     * @return The calculated distance to the other image.
+     * @throws InvalidArgumentException If the source or target array length doesn't match
+     * {@literal columns * rows} or if the number of columns or rows is smaller than zero.
+     */
+    protected static final double calcDistance(
+            final int[] source,
+            final int[] target,
+            final int columns,
+            final int rows) throws InvalidArgumentException {
+
         // Number of reference regions must be higher or equal than zero.
-        if (refRegionsInOneDimension < 0) {
+        if (columns < 0 || rows < 0) {
             throw new InvalidArgumentException(
                     "Number of reference regions must be zero or higher.");
         }
+        // We can return zero immediately, if the number of reference regions is zero.
+        if (columns == 0 || rows == 0) { return 0; }
         // Length of source and target array has to match number of regions.
-        if (source.length != refRegionsInOneDimension) {
+        final int totalNumberOfRefRegions = columns * rows;
+        if (source.length != totalNumberOfRefRegions) {
             throw new InvalidArgumentException(
                     "Source array length doesn't match number of regions.");
         }
-        if (target.length != refRegionsInOneDimension) {
+        if (target.length != totalNumberOfRefRegions) {
             throw new InvalidArgumentException(
                     "Target array length doesn't match number of regions.");
         }
 
-
-        /**
-         * There are several ways to calculate distances between two vectors, we will calculate the
-         * sum of the distances between the RGB values of pixels in the same positions.
-         */
-        double dist = 0;
-        for (int x = 0; x < refRegionsInOneDimension; x++) {
-            for (int y = 0; y < refRegionsInOneDimension; y++) {
-                final int r1 = source[x][y].getRed();
-                final int g1 = target[x][y].getGreen();
-                final int b1 = source[x][y].getBlue();
-                final int r2 = target[x][y].getRed();
-                final int g2 = source[x][y].getGreen();
-                final int b2 = target[x][y].getBlue();
-                final double tempDist = Math.sqrt((r1 - r2) * (r1 - r2) + (g1 - g2)
-                        * (g1 - g2) + (b1 - b2) * (b1 - b2));
-                dist += tempDist;
-            }
-        }
-
-        return dist;
+        return DistanceMetric.EUCLIDEAN.distance(source, target, totalNumberOfRefRegions);
     }
 
     /**
-     * Calculate the maximum distance between two images depending on the number of regions used.
+     * Calculate the maximum Euclidean distance between two images depending on the number of
+     * regions used.
      *
      * @param totalNumberOfRefRegions The number of regions used to compute the differences between
      * two
@@ -397,9 +2235,37 @@ public class SimpleImageComparisonProcessor implements ImageComparisonProcessor
      */
     protected static final double calculateMaxDistance(final int totalNumberOfRefRegions) {
 
-        if (totalNumberOfRefRegions < 0) { return -1; }
+        return DistanceMetric.EUCLIDEAN.maxDistance(totalNumberOfRefRegions);
+    }
+
+    /**
+     * Calculate the maximum Euclidean distance between two images depending on the grid of
+     * regions used.
+     *
+     * @param columns The number of columns of regions.
+     * @param rows The number of rows of regions.
+     * @return The maximum distance possible as a double value or -1, if the number of columns or
+     * rows is below zero.
+     */
+    protected static final double calculateMaxDistance(final int columns, final int rows) {
+
+        if (columns < 0 || rows < 0) {
+            return -1;
+        }
+
+        return calculateMaxDistance(columns * rows);
+    }
+
+    /**
+     * Calculate the maximum Euclidean distance between two images depending on the regions of a
+     * signature, which are compared. Masked regions don't count.
+     *
+     * @param signature The signature.
+     * @return The maximum distance possible as a double value.
+     */
+    protected static final double calculateMaxDistance(final ImageSignature signature) {
 
-        return totalNumberOfRefRegions * MAX_DISTANCE_MULTIPLIER;
+        return calculateMaxDistance(signature.getActiveRegionCount());
     }
 
     /**
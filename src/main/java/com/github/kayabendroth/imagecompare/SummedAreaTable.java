@@ -0,0 +1,228 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+import java.awt.image.BufferedImage;
+
+
+/**
+ * A summed-area table (integral image) of the red, green and blue values of an image. It's built
+ * in a single pass over the pixels, after which the average color of any rectangle takes four
+ * lookups per color component, regardless of its size. This makes dense grids, large sampling
+ * areas and several signatures of the same image cheap.
+ * <p>
+ * The sums are kept in {@literal int}s and may overflow for large images. Since the sum of a
+ * rectangle is a difference of these values, the overflows cancel out, as long as the true sum
+ * fits into an {@literal int}. Larger rectangles are summed in strips of rows, which do.
+ * <p>
+ * A table never changes once built, so it may be shared between threads.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ */
+public final class SummedAreaTable implements RegionAverager {
+
+
+    /**
+     * Bit position of the red component in a packed RGB value.
+     */
+    private static final int RED_POSITION = 16;
+
+    /**
+     * Bit position of the green component in a packed RGB value.
+     */
+    private static final int GREEN_POSITION = 8;
+
+    /**
+     * Bitmask for one color component.
+     */
+    private static final int BITMASK = 0xFF;
+
+    /**
+     * Number of color components per pixel.
+     */
+    private static final int COMPONENTS = 3;
+
+    /**
+     * Index of the blue sum of an entry.
+     */
+    private static final int BLUE = 2;
+
+    /**
+     * The largest number of pixels, whose summed color components are sure to fit into an
+     * {@literal int}.
+     */
+    private static final int MAX_EXACT_PIXELS = Integer.MAX_VALUE / BITMASK;
+
+
+    /**
+     * The width of the image.
+     */
+    private final int width;
+
+    /**
+     * The height of the image.
+     */
+    private final int height;
+
+    /**
+     * Number of array elements per row of the table.
+     */
+    private final int stride;
+
+    /**
+     * The sums of the red, green and blue values of all pixels above and left of a position. The
+     * table has one row and one column more than the image, the first ones being all zero.
+     */
+    private final int[] sums;
+
+
+    /**
+     * This is the constructor, which builds the table.
+     *
+     * @param image The image to build the table of.
+     */
+    public SummedAreaTable(final BufferedImage image) {
+
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+        this.stride = (width + 1) * COMPONENTS;
+        this.sums = new int[stride * (height + 1)];
+
+        // The common image types are read without converting every pixel to a packed int.
+        final boolean packed = image.getType() == BufferedImage.TYPE_INT_RGB
+                || image.getType() == BufferedImage.TYPE_INT_ARGB;
+        final boolean bands = image.getType() == BufferedImage.TYPE_3BYTE_BGR;
+        final int[] row = new int[width * COMPONENTS];
+        for (int y = 0; y < height; y++) {
+            if (bands) {
+                image.getRaster().getPixels(0, y, width, 1, row);
+            } else {
+                if (packed) {
+                    image.getRaster().getDataElements(0, y, width, 1, row);
+                } else {
+                    image.getRGB(0, y, width, 1, row, 0, width);
+                }
+                unpack(row);
+            }
+            int red = 0;
+            int green = 0;
+            int blue = 0;
+            int above = y * stride + COMPONENTS;
+            int i = above + stride;
+            for (int j = 0; j < row.length; j += COMPONENTS) {
+                red += row[j];
+                green += row[j + 1];
+                blue += row[j + BLUE];
+                sums[i] = sums[above] + red;
+                sums[i + 1] = sums[above + 1] + green;
+                sums[i + BLUE] = sums[above + BLUE] + blue;
+                i += COMPONENTS;
+                above += COMPONENTS;
+            }
+        }
+    }
+
+
+    /**
+     * Unpack a row of packed RGB values in place into their red, green and blue components.
+     *
+     * @param row The packed values at the beginning of the row, being replaced by the components.
+     */
+    private static void unpack(final int[] row) {
+
+        // Back to front, so no packed value is overwritten before it's read.
+        for (int x = row.length / COMPONENTS - 1; x >= 0; x--) {
+            final int pixel = row[x];
+            row[x * COMPONENTS] = (pixel >> RED_POSITION) & BITMASK;
+            row[x * COMPONENTS + 1] = (pixel >> GREEN_POSITION) & BITMASK;
+            row[x * COMPONENTS + BLUE] = pixel & BITMASK;
+        }
+    }
+
+
+    /**
+     * @return The width of the image.
+     */
+    public int getWidth() {
+
+        return width;
+    }
+
+    /**
+     * @return The height of the image.
+     */
+    public int getHeight() {
+
+        return height;
+    }
+
+    /**
+     * Average the RGB values of all pixels within a rectangle. The rectangle will be clipped to
+     * the bounds of the image.
+     *
+     * @param x0 The first column of the rectangle (inclusive).
+     * @param y0 The first row of the rectangle (inclusive).
+     * @param x1 The last column of the rectangle (exclusive).
+     * @param y1 The last row of the rectangle (exclusive).
+     * @return The averaged color packed as {@literal 0xRRGGBB}, or zero (black) if the rectangle
+     * doesn't contain any pixel.
+     */
+    @Override
+    public int averageRgb(final int x0, final int y0, final int x1, final int y1) {
+
+        final int fromX = Math.max(x0, 0);
+        final int fromY = Math.max(y0, 0);
+        final int toX = Math.min(x1, width);
+        final int toY = Math.min(y1, height);
+        if (fromX >= toX || fromY >= toY) { return 0; }
+
+        final int rowsPerStrip = Math.max(MAX_EXACT_PIXELS / (toX - fromX), 1);
+        long red = 0;
+        long green = 0;
+        long blue = 0;
+        for (int stripY = fromY; stripY < toY; stripY += rowsPerStrip) {
+            final int top = stripY * stride;
+            final int bottom = Math.min(stripY + rowsPerStrip, toY) * stride;
+            final int left = fromX * COMPONENTS;
+            final int right = toX * COMPONENTS;
+            red += sum(top, bottom, left, right);
+            green += sum(top + 1, bottom + 1, left, right);
+            blue += sum(top + BLUE, bottom + BLUE, left, right);
+        }
+
+        return RegionAveragers.pack(red, green, blue, (long) (toX - fromX) * (toY - fromY));
+    }
+
+    /**
+     * Sum one color component of a rectangle.
+     *
+     * @param top The index of the component in the first entry of the upper table row.
+     * @param bottom The index of the component in the first entry of the lower table row.
+     * @param left The offset of the left table column.
+     * @param right The offset of the right table column.
+     * @return The sum of the component of all pixels of the rectangle.
+     */
+    private int sum(final int top, final int bottom, final int left, final int right) {
+
+        return sums[bottom + right] - sums[top + right] - sums[bottom + left] + sums[top + left];
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * This file is part of the Java library imagecompare.
+ *
+ * Copyright © 2013, Kay Abendroth or third-party contributors as
+ * indicated by the @author tags or express copyright attribution
+ * statements applied by the authors.
+ *
+ * imagecompare is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * imagecompare is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with imagecompare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.kayabendroth.imagecompare;
+
+
+/**
+ * How a test image is brought to the width of the reference before its signature is calculated.
+ *
+ * @author kay.abendroth@raxion.net (Kay Abendroth)
+ * @since 1.0.0
+ */
+public enum TestImageScaling {
+
+    /**
+     * Re-scale the whole test image to the width of the reference with {@literal imgscalr} and
+     * calculate the signature of the re-scaled copy. This is the default.
+     */
+    RESCALE,
+
+    /**
+     * Calculate the signature straight from the pixels of the test image. Every sampling area is
+     * laid out in the coordinate space of the reference and mapped back to the test image pixels
+     * it covers. This saves the re-scaled copy of large test images. The scores are close to the
+     * ones of {@link #RESCALE}, but not identical, as the pixels are averaged instead of being
+     * interpolated.
+     */
+    DIRECT
+}
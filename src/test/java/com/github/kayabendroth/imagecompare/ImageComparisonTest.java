@@ -22,16 +22,41 @@ package com.github.kayabendroth.imagecompare;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.imageio.ImageIO;
 
 import com.github.kayabendroth.imagecompare.ImageComparisonModule;
 import com.github.kayabendroth.imagecompare.ImageComparisonService;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.name.Names;
+import org.imgscalr.Scalr;
+import org.imgscalr.Scalr.Method;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -257,4 +282,1033 @@ public class ImageComparisonTest {
         assertTrue("Images with a small difference will not be identified as identical with low percentage.", result);
         referenceImage = testImage = null;
     }
+
+    @Test
+    public final void checkImageComparisonWithPrecomputedSignature() {
+
+        BufferedImage googleReferenceImage;
+        BufferedImage googleIdenticalImage;
+        BufferedImage bingImage;
+        googleReferenceImage = googleIdenticalImage = bingImage = null;
+
+        try {
+            googleReferenceImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleReference));
+            googleIdenticalImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleIdentical));
+            bingImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(bing));
+        } catch (final IOException ioe) {
+            assertTrue(ioe.getMessage(), false);
+        } catch (final IllegalArgumentException iae) {
+            assertTrue(iae.getMessage(), false);
+        }
+
+        final Injector injector = Guice.createInjector(new ImageComparisonModule());
+        final ImageComparisonService imageComparisonService = injector.getInstance(ImageComparisonService.class);
+
+        // The signature of the reference image is computed once and can be used several times.
+        final ImageSignature referenceSignature = imageComparisonService.createSignature(googleReferenceImage);
+        assertEquals("Signature keeps the width of the reference image.",
+                googleReferenceImage.getWidth(),
+                referenceSignature.getWidth());
+        assertTrue("Identical image matches the precomputed signature.",
+                imageComparisonService.compareWithSignature(googleIdenticalImage, referenceSignature));
+        assertFalse("Bing does not match the precomputed Google signature.",
+                imageComparisonService.compareWithSignature(bingImage, referenceSignature));
+        assertTrue("Identical image still matches the precomputed signature.",
+                imageComparisonService.compareWithSignature(googleIdenticalImage, referenceSignature));
+
+        // Two precomputed signatures can be compared with each other.
+        final ImageSignature identicalSignature = imageComparisonService.createSignature(googleIdenticalImage);
+        assertTrue("Signatures of identical images are equal.",
+                imageComparisonService.compareSignatures(identicalSignature, referenceSignature));
+        final ImageSignature bingSignature = imageComparisonService.createSignature(bingImage);
+        assertFalse("Signatures of Bing and Google are not equal.",
+                imageComparisonService.compareSignatures(bingSignature, referenceSignature));
+
+        // Signatures of images with different widths cannot be compared.
+        BufferedImage manWallImage = null;
+        try {
+            manWallImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(manWallWithPlate));
+        } catch (final IOException ioe) {
+            assertTrue(ioe.getMessage(), false);
+        }
+        final ImageSignature manWallSignature = imageComparisonService.createSignature(manWallImage);
+        InvalidArgumentException toTest = null;
+        try {
+            imageComparisonService.compareSignatures(manWallSignature, referenceSignature, 50);
+        } catch (final InvalidArgumentException iae) {
+            toTest = iae;
+        }
+        assertTrue("Exception is not null.", toTest != null);
+        assertEquals("Exception message is as expected",
+                "Test signature and reference signature have been computed for images of different width.",
+                toTest.getMessage());
+    }
+
+    @Test
+    public final void checkConcurrentImageComparison() throws Exception {
+
+        final BufferedImage googleReferenceImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleReference));
+        final BufferedImage googleIdenticalImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleIdentical));
+        final BufferedImage bingImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(bing));
+        final BufferedImage manWallWithPlateImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(manWallWithPlate));
+        final BufferedImage manWallWithoutPlateImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(manWallWithoutPlate));
+        // A tiny image forces a reduced sample size, which must not leak into other comparisons.
+        final BufferedImage tinyImage = new BufferedImage(60, 20, BufferedImage.TYPE_INT_RGB);
+
+        final Injector injector = Guice.createInjector(new ImageComparisonModule());
+        final ImageComparisonService imageComparisonService = injector.getInstance(ImageComparisonService.class);
+        assertTrue("The service is a singleton.",
+                imageComparisonService == injector.getInstance(ImageComparisonService.class));
+
+        // One shared service instance is used by all threads without any locking.
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+        try {
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        final boolean tiny = imageComparisonService.compare(tinyImage, tinyImage);
+                        final boolean identical = imageComparisonService.compare(googleIdenticalImage, googleReferenceImage);
+                        final boolean different = imageComparisonService.compare(bingImage, googleReferenceImage);
+                        final boolean slightlyDifferent = imageComparisonService.compare(manWallWithoutPlateImage, manWallWithPlateImage);
+                        final boolean lowPercentage = imageComparisonService.compare(manWallWithoutPlateImage, manWallWithPlateImage, 50);
+                        return tiny && identical && !different && !slightlyDifferent && lowPercentage;
+                    }
+                }));
+            }
+            for (final Future<Boolean> result : results) {
+                assertTrue("Concurrent comparisons have the same results as sequential ones.", result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public final void checkComparisonStatistics() throws IOException {
+
+        final BufferedImage googleReferenceImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleReference));
+        final BufferedImage googleIdenticalImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleIdentical));
+        final BufferedImage manWallImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(manWallWithPlate));
+
+        final ComparisonStatistics statistics = new ComparisonStatistics();
+        final Injector injector = Guice.createInjector(new ImageComparisonModule().withComparisonListener(statistics));
+        final ImageComparisonService imageComparisonService = injector.getInstance(ImageComparisonService.class);
+
+        // One comparison of two images calculates two signatures, re-scales once and calculates one distance.
+        assertTrue("Identical images are equal.",
+                imageComparisonService.compare(googleIdenticalImage, googleReferenceImage));
+        assertEquals("Two signatures have been calculated.", 2, statistics.getSignatureCount());
+        assertEquals("One test image has been re-scaled.", 1, statistics.getRescaleCount());
+        assertEquals("One distance has been calculated.", 1, statistics.getDistanceCount());
+        assertTrue("Time has been spent for the signatures.", statistics.getSignatureNanos() > 0);
+        assertTrue("Time has been spent for re-scaling.", statistics.getRescaleNanos() > 0);
+
+        // Invalid arguments are reported instead of being printed.
+        assertFalse("Signatures of images with different widths are not equal.",
+                imageComparisonService.compareSignatures(
+                        imageComparisonService.createSignature(manWallImage),
+                        imageComparisonService.createSignature(googleReferenceImage)));
+        assertEquals("One invalid argument has been reported.", 1, statistics.getInvalidArgumentCount());
+        assertEquals("Two more signatures have been calculated.", 4, statistics.getSignatureCount());
+
+        // Listeners of your own override the notifications they're interested in only.
+        final AtomicReference<Double> percentage = new AtomicReference<Double>();
+        final ComparisonListener adapter = new ComparisonListenerAdapter() {
+            @Override
+            public boolean isEnabled() {
+                return true;
+            }
+            @Override
+            public void distanceCalculated(final double distance, final double maxDistance,
+                    final double percentageOfEquality, final long nanos) {
+                percentage.set(percentageOfEquality);
+            }
+        };
+        assertTrue("Identical images are equal.", Guice.createInjector(new ImageComparisonModule().withComparisonListener(adapter))
+                .getInstance(ImageComparisonService.class).compare(googleIdenticalImage, googleReferenceImage));
+        assertEquals("The adapter is notified.", 100.0, percentage.get(), 0);
+    }
+
+    @Test
+    public final void checkDetailedComparison() throws IOException, InvalidArgumentException {
+
+        final BufferedImage referenceImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(manWallWithPlate));
+        final BufferedImage testImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(manWallWithoutPlate));
+
+        final Injector injector = Guice.createInjector(new ImageComparisonModule());
+        final ImageComparisonService imageComparisonService = injector.getInstance(ImageComparisonService.class);
+
+        // One detailed result can be checked against several thresholds.
+        final ComparisonResult result = imageComparisonService.compareDetailed(testImage, referenceImage);
+        assertFalse("Slightly different images are not equal by default.", result.isEqual());
+        assertTrue("Slightly different images are equal with low percentage.", result.isEqual(50));
+        assertFalse("Slightly different images are not identical.", result.isEqual(100));
+        assertTrue("Percentage of equality is below the default.",
+                result.getPercentageOfEquality() < ImageComparisonProcessor.DEFAULT_DEFINITION_OF_EQUAL);
+        assertEquals("The boolean comparison agrees with the detailed one.",
+                result.isEqual(), imageComparisonService.compare(testImage, referenceImage));
+
+        // The result holds the raw values it has been computed from.
+        assertEquals("Grid size is determined by the reference width.", 300 / 28, result.getRegionsInOneDimension());
+        assertEquals("Maximum distance matches the grid size.",
+                SimpleImageComparisonProcessor.calculateMaxDistance(10 * 10), result.getMaxDistance(), 0);
+        assertEquals("Percentage of equality is computed from the distances.",
+                100 - result.getDistance() / result.getMaxDistance() * 100, result.getPercentageOfEquality(), 0);
+        assertTrue("Time has been spent for the signatures.", result.getSignatureNanos() > 0);
+        assertTrue("Time has been spent for re-scaling.", result.getRescaleNanos() > 0);
+
+        // The same result is computed from a precomputed signature.
+        final ImageSignature referenceSignature = imageComparisonService.createSignature(referenceImage);
+        assertEquals("The same result is computed from a precomputed signature.",
+                result.getPercentageOfEquality(),
+                imageComparisonService.compareDetailed(testImage, referenceSignature).getPercentageOfEquality(),
+                0);
+
+        // Invalid thresholds are rejected.
+        InvalidArgumentException toTest = null;
+        try {
+            result.isEqual(111);
+        } catch (final InvalidArgumentException iae) {
+            toTest = iae;
+        }
+        assertTrue("Exception is not null.", toTest != null);
+    }
+
+    @Test
+    public final void checkCompareAllReferences() throws IOException {
+
+        final BufferedImage googleReferenceImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleReference));
+        final BufferedImage googleIdenticalImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleIdentical));
+        final BufferedImage bingImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(bing));
+        final BufferedImage buttonsImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(buttonsReference));
+        final BufferedImage manWallImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(manWallWithPlate));
+
+        final ComparisonStatistics statistics = new ComparisonStatistics();
+        final Injector injector = Guice.createInjector(new ImageComparisonModule().withComparisonListener(statistics));
+        final ImageComparisonService imageComparisonService = injector.getInstance(ImageComparisonService.class);
+
+        final List<BufferedImage> references = new ArrayList<BufferedImage>();
+        references.add(bingImage);
+        references.add(manWallImage);
+        references.add(googleReferenceImage);
+        references.add(buttonsImage);
+        final List<ReferenceMatch> matches = imageComparisonService.compareAllImages(googleIdenticalImage, references);
+
+        // There is one match per reference and the best match comes first.
+        assertEquals("There is one match per reference.", references.size(), matches.size());
+        assertEquals("The identical image is the best match.", 2, matches.get(0).getReferenceIndex());
+        assertTrue("The best match is equal.", matches.get(0).getResult().isEqual());
+        for (int i = 1; i < matches.size(); i++) {
+            assertFalse("Other references are not equal.", matches.get(i).getResult().isEqual());
+            assertTrue("Matches are ordered by percentage of equality.",
+                    matches.get(i - 1).getResult().getPercentageOfEquality()
+                    >= matches.get(i).getResult().getPercentageOfEquality());
+        }
+
+        // The test image has been re-scaled and signed once per distinct reference width only.
+        assertEquals("Re-scaled once per distinct width.", 2, statistics.getRescaleCount());
+        assertEquals("Four reference signatures and two test signatures.", 6, statistics.getSignatureCount());
+
+        // Batch results agree with single comparisons.
+        for (final ReferenceMatch match : matches) {
+            assertEquals("Batch results agree with single comparisons.",
+                    imageComparisonService.compareDetailed(googleIdenticalImage, references.get(match.getReferenceIndex()))
+                            .getPercentageOfEquality(),
+                    match.getResult().getPercentageOfEquality(),
+                    0);
+        }
+    }
+
+    @Test
+    public final void checkParallelComparison() throws Exception {
+
+        final BufferedImage googleReferenceImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleReference));
+        final BufferedImage googleIdenticalImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleIdentical));
+        final BufferedImage bingImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(bing));
+        final BufferedImage manWallWithPlateImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(manWallWithPlate));
+        final BufferedImage manWallWithoutPlateImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(manWallWithoutPlate));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Injector injector = Guice.createInjector(new ImageComparisonModule().withExecutorService(executor));
+            final ParallelImageComparisonService parallelService = injector.getInstance(ParallelImageComparisonService.class);
+            final ImageComparisonProcessor sequentialProcessor = new SimpleImageComparisonProcessor();
+
+            // Signatures sampled in parallel bands are identical to sequentially sampled ones.
+            final ImageSignature parallelSignature =
+                    injector.getInstance(ImageComparisonProcessor.class).createSignature(googleReferenceImage);
+            final ImageSignature sequentialSignature = sequentialProcessor.createSignature(googleReferenceImage);
+            for (int y = 0; y < sequentialSignature.getRegionsInOneDimension(); y++) {
+                for (int x = 0; x < sequentialSignature.getRegionsInOneDimension(); x++) {
+                    assertEquals("Parallel signature is identical.",
+                            sequentialSignature.getRegionRgb(x, y), parallelSignature.getRegionRgb(x, y));
+                }
+            }
+
+            final List<ComparisonPair> pairs = new ArrayList<ComparisonPair>();
+            pairs.add(ComparisonPair.of(googleIdenticalImage, googleReferenceImage));
+            pairs.add(ComparisonPair.of(bingImage, parallelSignature));
+            pairs.add(ComparisonPair.of(manWallWithoutPlateImage, manWallWithPlateImage));
+            pairs.add(ComparisonPair.of(googleIdenticalImage, sequentialSignature));
+            final List<ComparisonResult> results = parallelService.compareAll(pairs);
+
+            // There is one result per pair, in the order of the pairs.
+            assertEquals("There is one result per pair.", pairs.size(), results.size());
+            assertTrue("Identical images are equal.", results.get(0).isEqual());
+            assertFalse("Different images are not equal.", results.get(1).isEqual());
+            assertFalse("Different images are not equal.", results.get(2).isEqual());
+            assertTrue("Identical images are equal.", results.get(3).isEqual());
+            assertEquals("Parallel results agree with sequential comparisons.",
+                    sequentialProcessor.compareDetailed(manWallWithoutPlateImage, manWallWithPlateImage)
+                            .getPercentageOfEquality(),
+                    results.get(2).getPercentageOfEquality(),
+                    0);
+        } finally {
+            executor.shutdown();
+        }
+
+        // Injectors without an executor of their own share the default one.
+        final Key<ExecutorService> executorKey =
+                Key.get(ExecutorService.class, Names.named(ImageComparisonModule.COMPARISON_EXECUTOR));
+        assertSame("The default executor is shared.",
+                Guice.createInjector(new ImageComparisonModule()).getInstance(executorKey),
+                Guice.createInjector(new ImageComparisonModule()).getInstance(executorKey));
+    }
+
+    @Test
+    public final void checkAsyncComparison() throws Exception {
+
+        final BufferedImage googleReferenceImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleReference));
+        final BufferedImage googleIdenticalImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleIdentical));
+
+        // One thread and room for one waiting comparison only.
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(1));
+        try {
+            final Injector injector = Guice.createInjector(new ImageComparisonModule().withAsyncExecutorService(executor));
+            final AsyncImageComparisonService asyncService = injector.getInstance(AsyncImageComparisonService.class);
+
+            // The callback is told about the result.
+            final AtomicReference<ComparisonResult> completed = new AtomicReference<ComparisonResult>();
+            final CountDownLatch callbackCalled = new CountDownLatch(1);
+            final Future<ComparisonResult> future = asyncService.compareAsync(googleIdenticalImage, googleReferenceImage,
+                    new ComparisonCallback() {
+                        @Override
+                        public void completed(final ComparisonResult result) {
+                            completed.set(result);
+                            callbackCalled.countDown();
+                        }
+                        @Override
+                        public void failed(final Throwable cause) {
+                            callbackCalled.countDown();
+                        }
+                    });
+            assertTrue("Identical images are equal.", future.get().isEqual());
+            assertTrue("Callback has been called.", callbackCalled.await(10, TimeUnit.SECONDS));
+            assertTrue("Callback got the result.", completed.get() != null && completed.get().isEqual());
+
+            // Block the only thread and fill the queue, so the next comparison is rejected.
+            final CountDownLatch blocked = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    blocked.countDown();
+                    try {
+                        release.await();
+                    } catch (final InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            assertTrue("Thread is blocked.", blocked.await(10, TimeUnit.SECONDS));
+            final Future<ComparisonResult> queued = asyncService.compareAsync(googleIdenticalImage, googleReferenceImage, null);
+            final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+            final Future<ComparisonResult> rejected = asyncService.compareAsync(googleIdenticalImage, googleReferenceImage,
+                    new ComparisonCallback() {
+                        @Override
+                        public void completed(final ComparisonResult result) {
+                        }
+                        @Override
+                        public void failed(final Throwable cause) {
+                            failure.set(cause);
+                        }
+                    });
+            assertTrue("Rejected comparison is done immediately.", rejected.isDone());
+            assertTrue("Callback is told about the rejection.", failure.get() instanceof RejectedExecutionException);
+            Throwable toTest = null;
+            try {
+                rejected.get();
+            } catch (final ExecutionException ee) {
+                toTest = ee.getCause();
+            }
+            assertTrue("Future has failed with the rejection.", toTest instanceof RejectedExecutionException);
+
+            release.countDown();
+            assertTrue("Queued comparison completes.", queued.get().isEqual());
+        } finally {
+            executor.shutdown();
+        }
+
+        // Injectors without an executor of their own share the default one of their queue capacity.
+        final Key<ExecutorService> executorKey =
+                Key.get(ExecutorService.class, Names.named(ImageComparisonModule.ASYNC_EXECUTOR));
+        assertSame("The default executor is shared.",
+                Guice.createInjector(new ImageComparisonModule()).getInstance(executorKey),
+                Guice.createInjector(new ImageComparisonModule()).getInstance(executorKey));
+        assertFalse("Each queue capacity has an executor of its own.",
+                Guice.createInjector(new ImageComparisonModule()).getInstance(executorKey)
+                        == Guice.createInjector(new ImageComparisonModule().withAsyncQueueCapacity(1)).getInstance(executorKey));
+    }
+
+    @Test
+    public final void checkDirectTestImageScaling() throws IOException {
+
+        final BufferedImage googleReferenceImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleReference));
+        final BufferedImage googleIdenticalImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleIdentical));
+        final BufferedImage manWallWithPlateImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(manWallWithPlate));
+        final BufferedImage manWallWithoutPlateImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(manWallWithoutPlate));
+
+        final ComparisonStatistics statistics = new ComparisonStatistics();
+        final Injector injector = Guice.createInjector(new ImageComparisonModule()
+                .withComparisonListener(statistics).withTestImageScaling(TestImageScaling.DIRECT));
+        final ImageComparisonService directService = injector.getInstance(ImageComparisonService.class);
+        final ImageComparisonService rescaleService = Guice.createInjector(new ImageComparisonModule())
+                .getInstance(ImageComparisonService.class);
+
+        assertTrue("Identical images are equal.", directService.compare(googleIdenticalImage, googleReferenceImage));
+        assertFalse("Different images are not equal.", directService.compare(manWallWithoutPlateImage, manWallWithPlateImage));
+
+        // Test images of another size yield about the same score as re-scaled ones.
+        assertEquals("Down-scaled test image scores about the same.",
+                rescaleService.compareDetailed(googleReferenceImage, manWallWithPlateImage).getPercentageOfEquality(),
+                directService.compareDetailed(googleReferenceImage, manWallWithPlateImage).getPercentageOfEquality(),
+                0.5);
+        assertEquals("Up-scaled test image scores about the same.",
+                rescaleService.compareDetailed(manWallWithPlateImage, googleReferenceImage).getPercentageOfEquality(),
+                directService.compareDetailed(manWallWithPlateImage, googleReferenceImage).getPercentageOfEquality(),
+                0.5);
+
+        // The test image has never been re-scaled.
+        assertEquals("No test image has been re-scaled.", 0, statistics.getRescaleCount());
+    }
+
+    @Test
+    public final void checkSignatureCache() throws Exception {
+
+        final BufferedImage googleReferenceImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleReference));
+        final BufferedImage googleReferenceImageAgain = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleReference));
+        final BufferedImage googleIdenticalImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleIdentical));
+        final BufferedImage bingImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(bing));
+        final BufferedImage manWallWithPlateImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(manWallWithPlate));
+        final BufferedImage manWallWithoutPlateImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(manWallWithoutPlate));
+
+        final SignatureCache cache = new SignatureCache(2);
+        final ComparisonStatistics statistics = new ComparisonStatistics();
+        final Injector injector = Guice.createInjector(new ImageComparisonModule()
+                .withComparisonListener(statistics).withSignatureCache(cache));
+        final ImageComparisonService imageComparisonService = injector.getInstance(ImageComparisonService.class);
+
+        // The same content read twice hits the cache.
+        assertTrue("Identical images are equal.", imageComparisonService.compare(googleIdenticalImage, googleReferenceImage));
+        assertTrue("Identical images are equal.", imageComparisonService.compare(googleIdenticalImage, googleReferenceImageAgain));
+        assertEquals("First lookup misses.", 1, cache.getMissCount());
+        assertEquals("Second lookup hits.", 1, cache.getHitCount());
+        assertEquals("Reference signed once, test image twice.", 3, statistics.getSignatureCount());
+
+        // The least recently used signature is evicted.
+        assertFalse("Different images are not equal.", imageComparisonService.compare(bingImage, manWallWithPlateImage));
+        assertFalse("Different images are not equal.", imageComparisonService.compare(manWallWithoutPlateImage, bingImage));
+        assertEquals("Cache is bounded.", 2, cache.size());
+        assertEquals("One signature evicted.", 1, cache.getEvictionCount());
+        imageComparisonService.compare(googleIdenticalImage, googleReferenceImage);
+        assertEquals("Evicted signature misses.", 4, cache.getMissCount());
+
+        // Caller-supplied keys skip the content hash.
+        final CachingImageComparisonProcessor processor =
+                (CachingImageComparisonProcessor) injector.getInstance(ImageComparisonProcessor.class);
+        final ImageSignature signature = processor.createSignature("man_and_wall", manWallWithPlateImage);
+        assertTrue("Cached by key.", signature == processor.createSignature("man_and_wall", null));
+        processor.invalidate("man_and_wall");
+        assertTrue("Invalidated by key.", signature != processor.createSignature("man_and_wall", manWallWithPlateImage));
+
+        // Indexed images with the same indices, but different palettes don't share a signature.
+        final byte[] black = {0, 0};
+        final byte[] none = {0, 0};
+        final byte[] full = {0, (byte) 255};
+        final BufferedImage blueImage = new BufferedImage(200, 100, BufferedImage.TYPE_BYTE_BINARY,
+                new IndexColorModel(1, 2, black, none, full));
+        final BufferedImage redImage = new BufferedImage(200, 100, BufferedImage.TYPE_BYTE_BINARY,
+                new IndexColorModel(1, 2, full, none, black));
+        for (final BufferedImage indexedImage : new BufferedImage[] {blueImage, redImage}) {
+            final Graphics2D graphics = indexedImage.createGraphics();
+            graphics.setColor(new Color(indexedImage.getColorModel().getRGB(1)));
+            graphics.fillRect(0, 0, 200, 100);
+            graphics.dispose();
+        }
+        assertTrue("Identical indexed images are equal.", imageComparisonService.compare(blueImage, blueImage));
+        assertFalse("Indexed images of different colors are not equal.", imageComparisonService.compare(blueImage, redImage));
+
+        // Modules with different profiles share a cache without mixing up their signatures.
+        final SignatureCache sharedCache = new SignatureCache(10);
+        final ImageComparisonProcessor fastProcessor = Guice.createInjector(new ImageComparisonModule()
+                .withProfile(ComparisonProfile.FAST).withSignatureCache(sharedCache)).getInstance(ImageComparisonProcessor.class);
+        final ImageComparisonProcessor preciseProcessor = Guice.createInjector(new ImageComparisonModule()
+                .withProfile(ComparisonProfile.PRECISE).withSignatureCache(sharedCache)).getInstance(ImageComparisonProcessor.class);
+        final ImageSignature preciseSignature = preciseProcessor.createSignature(googleReferenceImage);
+        final ImageSignature fastSignature = fastProcessor.createSignature(googleReferenceImage);
+        assertFalse("Each profile gets its own signature.", fastSignature.hasSameGrid(preciseSignature));
+        assertTrue("Same grid as without a cache.", fastSignature.hasSameGrid(
+                new SimpleImageComparisonProcessor().withProfile(ComparisonProfile.FAST).createSignature(googleReferenceImage)));
+        assertEquals("Both signatures are cached.", 2, sharedCache.size());
+
+        // The number of bytes bounds the cache, too.
+        final SignatureCache smallCache = new SignatureCache(Integer.MAX_VALUE,
+                SignatureCache.estimateBytes(signature) * 2);
+        smallCache.put("a", signature);
+        smallCache.put("b", signature);
+        smallCache.put("c", signature);
+        assertEquals("Cache is bounded by bytes.", 2, smallCache.size());
+        assertTrue("Least recently used evicted.", smallCache.get("a") == null);
+        assertEquals("Bytes are accounted.", SignatureCache.estimateBytes(signature) * 2, smallCache.getBytes());
+    }
+
+    @Test
+    public final void checkSignatureStore() throws Exception {
+
+        final BufferedImage googleReferenceImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleReference));
+        final BufferedImage googleIdenticalImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleIdentical));
+        final BufferedImage manWallWithPlateImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(manWallWithPlate));
+        final BufferedImage buttonsImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(buttonsReference));
+
+        final Injector injector = Guice.createInjector(new ImageComparisonModule());
+        final ImageComparisonService imageComparisonService = injector.getInstance(ImageComparisonService.class);
+
+        final Map<String, ImageSignature> signatures = new LinkedHashMap<String, ImageSignature>();
+        signatures.put("google", imageComparisonService.createSignature(googleReferenceImage));
+        signatures.put("man_and_wall", imageComparisonService.createSignature(manWallWithPlateImage));
+        signatures.put("buttons-\u00e4\u00f6\u00fc", imageComparisonService.createSignature(buttonsImage));
+        for (int i = 0; i < 100; i++) {
+            signatures.put("man_and_wall-" + i, signatures.get("man_and_wall"));
+        }
+
+        final File file = File.createTempFile("signatures", ".isig");
+        file.deleteOnExit();
+        SignatureStore.write(file, signatures);
+        final SignatureStore store = SignatureStore.open(file);
+        try {
+            assertEquals("All signatures are stored.", signatures.size(), store.size());
+            for (final Map.Entry<String, ImageSignature> entry : signatures.entrySet()) {
+                final ImageSignature expected = entry.getValue();
+                final ImageSignature actual = store.get(entry.getKey());
+                assertEquals("Width is stored.", expected.getWidth(), actual.getWidth());
+                assertEquals("Height is stored.", expected.getHeight(), actual.getHeight());
+                assertEquals("Sample size is stored.", expected.getSampleSize(), actual.getSampleSize());
+                assertEquals("Regions are stored.", expected.getRegionsInOneDimension(), actual.getRegionsInOneDimension());
+                for (int y = 0; y < expected.getRegionsInOneDimension(); y++) {
+                    for (int x = 0; x < expected.getRegionsInOneDimension(); x++) {
+                        assertEquals("Region colors are stored.", expected.getRegionRgb(x, y), actual.getRegionRgb(x, y));
+                    }
+                }
+            }
+            assertTrue("Unknown keys aren't found.", store.get("bing") == null);
+            assertTrue("Stored signatures can be compared.",
+                    imageComparisonService.compareWithSignature(googleIdenticalImage, store.get("google")));
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public final void checkSubsampledDecoding() throws IOException {
+
+        final Injector injector = Guice.createInjector(new ImageComparisonModule());
+        final ImageComparisonService imageComparisonService = injector.getInstance(ImageComparisonService.class);
+
+        final ImageSignature googleSignature =
+                imageComparisonService.createSignature(ImageComparisonTest.class.getResourceAsStream(googleReference));
+        final ImageSignature manWallSignature =
+                imageComparisonService.createSignature(ImageComparisonTest.class.getResourceAsStream(manWallWithPlate));
+        assertEquals("Grid is laid out for the full resolution.", 1920 / 28, googleSignature.getRegionsInOneDimension());
+
+        // Identical images stay equal, different images get about the same score as fully decoded ones.
+        assertTrue("Identical images are equal.",
+                imageComparisonService.compareDetailed(ImageComparisonTest.class.getResourceAsStream(googleIdentical),
+                        googleSignature).isEqual());
+        final String[][] pairs = {
+                {bing, googleReference},
+                {manWallWithoutPlate, manWallWithPlate},
+                {googleReference, manWallWithPlate},
+                {manWallWithPlate, googleReference}};
+        for (final String[] pair : pairs) {
+            final ImageSignature referenceSignature = pair[1].equals(googleReference) ? googleSignature : manWallSignature;
+            assertEquals("Subsampled decoding scores about the same.",
+                    imageComparisonService.compareDetailed(ImageIO.read(ImageComparisonTest.class.getResourceAsStream(pair[0])),
+                            ImageIO.read(ImageComparisonTest.class.getResourceAsStream(pair[1]))).getPercentageOfEquality(),
+                    imageComparisonService.compareDetailed(ImageComparisonTest.class.getResourceAsStream(pair[0]),
+                            referenceSignature).getPercentageOfEquality(),
+                    1.0);
+        }
+    }
+
+    @Test
+    public final void checkEarlyExit() throws Exception {
+
+        final BufferedImage googleReferenceImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleReference));
+        final BufferedImage googleIdenticalImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleIdentical));
+        final BufferedImage bingImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(bing));
+        final BufferedImage buttonsReferenceImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(buttonsReference));
+        final BufferedImage buttonsGreyImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(buttonsGrey));
+        final BufferedImage manWallWithPlateImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(manWallWithPlate));
+        final BufferedImage manWallWithoutPlateImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(manWallWithoutPlate));
+        final BufferedImage[][] pairs = {
+                {googleIdenticalImage, googleReferenceImage},
+                {bingImage, googleReferenceImage},
+                {buttonsGreyImage, buttonsReferenceImage},
+                {manWallWithoutPlateImage, manWallWithPlateImage}};
+        final double[] definitionsOfEqual = {ImageComparisonProcessor.DEFAULT_DEFINITION_OF_EQUAL, 96.0, 100.0};
+
+        final ImageComparisonService fullService = Guice.createInjector(new ImageComparisonModule())
+                .getInstance(ImageComparisonService.class);
+        for (final EarlyExit earlyExit : new EarlyExit[] {EarlyExit.ROW_ORDER, EarlyExit.COARSE_TO_FINE}) {
+            final ComparisonStatistics statistics = new ComparisonStatistics();
+            final ImageComparisonService earlyExitService = Guice.createInjector(new ImageComparisonModule()
+                    .withComparisonListener(statistics).withEarlyExit(earlyExit)).getInstance(ImageComparisonService.class);
+
+            // Stopping early never changes a result.
+            for (final BufferedImage[] pair : pairs) {
+                for (final double definitionOfEqual : definitionsOfEqual) {
+                    assertEquals("Same result as comparing every region.",
+                            fullService.compare(pair[0], pair[1], definitionOfEqual),
+                            earlyExitService.compare(pair[0], pair[1], definitionOfEqual));
+                }
+            }
+            assertTrue("Some comparisons have stopped early.", statistics.getEarlyExitCount() > 0);
+
+            // Detailed results cover every region.
+            final long earlyExitCount = statistics.getEarlyExitCount();
+            assertEquals("Detailed result is complete.",
+                    fullService.compareDetailed(bingImage, googleReferenceImage).getPercentageOfEquality(),
+                    earlyExitService.compareDetailed(bingImage, googleReferenceImage).getPercentageOfEquality(),
+                    0);
+            assertEquals("Detailed comparisons don't stop early.", earlyExitCount, statistics.getEarlyExitCount());
+        }
+    }
+
+    @Test
+    public final void checkReferenceIndex() throws Exception {
+
+        final BufferedImage googleReferenceImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleReference));
+        final BufferedImage googleIdenticalImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleIdentical));
+        final BufferedImage bingImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(bing));
+        final BufferedImage manWallWithPlateImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(manWallWithPlate));
+        final BufferedImage manWallWithoutPlateImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(manWallWithoutPlate));
+        final ImageComparisonProcessor processor = new SimpleImageComparisonProcessor();
+
+        // Identical images hash the same, different images don't.
+        for (final HashAlgorithm algorithm : HashAlgorithm.values()) {
+            final long googleHash = PerceptualHash.of(processor.createSignature(googleReferenceImage), algorithm);
+            assertEquals("Identical images have the same hash.", 0, PerceptualHash.hammingDistance(googleHash,
+                    PerceptualHash.of(processor.createSignature(googleIdenticalImage), algorithm)));
+            assertTrue("Different images have distant hashes.", PerceptualHash.hammingDistance(googleHash,
+                    PerceptualHash.of(processor.createSignature(bingImage), algorithm)) > 16);
+        }
+
+        // Masked regions don't count as black regions.
+        final ImageSignature maskedSignature = processor.createSignature(googleReferenceImage,
+                ImageMask.NONE.ignoring(new Rectangle(0, 0, 960, 891)));
+        for (final HashAlgorithm algorithm : HashAlgorithm.values()) {
+            assertTrue("Half masked image has a close hash.", PerceptualHash.hammingDistance(
+                    PerceptualHash.of(processor.createSignature(googleReferenceImage), algorithm),
+                    PerceptualHash.of(maskedSignature, algorithm)) <= 10);
+        }
+
+        // Only the candidates with a close hash are compared.
+        final ReferenceIndex index = new ReferenceIndex(processor, HashAlgorithm.PERCEPTUAL);
+        final int googleIndex = index.add(googleReferenceImage);
+        index.add(bingImage);
+        final int manWallIndex = index.add(processor.createSignature(manWallWithPlateImage));
+        assertEquals("All references are indexed.", 3, index.size());
+
+        final List<ReferenceMatch> googleMatches = index.findMatches(googleIdenticalImage, 10);
+        assertEquals("Only the identical reference is a candidate.", 1, googleMatches.size());
+        assertEquals("Identical reference is found.", googleIndex, googleMatches.get(0).getReferenceIndex());
+        assertTrue("Identical reference is equal.", googleMatches.get(0).getResult().isEqual());
+
+        final List<ReferenceMatch> manWallMatches = index.findMatches(manWallWithoutPlateImage, 10);
+        assertEquals("Only the similar reference is a candidate.", 1, manWallMatches.size());
+        assertEquals("Similar reference is found.", manWallIndex, manWallMatches.get(0).getReferenceIndex());
+
+        assertEquals("All references are candidates within the maximum distance.", 3,
+                index.findMatches(googleIdenticalImage, Long.SIZE).size());
+
+        // The test image is signed once for a candidate of its own size.
+        final ComparisonStatistics statistics = new ComparisonStatistics();
+        final ReferenceIndex countingIndex = new ReferenceIndex(new SimpleImageComparisonProcessor(statistics),
+                HashAlgorithm.PERCEPTUAL);
+        countingIndex.add(processor.createSignature(googleReferenceImage));
+        assertTrue("Identical reference is equal.", countingIndex.findMatches(googleIdenticalImage, 10).get(0).getResult().isEqual());
+        assertEquals("Test image is signed once.", 1, statistics.getSignatureCount());
+    }
+
+    @Test
+    public final void checkComparisonProfiles() throws Exception {
+
+        final BufferedImage googleReferenceImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleReference));
+        final BufferedImage googleIdenticalImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleIdentical));
+        final BufferedImage bingImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(bing));
+
+        // The module's profile determines the grid.
+        final ImageComparisonService balancedService = Guice.createInjector(new ImageComparisonModule())
+                .getInstance(ImageComparisonService.class);
+        final ImageComparisonService fastService = Guice.createInjector(new ImageComparisonModule()
+                .withProfile(ComparisonProfile.FAST)).getInstance(ImageComparisonService.class);
+        assertEquals("Default grid.", 1920 / 28, balancedService.createSignature(googleReferenceImage).getRegionsInOneDimension());
+        assertEquals("Coarse grid.", 1920 / 56, fastService.createSignature(googleReferenceImage).getRegionsInOneDimension());
+
+        // A single comparison may use another profile, the service stays unchanged.
+        final ImageComparisonService preciseService = fastService.withProfile(ComparisonProfile.PRECISE);
+        assertEquals("Dense grid.", 1920 / 14, preciseService.createSignature(googleReferenceImage).getRegionsInOneDimension());
+        assertEquals("Service unchanged.", 1920 / 56, fastService.createSignature(googleReferenceImage).getRegionsInOneDimension());
+        assertTrue("Same profile, same service.", fastService.withProfile(ComparisonProfile.FAST) == fastService);
+
+        // Every preset tells identical from different images.
+        for (final ImageComparisonService service : new ImageComparisonService[] {fastService, balancedService, preciseService}) {
+            assertTrue("Identical images are equal.", service.compare(googleIdenticalImage, googleReferenceImage));
+            assertFalse("Different images are not equal.", service.compare(bingImage, googleReferenceImage));
+        }
+
+        // Custom profiles equal presets with the same settings.
+        assertEquals("Same settings, same profile.", ComparisonProfile.BALANCED,
+                ComparisonProfile.of(28, 12, Method.BALANCED, DistanceMetric.EUCLIDEAN));
+        InvalidArgumentException toTest = null;
+        try {
+            ComparisonProfile.of(0, 12, Method.BALANCED, DistanceMetric.EUCLIDEAN);
+        } catch (final InvalidArgumentException iae) {
+            toTest = iae;
+        }
+        assertTrue("Exception is not null.", toTest != null);
+
+        // Signatures for other profiles aren't cached.
+        final SignatureCache cache = new SignatureCache(10);
+        final ImageComparisonService cachingService = Guice.createInjector(new ImageComparisonModule()
+                .withSignatureCache(cache)).getInstance(ImageComparisonService.class);
+        cachingService.compare(googleIdenticalImage, googleReferenceImage);
+        cachingService.withProfile(ComparisonProfile.PRECISE).compare(googleIdenticalImage, googleReferenceImage);
+        assertEquals("Only the signature of the module's profile is cached.", 1, cache.size());
+    }
+
+    @Test
+    public final void checkFixedGrid() throws Exception {
+
+        final BufferedImage googleReferenceImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleReference));
+        final BufferedImage googleIdenticalImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleIdentical));
+        final BufferedImage bingImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(bing));
+
+        final ComparisonProfile profile = ComparisonProfile.BALANCED.withFixedGrid(32);
+        final ImageComparisonService service = Guice.createInjector(new ImageComparisonModule()
+                .withProfile(profile)).getInstance(ImageComparisonService.class);
+
+        // The grid has a fixed number of columns and as many rows as the aspect ratio asks for.
+        final ImageSignature fullSize = service.createSignature(googleReferenceImage);
+        assertEquals("Fixed columns.", 32, fullSize.getRegionColumns());
+        assertEquals("Rows follow the aspect ratio.", Math.round(32f * 891 / 1920), fullSize.getRegionRows());
+        assertTrue("Identical images are equal.", service.compare(googleIdenticalImage, googleReferenceImage));
+        assertFalse("Different images are not equal.", service.compare(bingImage, googleReferenceImage));
+
+        // Signatures of the same grid are comparable across resolutions.
+        final BufferedImage halfSizeImage = Scalr.resize(googleIdenticalImage, Method.QUALITY, Scalr.Mode.FIT_TO_WIDTH, 960);
+        final ImageSignature halfSize = service.createSignature(halfSizeImage);
+        assertEquals("Same columns.", fullSize.getRegionColumns(), halfSize.getRegionColumns());
+        assertEquals("Same rows.", fullSize.getRegionRows(), halfSize.getRegionRows());
+        assertTrue("Identical images at different sizes are equal.", service.compareSignatures(halfSize, fullSize, 99.5));
+        assertFalse("Different images at different sizes are not equal.",
+                service.compareSignatures(service.createSignature(bingImage), halfSize, 99.5));
+
+        // At least one column is needed.
+        InvalidArgumentException toTest = null;
+        try {
+            ComparisonProfile.BALANCED.withFixedGrid(0);
+        } catch (final InvalidArgumentException iae) {
+            toTest = iae;
+        }
+        assertTrue("Exception is not null.", toTest != null);
+
+        // The rows survive a round trip through a store.
+        final Map<String, ImageSignature> signatures = new LinkedHashMap<String, ImageSignature>();
+        signatures.put("google", fullSize);
+        final File file = File.createTempFile("signatures", ".isig");
+        file.deleteOnExit();
+        SignatureStore.write(file, signatures);
+        final SignatureStore store = SignatureStore.open(file);
+        try {
+            final ImageSignature stored = store.get("google");
+            assertEquals("Columns are stored.", fullSize.getRegionColumns(), stored.getRegionColumns());
+            assertEquals("Rows are stored.", fullSize.getRegionRows(), stored.getRegionRows());
+            assertEquals("Stored signatures are identical.", 100.0,
+                    service.compareDetailed(stored, fullSize).getPercentageOfEquality(), 0.0);
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public final void checkAspectRatioGrid() throws Exception {
+
+        final BufferedImage googleReferenceImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleReference));
+        final BufferedImage googleIdenticalImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleIdentical));
+        final BufferedImage bingImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(bing));
+
+        // A tall capture of a whole page.
+        final BufferedImage pageImage = new BufferedImage(1920, 2 * 891, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D graphics = pageImage.createGraphics();
+        graphics.drawImage(googleReferenceImage, 0, 0, null);
+        graphics.drawImage(bingImage, 0, 891, null);
+        graphics.dispose();
+
+        final ImageComparisonService service = Guice.createInjector(new ImageComparisonModule()
+                .withProfile(ComparisonProfile.BALANCED.withAspectRatioGrid())).getInstance(ImageComparisonService.class);
+
+        // The rows follow the height just like the columns follow the width.
+        final ImageSignature googleSignature = service.createSignature(googleReferenceImage);
+        assertEquals("Columns follow the width.", 1920 / 28, googleSignature.getRegionColumns());
+        assertEquals("Rows follow the height.", 891 / 28, googleSignature.getRegionRows());
+        final ImageSignature pageSignature = service.createSignature(pageImage);
+        assertEquals("Same columns for the same width.", 1920 / 28, pageSignature.getRegionColumns());
+        assertEquals("More rows for a taller page.", 2 * 891 / 28, pageSignature.getRegionRows());
+
+        assertTrue("Identical images are equal.", service.compare(googleIdenticalImage, googleReferenceImage));
+        assertFalse("Different images are not equal.", service.compare(bingImage, googleReferenceImage));
+        assertTrue("Identical pages are equal.", service.compare(pageImage, pageImage));
+        assertFalse("A page is not equal to its first screen.", service.compare(pageImage, googleReferenceImage));
+
+        // Images shorter than the distance between reference pixels get a single row.
+        final BufferedImage bannerImage = googleReferenceImage.getSubimage(0, 0, 1000, 20);
+        assertEquals("One row for a short banner.", 1, service.createSignature(bannerImage).getRegionRows());
+        assertTrue("Identical banners are equal.", service.compare(bannerImage, bannerImage));
+
+        // Signatures of the same width, but with different grids can't be compared.
+        InvalidArgumentException toTest = null;
+        try {
+            service.compareDetailed(pageSignature, googleSignature);
+        } catch (final InvalidArgumentException iae) {
+            toTest = iae;
+        }
+        assertTrue("Exception is not null.", toTest != null);
+    }
+
+    @Test
+    public final void checkRegionDiff() throws Exception {
+
+        final ImageComparisonService imageComparisonService = Guice.createInjector(new ImageComparisonModule())
+                .getInstance(ImageComparisonService.class);
+        final BufferedImage googleReferenceImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleReference));
+        final BufferedImage googleIdenticalImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleIdentical));
+
+        // Identical images don't differ anywhere.
+        final RegionDiff identicalDiff = imageComparisonService.compareRegions(googleIdenticalImage, googleReferenceImage);
+        assertTrue("Identical images are equal.", identicalDiff.getResult().isEqual());
+        assertTrue("No changed areas.", identicalDiff.getChangedAreas(10).isEmpty());
+
+        // Paint a box onto a copy of the reference.
+        final BufferedImage changedImage = new BufferedImage(1920, 891, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D graphics = changedImage.createGraphics();
+        graphics.drawImage(googleReferenceImage, 0, 0, null);
+        final Rectangle box = new Rectangle(600, 300, 200, 150);
+        graphics.setColor(Color.RED);
+        graphics.fill(box);
+        graphics.dispose();
+
+        final ImageSignature googleSignature = imageComparisonService.createSignature(googleReferenceImage);
+        final RegionDiff diff = imageComparisonService.compareRegions(changedImage, googleSignature);
+        assertEquals("Same grid as the reference.", googleSignature.getRegionColumns(), diff.getRegionColumns());
+        assertEquals("Same grid as the reference.", googleSignature.getRegionRows(), diff.getRegionRows());
+        double sum = 0;
+        for (final double regionDistance : diff.getRegionDistances()) {
+            sum += regionDistance;
+        }
+        assertEquals("The regions add up to the distance.", diff.getResult().getDistance(), sum, 1e-6);
+        assertEquals("Same result as without the regions.",
+                imageComparisonService.compareDetailed(changedImage, googleSignature).getPercentageOfEquality(),
+                diff.getResult().getPercentageOfEquality(), 1e-9);
+
+        // The box is found as a single area.
+        final List<Rectangle> changedAreas = diff.getChangedAreas(10);
+        assertEquals("One changed area.", 1, changedAreas.size());
+        final Rectangle changedArea = changedAreas.get(0);
+        assertTrue("The area covers the box.", changedArea.intersects(box));
+        assertTrue("The area is about as large as the box.", changedArea.width < 2 * box.width
+                && changedArea.height < 2 * box.height);
+
+        // Signatures compare the same way.
+        final RegionDiff signatureDiff = imageComparisonService.compareRegions(
+                imageComparisonService.createSignature(changedImage), googleSignature);
+        assertEquals("One changed area.", 1, signatureDiff.getChangedAreas(10).size());
+
+        // A percentage has to be between zero and one hundred.
+        InvalidArgumentException toTest = null;
+        try {
+            diff.getChangedAreas(101);
+        } catch (final InvalidArgumentException iae) {
+            toTest = iae;
+        }
+        assertTrue("Exception is not null.", toTest != null);
+    }
+
+    @Test
+    public final void checkMasks() throws Exception {
+
+        final ImageComparisonService imageComparisonService = Guice.createInjector(new ImageComparisonModule())
+                .getInstance(ImageComparisonService.class);
+        final BufferedImage googleReferenceImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleReference));
+
+        // A clock in the reference, which shows another time in the test image.
+        final Rectangle clock = new Rectangle(1700, 20, 160, 60);
+        final BufferedImage changedImage = new BufferedImage(1920, 891, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D graphics = changedImage.createGraphics();
+        graphics.drawImage(googleReferenceImage, 0, 0, null);
+        graphics.setColor(Color.RED);
+        graphics.fill(clock);
+        graphics.dispose();
+        assertFalse("The clock makes the images differ.", imageComparisonService.compare(changedImage, googleReferenceImage));
+
+        // Ignoring the clock.
+        final ImageMask ignoreClock = ImageMask.NONE.ignoring(clock);
+        final ImageSignature maskedSignature = imageComparisonService.createSignature(googleReferenceImage, ignoreClock);
+        assertTrue("Some regions are masked.", maskedSignature.isMasked());
+        assertTrue("Most regions are compared.",
+                maskedSignature.getActiveRegionCount() > maskedSignature.getRegionColumns() * maskedSignature.getRegionRows() / 2);
+        final ComparisonResult result = imageComparisonService.compareDetailed(changedImage, googleReferenceImage, ignoreClock);
+        assertEquals("Nothing but the clock has changed.", 100, result.getPercentageOfEquality(), 1e-9);
+        assertEquals("Masked regions don't count towards the maximum distance.",
+                DistanceMetric.EUCLIDEAN.maxDistance(maskedSignature.getActiveRegionCount()), result.getMaxDistance(), 1e-6);
+        final ComparisonResult unmaskedResult = imageComparisonService.compareDetailed(googleReferenceImage,
+                imageComparisonService.createSignature(changedImage));
+        assertTrue("Masked signatures of test images work just as well.",
+                imageComparisonService.compareDetailed(imageComparisonService.createSignature(changedImage),
+                        maskedSignature).getPercentageOfEquality() > unmaskedResult.getPercentageOfEquality());
+
+        // Comparing the area of interest only.
+        final ImageMask searchBox = ImageMask.NONE.within(new Rectangle(400, 200, 1100, 400));
+        assertTrue("Nothing has changed within the area of interest.",
+                imageComparisonService.compareDetailed(changedImage, googleReferenceImage, searchBox).isEqual());
+
+        // Bitmaps are stretched to the size of the reference.
+        final BufferedImage bitmap = new BufferedImage(192, 89, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D bitmapGraphics = bitmap.createGraphics();
+        bitmapGraphics.setColor(Color.WHITE);
+        bitmapGraphics.fillRect(0, 0, 192, 89);
+        bitmapGraphics.setColor(Color.BLACK);
+        bitmapGraphics.fillRect(168, 0, 24, 12);
+        bitmapGraphics.dispose();
+        assertTrue("Nothing has changed outside of the bitmap.",
+                imageComparisonService.compareDetailed(changedImage, googleReferenceImage, ImageMask.fromBitmap(bitmap)).isEqual());
+
+        // Encoded images, decoded tile by tile, and several references at once leave out the same regions.
+        final ImageComparisonService tiledService = Guice.createInjector(new ImageComparisonModule().withTilePixels(65536))
+                .getInstance(ImageComparisonService.class);
+        final File changedFile = File.createTempFile("changed", ".png");
+        changedFile.deleteOnExit();
+        ImageIO.write(changedImage, "png", changedFile);
+        final ImageSignature unmaskedSignature = imageComparisonService.createSignature(googleReferenceImage);
+        assertTrue("The clock is left out of encoded images.",
+                tiledService.compareDetailed(changedFile, maskedSignature).getPercentageOfEquality()
+                > tiledService.compareDetailed(changedFile, unmaskedSignature).getPercentageOfEquality());
+        final List<ImageSignature> references = new ArrayList<ImageSignature>();
+        references.add(unmaskedSignature);
+        references.add(maskedSignature);
+        final List<ReferenceMatch> matches = imageComparisonService.compareAll(changedImage, references);
+        assertEquals("The masked reference matches best.", 1, matches.get(0).getReferenceIndex());
+        assertEquals("Nothing but the clock has changed.", 100, matches.get(0).getResult().getPercentageOfEquality(), 1e-9);
+
+        // A mask has to leave something to compare.
+        InvalidArgumentException toTest = null;
+        try {
+            imageComparisonService.createSignature(googleReferenceImage,
+                    ImageMask.NONE.ignoring(new Rectangle(0, 0, 1920, 891)));
+        } catch (final InvalidArgumentException iae) {
+            toTest = iae;
+        }
+        assertTrue("Exception is not null.", toTest != null);
+    }
+
+    @Test
+    public final void checkTiledDecoding() throws Exception {
+
+        final ImageComparisonService imageComparisonService = Guice.createInjector(new ImageComparisonModule())
+                .getInstance(ImageComparisonService.class);
+        final ComparisonStatistics statistics = new ComparisonStatistics();
+        final ImageComparisonService tiledService = Guice.createInjector(new ImageComparisonModule()
+                .withTilePixels(65536).withComparisonListener(statistics)).getInstance(ImageComparisonService.class);
+
+        // Tiles are subsampled just like the whole image, so the signatures are identical.
+        final ImageSignature googleSignature =
+                imageComparisonService.createSignature(ImageComparisonTest.class.getResourceAsStream(googleReference));
+        final ImageSignature tiledSignature =
+                tiledService.createSignature(ImageComparisonTest.class.getResourceAsStream(googleReference));
+        assertTrue("Same grid.", googleSignature.hasSameGrid(tiledSignature));
+        assertEquals("Same sample size.", googleSignature.getSampleSize(), tiledSignature.getSampleSize());
+        for (int y = 0; y < googleSignature.getRegionRows(); y++) {
+            for (int x = 0; x < googleSignature.getRegionColumns(); x++) {
+                assertEquals("Same region colors.", googleSignature.getRegionRgb(x, y), tiledSignature.getRegionRgb(x, y));
+            }
+        }
+        assertTrue("The image has been decoded in several bands.", statistics.getBandCount() > 1);
+
+        // Test images are compared the same way.
+        final long bands = statistics.getBandCount();
+        final ComparisonResult expected = imageComparisonService.compareDetailed(
+                ImageComparisonTest.class.getResourceAsStream(bing), googleSignature);
+        final ComparisonResult actual = tiledService.compareDetailed(
+                ImageComparisonTest.class.getResourceAsStream(bing), googleSignature);
+        assertEquals("Same score.", expected.getPercentageOfEquality(), actual.getPercentageOfEquality(), 1e-9);
+        assertTrue("The running score has been reported.", statistics.getBandCount() > bands);
+        assertTrue("Identical images are equal.", tiledService.compareDetailed(
+                ImageComparisonTest.class.getResourceAsStream(googleIdentical), googleSignature).isEqual());
+
+        // A tile has one pixel at least.
+        InvalidArgumentException toTest = null;
+        try {
+            new ImageComparisonModule().withTilePixels(0);
+        } catch (final InvalidArgumentException iae) {
+            toTest = iae;
+        }
+        assertTrue("Exception is not null.", toTest != null);
+    }
+
+    @Test
+    public final void checkCoarseToFineWithSmallChanges() throws Exception {
+
+        final BufferedImage googleReferenceImage = ImageIO.read(ImageComparisonTest.class.getResourceAsStream(googleReference));
+        final ImageComparisonService fullService = Guice.createInjector(new ImageComparisonModule())
+                .getInstance(ImageComparisonService.class);
+        final ComparisonStatistics statistics = new ComparisonStatistics();
+        final ImageComparisonService coarseToFineService = Guice.createInjector(new ImageComparisonModule()
+                .withComparisonListener(statistics).withEarlyExit(EarlyExit.COARSE_TO_FINE)).getInstance(ImageComparisonService.class);
+        final ImageSignature googleSignature = fullService.createSignature(googleReferenceImage);
+
+        // Clearly different images are told apart by the coarsest regions.
+        assertFalse("Bing is not Google.", coarseToFineService.compareWithSignature(
+                ImageIO.read(ImageComparisonTest.class.getResourceAsStream(bing)), googleSignature, 99.94));
+        assertEquals("Stopped early.", 1, statistics.getEarlyExitCount());
+
+        // Small changes centred on a region of the coarsest step or between its regions get the decision of the full grid.
+        final int[][] centers = {{1920 * 2 / 5, 891 * 2 / 5}, {920, 420}};
+        for (final int[] center : centers) {
+            for (final int size : new int[] {6, 10, 16, 20, 40, 80}) {
+                final BufferedImage changedImage = new BufferedImage(1920, 891, BufferedImage.TYPE_INT_RGB);
+                final Graphics2D graphics = changedImage.createGraphics();
+                graphics.drawImage(googleReferenceImage, 0, 0, null);
+                graphics.setColor(Color.RED);
+                graphics.fillRect(center[0] - size / 2, center[1] - size / 2, size, size);
+                graphics.dispose();
+                final boolean expected = fullService.compareWithSignature(changedImage, googleSignature, 99.94);
+                assertEquals("Same decision as the full grid for a box of " + size + " pixels.", expected,
+                        coarseToFineService.compareWithSignature(changedImage, googleSignature, 99.94));
+                assertEquals("A box of " + size + " pixels is tolerated, if it is small enough.", size <= 20, expected);
+            }
+        }
+    }
 }
@@ -25,6 +25,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Random;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -47,9 +51,9 @@ public class SimpleImageComparisonProcessorTest {
     @Test
     public final void checkCalcDistance() {
 
-        final Color[][] lengthZero = new Color[0][0];
-        final Color[][] lengthOne = new Color[1][1];
-        final Color[][] lengthFive = new Color[5][5];
+        final int[] lengthZero = new int[0];
+        final int[] lengthOne = new int[1];
+        final int[] lengthFive = new int[5 * 5];
         final int fiveRefRegions = 5;
 
         // Zero will be returned immediately, if refRegionsInOneDimension is zero.
@@ -104,6 +108,39 @@ public class SimpleImageComparisonProcessorTest {
         assertEquals("Exception will be thrown, if length of source and target array don't match number of regions.",
                 expectedExceptionMessage,
                 actualException.getMessage());
+
+        // The distance is the sum of the euclidean distances of the packed RGB values.
+        final int[] source = new int[] {0x000000, 0xFFFFFF, 0x102030, 0x0A0B0C};
+        final int[] target = new int[] {0x000000, 0x000000, 0x132434, 0x0A0B0C};
+        actual = -1;
+        try {
+            actual = SimpleImageComparisonProcessor.calcDistance(source, target, 2);
+        } catch (final InvalidArgumentException iae) {
+            assertTrue(iae.getMessage(), false);
+        }
+        assertEquals("The distance is the sum of the euclidean distances of the packed RGB values.",
+                Math.sqrt(3 * 255 * 255) + Math.sqrt(3 * 3 + 4 * 4 + 4 * 4),
+                actual,
+                0.0000001);
+
+        // Grids needn't be square.
+        actual = -1;
+        try {
+            actual = SimpleImageComparisonProcessor.calcDistance(source, target, 4, 1);
+        } catch (final InvalidArgumentException iae) {
+            assertTrue(iae.getMessage(), false);
+        }
+        assertEquals("The distance doesn't depend on the shape of the grid.",
+                Math.sqrt(3 * 255 * 255) + Math.sqrt(3 * 3 + 4 * 4 + 4 * 4),
+                actual,
+                0.0000001);
+        actualException = null;
+        try {
+            actual = SimpleImageComparisonProcessor.calcDistance(source, target, 3, 1);
+        } catch (final InvalidArgumentException iae) {
+            actualException = iae;
+        }
+        assertTrue("Exception is not null.", actualException != null);
     }
 
     @Test
@@ -127,6 +164,78 @@ public class SimpleImageComparisonProcessorTest {
                 11041.8238983,
                 SimpleImageComparisonProcessor.calculateMaxDistance(25),
                 1);
+
+        // Grids needn't be square.
+        assertEquals("Five columns and five rows are 25 regions.",
+                SimpleImageComparisonProcessor.calculateMaxDistance(25),
+                SimpleImageComparisonProcessor.calculateMaxDistance(5, 5),
+                0);
+        assertEquals("Five columns and three rows are 15 regions.",
+                SimpleImageComparisonProcessor.calculateMaxDistance(15),
+                SimpleImageComparisonProcessor.calculateMaxDistance(5, 3),
+                0);
+        assertEquals("Number of rows is below zero. The maximum distance returned is -1.",
+                -1,
+                SimpleImageComparisonProcessor.calculateMaxDistance(5, -1),
+                0);
+
+        // Masked regions don't count.
+        final ImageSignature masked = new ImageSignature(100, 60, 5, 3, 2, new int[] {
+            0, 0, 0, 0, 0,
+            0, ImageSignature.MASKED_REGION, ImageSignature.MASKED_REGION, 0, 0,
+            0, 0, 0, 0, 0});
+        assertEquals("Two of 15 regions are masked.",
+                SimpleImageComparisonProcessor.calculateMaxDistance(13),
+                SimpleImageComparisonProcessor.calculateMaxDistance(masked),
+                0);
+    }
+
+    @Test
+    public final void checkDistanceMetrics() {
+
+        final int black = 0x000000;
+        final int white = 0xFFFFFF;
+
+        // Black and white are as far apart as RGB colors get.
+        assertEquals("Euclidean distance of black and white.", Math.sqrt(3 * 255 * 255),
+                DistanceMetric.EUCLIDEAN.regionDistance(black, white), 0.0000001);
+        assertEquals("Squared Euclidean distance of black and white.", 3 * 255 * 255,
+                DistanceMetric.SQUARED_EUCLIDEAN.regionDistance(black, white), 0);
+        assertEquals("Manhattan distance of black and white.", 3 * 255,
+                DistanceMetric.MANHATTAN.regionDistance(black, white), 0);
+        assertEquals("Black and white differ in luma only.", 255,
+                DistanceMetric.YCBCR.regionDistance(black, white), 0.001);
+
+        final Random random = new Random(42L);
+        final int[] source = new int[1000];
+        final int[] target = new int[source.length];
+        for (int i = 0; i < source.length; i++) {
+            source[i] = random.nextInt() & 0xFFFFFF;
+            target[i] = random.nextInt() & 0xFFFFFF;
+        }
+        for (final DistanceMetric metric : DistanceMetric.values()) {
+            // The distance of signatures is the sum of the distances of their regions.
+            double sum = 0;
+            for (int i = 0; i < source.length; i++) {
+                final double regionDistance = metric.regionDistance(source[i], target[i]);
+                assertTrue(metric + " distance is within its maximum.",
+                        regionDistance >= 0 && regionDistance <= metric.maxRegionDistance());
+                assertEquals(metric + " distance is symmetric.", regionDistance,
+                        metric.regionDistance(target[i], source[i]), 0.0000001);
+                sum += regionDistance;
+            }
+            assertEquals(metric + " distance sums the regions.", sum,
+                    metric.distance(source, target, source.length), sum * 0.0000001);
+            assertEquals(metric + " distance of identical signatures.", 0,
+                    metric.distance(source, source, source.length), 0);
+            assertEquals(metric + " maximum distance.", source.length * metric.maxRegionDistance(),
+                    metric.maxDistance(source.length), 0);
+        }
+
+        // Yellow and blue are farther apart in Y'CbCr than black and white.
+        assertEquals("Maximum Y'CbCr distance.",
+                DistanceMetric.YCBCR.regionDistance(0xFFFF00, 0x0000FF),
+                DistanceMetric.YCBCR.maxRegionDistance(), 0.0000001);
     }
 
     @Test
@@ -155,4 +264,140 @@ public class SimpleImageComparisonProcessorTest {
                 SimpleImageComparisonProcessor.getRgbArrayFromPixel(Color.RED.getRGB()),
                 0);
     }
+
+    @Test
+    public final void checkAverageAroundForImageTypes() {
+
+        final int[] imageTypes = new int[] {
+            BufferedImage.TYPE_INT_RGB,
+            BufferedImage.TYPE_INT_ARGB,
+            BufferedImage.TYPE_3BYTE_BGR,
+            BufferedImage.TYPE_BYTE_GRAY,
+            BufferedImage.TYPE_4BYTE_ABGR,
+            BufferedImage.TYPE_USHORT_565_RGB
+        };
+
+        for (final int imageType : imageTypes) {
+            final BufferedImage image = createGradient(imageType);
+
+            // Raster based averaging matches the getRGB() based averaging, also for sub-images.
+            final BufferedImage subImage = image.getSubimage(7, 5, 100, 80);
+            for (final BufferedImage toTest : new BufferedImage[] {image, subImage}) {
+                for (final double p : new double[] {0.25, 0.5, 0.75}) {
+                    assertEquals("Average of image type " + imageType + " matches getRGB().",
+                            averageWithGetRgb(toTest, p, p, 6),
+                            SimpleImageComparisonProcessor.averageAround(toTest, p, p, 6));
+                }
+            }
+        }
+
+        // An empty sampling area is averaged as black.
+        assertEquals("An empty sampling area is averaged as black.",
+                Color.BLACK,
+                SimpleImageComparisonProcessor.averageAround(createGradient(BufferedImage.TYPE_INT_RGB), 0.5, 0.5, 0));
+    }
+
+    /**
+     * Creates a gradient image of the given type, so every sampling area has a different average.
+     */
+    private static BufferedImage createGradient(final int imageType) {
+
+        final BufferedImage gradient = new BufferedImage(120, 90, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < gradient.getWidth(); x++) {
+            for (int y = 0; y < gradient.getHeight(); y++) {
+                gradient.setRGB(x, y, new Color(2 * x, (x + y) % 256, 3 * y % 256).getRGB());
+            }
+        }
+        final BufferedImage image = new BufferedImage(gradient.getWidth(), gradient.getHeight(), imageType);
+        final Graphics2D graphics = image.createGraphics();
+        graphics.drawImage(gradient, 0, 0, null);
+        graphics.dispose();
+
+        return image;
+    }
+
+    /**
+     * Averages the sampling area by means of {@link BufferedImage#getRGB(int, int)}.
+     */
+    private static Color averageWithGetRgb(final BufferedImage image, final double px,
+            final double py, final int sampleSize) {
+
+        final int x0 = (int) (px * image.getWidth() - sampleSize);
+        final int y0 = (int) (py * image.getHeight() - sampleSize);
+        long red = 0;
+        long green = 0;
+        long blue = 0;
+        for (int x = x0; x < x0 + 2 * sampleSize; x++) {
+            for (int y = y0; y < y0 + 2 * sampleSize; y++) {
+                final Color color = new Color(image.getRGB(x, y));
+                red += color.getRed();
+                green += color.getGreen();
+                blue += color.getBlue();
+            }
+        }
+        final int numPixels = 4 * sampleSize * sampleSize;
+
+        return new Color((int) (red / numPixels), (int) (green / numPixels), (int) (blue / numPixels));
+    }
+
+    @Test
+    public final void checkCalcRegionOrder() {
+
+        for (final int regions : new int[] {0, 1, 7, 10, 68}) {
+            for (final EarlyExit mode : EarlyExit.values()) {
+                // Every region is visited exactly once.
+                final int[] order = SimpleImageComparisonProcessor.calcRegionOrder(regions, mode);
+                final int[] sorted = order.clone();
+                Arrays.sort(sorted);
+                for (int i = 0; i < sorted.length; i++) {
+                    assertEquals("Every region is visited once.", i, sorted[i]);
+                }
+            }
+        }
+
+        // The coarse grid comes first.
+        final int[] order = SimpleImageComparisonProcessor.calcRegionOrder(17, EarlyExit.COARSE_TO_FINE);
+        assertArrayEquals("Coarse grid first.", new int[] {0, 8, 16, 8 * 17, 8 * 17 + 8},
+                Arrays.copyOf(order, 5));
+    }
+
+    @Test
+    public final void checkSummedAreaTable() {
+
+        final int[] imageTypes = new int[] {
+            BufferedImage.TYPE_INT_RGB,
+            BufferedImage.TYPE_INT_ARGB,
+            BufferedImage.TYPE_3BYTE_BGR,
+            BufferedImage.TYPE_BYTE_GRAY,
+            BufferedImage.TYPE_USHORT_565_RGB
+        };
+
+        final Random random = new Random(42);
+        for (final int imageType : imageTypes) {
+            final BufferedImage image = createGradient(imageType);
+
+            // The table averages every rectangle exactly like the raster, also beyond the bounds.
+            for (final BufferedImage toTest : new BufferedImage[] {image, image.getSubimage(7, 5, 100, 80)}) {
+                final RegionAverager raster = RegionAveragers.forImage(toTest);
+                final SummedAreaTable table = new SummedAreaTable(toTest);
+                for (int i = 0; i < 500; i++) {
+                    final int x0 = random.nextInt(toTest.getWidth() + 20) - 10;
+                    final int y0 = random.nextInt(toTest.getHeight() + 20) - 10;
+                    final int x1 = x0 + random.nextInt(toTest.getWidth());
+                    final int y1 = y0 + random.nextInt(toTest.getHeight());
+                    assertEquals("Average of image type " + imageType + " matches the raster.",
+                            raster.averageRgb(x0, y0, x1, y1), table.averageRgb(x0, y0, x1, y1));
+                }
+            }
+        }
+
+        // Signatures from a table are the same as from the image, and the grid may be denser.
+        final SimpleImageComparisonProcessor processor = new SimpleImageComparisonProcessor();
+        final BufferedImage gradient = createGradient(BufferedImage.TYPE_INT_RGB);
+        final SummedAreaTable table = new SummedAreaTable(gradient);
+        final ImageSignature fromImage = processor.createSignature(gradient);
+        final ImageSignature fromTable = processor.createSignature(table, fromImage.getRegionsInOneDimension());
+        assertArrayEquals("Same signature from the table.", fromImage.regions(), fromTable.regions());
+        assertEquals("Dense grid.", 30, processor.createSignature(table, 30).getRegionsInOneDimension());
+    }
 }